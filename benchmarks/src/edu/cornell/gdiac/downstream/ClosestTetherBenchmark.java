@@ -0,0 +1,131 @@
+/*
+ * ClosestTetherBenchmark.java
+ *
+ * Every frame, the koi needs to know the closest tether.  This benchmark measures
+ * that search as the number of tethers in the level grows, comparing the spatial
+ * index used by DownstreamController against the linear scan it replaced.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.models.*;
+
+/**
+ * JMH benchmark of the closest tether search.
+ *
+ * The tethers are scattered at random in a long river, and are active in a Box2D
+ * world (as in the game) so that their positions come from their bodies.  The
+ * search position sweeps along the river so that the answer changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosestTetherBenchmark {
+	/** The width of the river per tether (in physics units) */
+	private static final float LENGTH_PER_TETHER = 4.0f;
+	/** The height of the river (in physics units) */
+	private static final float HEIGHT = 18.0f;
+	/** The number of search positions to sweep through */
+	private static final int PROBES = 1024;
+	/** The seed for the tether positions, so that every run is the same */
+	private static final long SEED = 3152;
+
+	/** The number of tethers in the level */
+	@Param({"4", "16", "64", "256", "1024"})
+	public int count;
+
+	/** The Box2D world holding the tethers */
+	private World world;
+	/** The tethers to search */
+	private ArrayList<TetherModel> tethers;
+	/** The spatial index of the tethers */
+	private SpatialGrid<TetherModel> index;
+	/** The positions to search from */
+	private Vector2[] probes;
+	/** The next position to search from */
+	private int next;
+
+	/**
+	 * Creates the tethers and the search positions.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		RandomXS128 random = new RandomXS128(SEED);
+		float length = count*LENGTH_PER_TETHER;
+
+		world = new World(new Vector2(0,0), false);
+		tethers = new ArrayList<TetherModel>();
+		for(int ii = 0; ii < count; ii++) {
+			TetherModel tether = new TetherModel(random.nextFloat()*length, random.nextFloat()*HEIGHT,
+												 TetherModel.TetherType.Lilipad);
+			tether.setSensor(true);
+			tether.activatePhysics(world);
+			tethers.add(tether);
+		}
+		index = new SpatialGrid<TetherModel>(8.0f);
+		for(TetherModel tether : tethers) {
+			index.add(tether, tether.getX(), tether.getY());
+		}
+		index.build();
+
+		probes = new Vector2[PROBES];
+		for(int ii = 0; ii < PROBES; ii++) {
+			probes[ii] = new Vector2(length*ii/PROBES, random.nextFloat()*HEIGHT);
+		}
+		next = 0;
+	}
+
+	/**
+	 * Disposes of the Box2D world.
+	 */
+	@TearDown(Level.Trial)
+	public void teardown() {
+		world.dispose();
+	}
+
+	/**
+	 * Finds the tether closest to the next search position with the spatial index.
+	 *
+	 * @return the closest tether
+	 */
+	@Benchmark
+	public TetherModel closestTetherGrid() {
+		Vector2 probe = probes[next];
+		next = (next+1) % PROBES;
+		return index.nearest(probe.x, probe.y);
+	}
+
+	/**
+	 * Finds the tether closest to the next search position with a linear scan.
+	 *
+	 * This is the original search from DownstreamController, kept as a baseline.
+	 *
+	 * @return the closest tether
+	 */
+	@Benchmark
+	public TetherModel closestTetherLinear() {
+		Vector2 probe = probes[next];
+		next = (next+1) % PROBES;
+		TetherModel closestTether = tethers.get(0);
+		float closestDistance = tethers.get(0).getPosition().sub(probe).len2();
+		for (TetherModel tether : tethers) {
+			float newDistance = tether.getPosition().sub(probe).len2();
+			if (newDistance < closestDistance) {
+				closestDistance = newDistance;
+				closestTether = tether;
+			}
+		}
+		return closestTether;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * CollisionFilterBenchmark.java
+ *
+ * The collision layers keep Box2D from making contacts between objects that the
+ * game never wants to touch, like the koi and the sensor lily pads.  This benchmark
+ * measures a physics step in a crowded field of lily pads, with and without the
+ * layers, to see what those contacts cost.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.downstream.obstacle.*;
+import edu.cornell.gdiac.downstream.models.*;
+
+/**
+ * JMH benchmark of a physics step with a growing number of sensor tethers.
+ *
+ * A handful of dynamic boxes (standing in for the koi) swim back and forth across
+ * a grid of lily pads, so they always overlap several of them.  Each step returns
+ * the number of contacts in the world, which JMH consumes with the result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionFilterBenchmark {
+	/** The spacing between tethers (in physics units) */
+	private static final float SPACING = 1.5f;
+	/** The number of swimmers */
+	private static final int SWIMMERS = 8;
+	/** The size of each swimmer (in physics units) */
+	private static final float SIZE = 2.0f;
+	/** The speed of each swimmer */
+	private static final float SPEED = 10.0f;
+	/** The length of a physics step */
+	private static final float STEP = 1/60.0f;
+
+	/** The number of tethers in the world */
+	@Param({"100", "1000", "10000"})
+	public int count;
+
+	/** Whether the objects are put in collision layers */
+	@Param({"true", "false"})
+	public boolean filtered;
+
+	/** The Box2D world */
+	private World world;
+	/** The swimmers */
+	private Obstacle[] swimmers;
+	/** The width of the tether field */
+	private float width;
+	/** Cache object for setting velocities */
+	private Vector2 velocity;
+
+	/**
+	 * Creates the world with the tethers and swimmers.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		world = new World(Vector2.Zero, false);
+		velocity = new Vector2();
+		int side = (int)Math.ceil(Math.sqrt(count));
+		width = side*SPACING;
+		for(int ii = 0; ii < count; ii++) {
+			float x = (ii % side + 0.5f)*SPACING;
+			float y = (ii / side + 0.5f)*SPACING;
+			TetherModel lily = new TetherModel(x, y, TetherModel.TetherType.Lilipad);
+			lily.setBodyType(BodyDef.BodyType.StaticBody);
+			lily.setSensor(true);
+			if (!filtered) {
+				lily.setFilterData(null);
+			}
+			lily.activatePhysics(world);
+		}
+
+		swimmers = new Obstacle[SWIMMERS];
+		for(int ii = 0; ii < SWIMMERS; ii++) {
+			float y = (ii+0.5f)*width/SWIMMERS;
+			BoxObstacle swimmer = new BoxObstacle(width/2, y, SIZE, SIZE);
+			swimmer.setBodyType(BodyDef.BodyType.DynamicBody);
+			swimmer.setGravityScale(0);
+			if (filtered) {
+				CollisionLayer.setCategory(swimmer, CollisionLayer.KOI);
+			}
+			swimmer.activatePhysics(world);
+			swimmer.setLinearVelocity(velocity.set(ii % 2 == 0 ? SPEED : -SPEED, 0));
+			swimmers[ii] = swimmer;
+		}
+	}
+
+	/**
+	 * Disposes of the world.
+	 */
+	@TearDown(Level.Trial)
+	public void teardown() {
+		world.dispose();
+	}
+
+	/**
+	 * Takes a single physics step, turning back any swimmer at the edge of the field.
+	 *
+	 * @return the number of contacts after the step
+	 */
+	@Benchmark
+	public int step() {
+		for(int ii = 0; ii < SWIMMERS; ii++) {
+			Obstacle swimmer = swimmers[ii];
+			float x = swimmer.getX();
+			float vx = swimmer.getVX();
+			if ((x < 0 && vx < 0) || (x > width && vx > 0)) {
+				swimmer.setLinearVelocity(velocity.set(-vx, 0));
+			}
+		}
+		world.step(STEP, 8, 3);
+		return world.getContactCount();
+	}
+}
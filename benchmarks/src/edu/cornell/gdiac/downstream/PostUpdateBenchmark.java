@@ -0,0 +1,148 @@
+/*
+ * PostUpdateBenchmark.java
+ *
+ * The postUpdate method of WorldController is where every physics step goes.
+ * It steps the Box2D world and then walks the object list to update the game
+ * objects.  This benchmark measures how that cost scales with the size of the
+ * level.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * JMH benchmark of a single physics step with a growing number of obstacles.
+ *
+ * The obstacles are a mix of dynamic boxes and wheels, spread out on a grid
+ * and drifting in random directions, so that they occasionally collide.  The
+ * level is rebuilt for each iteration so that every iteration starts equal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostUpdateBenchmark {
+	/** The spacing between obstacles (in physics units) */
+	private static final float SPACING = 2.0f;
+	/** The size of each obstacle (in physics units) */
+	private static final float SIZE = 1.0f;
+	/** The maximum speed of each obstacle */
+	private static final float SPEED = 2.0f;
+	/** The seed for the obstacle velocities, so that every run is the same */
+	private static final long SEED = 3152;
+
+	/**
+	 * A world with no game logic, just a grid of obstacles.
+	 */
+	private static class GridWorld extends WorldController {
+		/** The number of obstacles to create */
+		private int count;
+
+		/**
+		 * Creates a world big enough for the given number of obstacles.
+		 *
+		 * @param count The number of obstacles to create
+		 */
+		public GridWorld(int count) {
+			super(side(count)*SPACING, side(count)*SPACING, 0);
+			this.count = count;
+		}
+
+		/**
+		 * Returns the number of obstacles on each side of the grid.
+		 *
+		 * @param count The number of obstacles
+		 *
+		 * @return the number of obstacles on each side of the grid.
+		 */
+		private static int side(int count) {
+			return (int)Math.ceil(Math.sqrt(count));
+		}
+
+		/**
+		 * Rebuilds the grid of obstacles.
+		 */
+		public void reset() {
+			Vector2 gravity = new Vector2(world.getGravity());
+			for(Obstacle obj : objects) {
+				obj.deactivatePhysics(world);
+			}
+			objects.clear();
+			world.dispose();
+			world = new World(gravity,false);
+
+			RandomXS128 random = new RandomXS128(SEED);
+			int side = side(count);
+			for(int ii = 0; ii < count; ii++) {
+				float x = (ii % side + 0.5f)*SPACING;
+				float y = (ii / side + 0.5f)*SPACING;
+				Obstacle obj;
+				if (ii % 2 == 0) {
+					obj = new BoxObstacle(x, y, SIZE, SIZE);
+				} else {
+					obj = new WheelObstacle(x, y, SIZE/2);
+				}
+				obj.setBodyType(BodyDef.BodyType.DynamicBody);
+				obj.setDensity(1.0f);
+				obj.setLinearVelocity(new Vector2(random.nextFloat()*2-1, random.nextFloat()*2-1).scl(SPEED));
+				addObject(obj);
+			}
+		}
+
+		/**
+		 * There is no game logic in this world.
+		 *
+		 * @param dt Number of seconds in a physics step
+		 */
+		public void update(float dt) {
+		}
+	}
+
+	/** The number of obstacles in the world */
+	@Param({"10", "100", "1000", "10000"})
+	public int count;
+
+	/** The world to step */
+	private GridWorld world;
+
+	/**
+	 * Creates the world.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		world = new GridWorld(count);
+	}
+
+	/**
+	 * Rebuilds the level, so that every iteration starts from the same state.
+	 */
+	@Setup(Level.Iteration)
+	public void rebuild() {
+		world.reset();
+	}
+
+	/**
+	 * Disposes of the world.
+	 */
+	@TearDown(Level.Trial)
+	public void teardown() {
+		world.dispose();
+	}
+
+	/**
+	 * Takes a single physics step.
+	 */
+	@Benchmark
+	public void postUpdate() {
+		world.postUpdate(WorldController.WORLD_STEP);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * RewindBufferBenchmark.java
+ *
+ * Every physics step records the state of every object in the rewind buffer, so
+ * the recording has to stay cheap even in big levels.  This benchmark measures
+ * how the cost of recording (and restoring) a step scales with the number of
+ * objects.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * JMH benchmark of recording and restoring a step with a growing number of obstacles.
+ *
+ * The obstacles are boxes on a grid, half of them immobile (like walls) and half
+ * dynamic.  Only the dynamic boxes are recorded.  Consecutive steps in the buffer
+ * have every dynamic box in a different place, so that a restore has to move them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewindBufferBenchmark {
+	/** The spacing between obstacles (in physics units) */
+	private static final float SPACING = 2.0f;
+	/** The size of each obstacle (in physics units) */
+	private static final float SIZE = 1.0f;
+	/** The distance the dynamic boxes move between steps */
+	private static final float OFFSET = 0.1f;
+	/** The number of steps in the buffer (5 seconds at 60 steps a second) */
+	private static final int STEPS = 300;
+
+	/** The number of obstacles in the world */
+	@Param({"10", "100", "1000", "10000"})
+	public int count;
+
+	/** The Box2D world */
+	private World world;
+	/** The obstacles in the world */
+	private PooledList<Obstacle> objects;
+	/** The buffer to record into */
+	private RewindBuffer buffer;
+	/** The step to restore next (alternates between the last two) */
+	private int age;
+
+	/**
+	 * Creates the world, and fills the buffer.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		world = new World(Vector2.Zero, false);
+		objects = new PooledList<Obstacle>();
+		int side = (int)Math.ceil(Math.sqrt(count));
+		for(int ii = 0; ii < count; ii++) {
+			float x = (ii % side + 0.5f)*SPACING;
+			float y = (ii / side + 0.5f)*SPACING;
+			Obstacle obj = new BoxObstacle(x, y, SIZE, SIZE);
+			obj.setBodyType(ii % 2 == 0 ? BodyDef.BodyType.StaticBody : BodyDef.BodyType.DynamicBody);
+			obj.setImmobile(ii % 2 == 0);
+			obj.activatePhysics(world);
+			objects.add(obj);
+		}
+
+		buffer = new RewindBuffer(STEPS, count);
+		for(int ii = 0; ii < STEPS; ii++) {
+			for(Obstacle obj : objects) {
+				if (obj.getBodyType() == BodyDef.BodyType.DynamicBody) {
+					obj.setX(obj.getX()+(ii % 2 == 0 ? OFFSET : -OFFSET));
+				}
+			}
+			buffer.record(objects);
+		}
+	}
+
+	/**
+	 * Disposes of the world.
+	 */
+	@TearDown(Level.Trial)
+	public void teardown() {
+		world.dispose();
+	}
+
+	/**
+	 * Records a single step.
+	 */
+	@Benchmark
+	public void record() {
+		buffer.record(objects);
+	}
+
+	/**
+	 * Restores a single step (moving half of the obstacles).
+	 *
+	 * @return whether the step was restored
+	 */
+	@Benchmark
+	public boolean restore() {
+		age = 1-age;
+		return buffer.restore(age);
+	}
+}
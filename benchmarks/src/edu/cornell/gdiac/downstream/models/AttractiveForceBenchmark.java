@@ -0,0 +1,68 @@
+/*
+ * AttractiveForceBenchmark.java
+ *
+ * While the koi orbits a tether, the tether pulls on it every physics step.
+ * This benchmark measures the cost of computing that pull.
+ */
+package edu.cornell.gdiac.downstream.models;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+/**
+ * JMH benchmark of TetherModel.calculateAttractiveForce.
+ *
+ * The koi and the tether are both active in a Box2D world (as in the game), so
+ * that the mass and velocity come from the koi body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttractiveForceBenchmark {
+	/** The Box2D world holding the koi and the tether */
+	private World world;
+	/** The tether pulling on the koi */
+	private TetherModel tether;
+	/** The koi being pulled */
+	private PlayerModel koi;
+
+	/**
+	 * Creates the koi and the tether.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		world = new World(new Vector2(0,0), false);
+		tether = new TetherModel(16, 9, TetherModel.TetherType.Lilipad);
+		tether.setSensor(true);
+		tether.activatePhysics(world);
+
+		koi = new PlayerModel(20, 9, 2, 2);
+		koi.activatePhysics(world);
+		koi.setLinearVelocity(new Vector2(0, 8));
+	}
+
+	/**
+	 * Disposes of the Box2D world.
+	 */
+	@TearDown(Level.Trial)
+	public void teardown() {
+		world.dispose();
+	}
+
+	/**
+	 * Computes the pull of the tether on the koi.
+	 *
+	 * @return the attractive force
+	 */
+	@Benchmark
+	public Vector2 attractiveForce() {
+		return tether.calculateAttractiveForce(koi);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * PooledListBenchmark.java
+ *
+ * PooledList exists to save us from the garbage collector.  But a linked list
+ * pays for that with pointer chasing.  This benchmark compares it against the
+ * two array-backed lists we could use instead, for the way the WorldController
+ * uses it: a queue that is filled and drained, and a list that is iterated.
+ */
+package edu.cornell.gdiac.util;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * JMH benchmark of PooledList against libGDX Array and java.util.ArrayList.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledListBenchmark {
+	/** The number of elements in the list */
+	@Param({"16", "256", "4096"})
+	public int size;
+
+	/** The elements to add (preallocated so we measure the list, not boxing) */
+	private Integer[] values;
+
+	/** A pooled list that is reused for the queue benchmarks */
+	private PooledList<Integer> pooledQueue;
+	/** A libGDX array that is reused for the queue benchmarks */
+	private Array<Integer> arrayQueue;
+	/** A Java array list that is reused for the queue benchmarks */
+	private ArrayList<Integer> javaQueue;
+
+	/** A full pooled list for the iteration benchmarks */
+	private PooledList<Integer> pooledFull;
+	/** A full libGDX array for the iteration benchmarks */
+	private Array<Integer> arrayFull;
+	/** A full Java array list for the iteration benchmarks */
+	private ArrayList<Integer> javaFull;
+
+	/**
+	 * Allocates the lists and the values to store in them.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		values = new Integer[size];
+		for(int ii = 0; ii < size; ii++) {
+			values[ii] = Integer.valueOf(ii);
+		}
+
+		pooledQueue = new PooledList<Integer>();
+		arrayQueue  = new Array<Integer>();
+		javaQueue   = new ArrayList<Integer>();
+
+		pooledFull = new PooledList<Integer>();
+		arrayFull  = new Array<Integer>(Integer.class); // Typed, so items is an Integer[]
+		javaFull   = new ArrayList<Integer>();
+		for(int ii = 0; ii < size; ii++) {
+			pooledFull.add(values[ii]);
+			arrayFull.add(values[ii]);
+			javaFull.add(values[ii]);
+		}
+	}
+
+	/**
+	 * Fills a PooledList and drains it from the head (like the add queue).
+	 */
+	@Benchmark
+	public void pooledAddPoll(Blackhole hole) {
+		for(int ii = 0; ii < size; ii++) {
+			pooledQueue.add(values[ii]);
+		}
+		while (!pooledQueue.isEmpty()) {
+			hole.consume(pooledQueue.poll());
+		}
+	}
+
+	/**
+	 * Fills a libGDX Array and drains it from the head.
+	 */
+	@Benchmark
+	public void arrayAddPoll(Blackhole hole) {
+		for(int ii = 0; ii < size; ii++) {
+			arrayQueue.add(values[ii]);
+		}
+		while (arrayQueue.size > 0) {
+			hole.consume(arrayQueue.removeIndex(0));
+		}
+	}
+
+	/**
+	 * Fills a Java ArrayList and drains it from the head.
+	 */
+	@Benchmark
+	public void javaAddPoll(Blackhole hole) {
+		for(int ii = 0; ii < size; ii++) {
+			javaQueue.add(values[ii]);
+		}
+		while (!javaQueue.isEmpty()) {
+			hole.consume(javaQueue.remove(0));
+		}
+	}
+
+	/**
+	 * Iterates over a full PooledList.
+	 */
+	@Benchmark
+	public void pooledIterate(Blackhole hole) {
+		for(Integer value : pooledFull) {
+			hole.consume(value);
+		}
+	}
+
+	/**
+	 * Iterates over a full libGDX Array (by index, as we would in practice).
+	 */
+	@Benchmark
+	public void arrayIterate(Blackhole hole) {
+		Integer[] items = arrayFull.items;
+		for(int ii = 0; ii < arrayFull.size; ii++) {
+			hole.consume(items[ii]);
+		}
+	}
+
+	/**
+	 * Iterates over a full Java ArrayList.
+	 */
+	@Benchmark
+	public void javaIterate(Blackhole hole) {
+		for(Integer value : javaFull) {
+			hole.consume(value);
+		}
+	}
+}
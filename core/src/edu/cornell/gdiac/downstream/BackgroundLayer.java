@@ -0,0 +1,155 @@
+/*
+ * BackgroundLayer.java
+ *
+ * The pond behind the level is a repeating texture.  Instead of drawing one quad
+ * per tile, we draw a single quad that exactly covers the camera view, and let the
+ * texture wrap mode repeat the image across it.  Scrolling is just a change of the
+ * texture coordinates, so the background never runs out no matter how far the
+ * camera travels.
+ *
+ * A layer may scroll slower (or faster) than the world to give a parallax effect.
+ * Several layers (water, land, rocks, ...) can be stacked this way, each one
+ * costing a single quad.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.math.*;
+
+/**
+ * A repeating background texture drawn as a single camera-sized quad.
+ *
+ * The texture must have its wrap mode set to repeat in both directions.  The tile
+ * size is in physics units, so the background scales with the rest of the world.
+ */
+public class BackgroundLayer {
+	/** The repeating texture */
+	private Texture texture;
+	/** The color to tint the texture */
+	private Color tint;
+	/** The width of a single tile in physics units */
+	private float tileWidth;
+	/** The height of a single tile in physics units */
+	private float tileHeight;
+	/** The scroll speed relative to the world (1 is fixed to the world, 0 to the screen) */
+	private float parallax;
+
+	/**
+	 * Creates a new background layer fixed to the world.
+	 *
+	 * @param texture		The repeating texture
+	 * @param tileWidth		The width of a single tile in physics units
+	 * @param tileHeight	The height of a single tile in physics units
+	 */
+	public BackgroundLayer(Texture texture, float tileWidth, float tileHeight) {
+		this(texture, tileWidth, tileHeight, 1.0f);
+	}
+
+	/**
+	 * Creates a new background layer with the given parallax.
+	 *
+	 * A parallax of 1 moves the layer with the world, while a parallax of 0 fixes
+	 * it to the screen.  Values in between make the layer appear further away.
+	 *
+	 * @param texture		The repeating texture
+	 * @param tileWidth		The width of a single tile in physics units
+	 * @param tileHeight	The height of a single tile in physics units
+	 * @param parallax		The scroll speed relative to the world
+	 */
+	public BackgroundLayer(Texture texture, float tileWidth, float tileHeight, float parallax) {
+		assert tileWidth > 0 && tileHeight > 0 : "Tile size must be positive";
+		this.texture = texture;
+		this.tileWidth  = tileWidth;
+		this.tileHeight = tileHeight;
+		this.parallax = parallax;
+		tint = new Color(Color.WHITE);
+	}
+
+	/**
+	 * Returns the repeating texture of this layer.
+	 *
+	 * @return the repeating texture of this layer.
+	 */
+	public Texture getTexture() {
+		return texture;
+	}
+
+	/**
+	 * Sets the repeating texture of this layer.
+	 *
+	 * @param value	the repeating texture of this layer.
+	 */
+	public void setTexture(Texture value) {
+		texture = value;
+	}
+
+	/**
+	 * Returns the scroll speed relative to the world.
+	 *
+	 * @return the scroll speed relative to the world.
+	 */
+	public float getParallax() {
+		return parallax;
+	}
+
+	/**
+	 * Sets the scroll speed relative to the world.
+	 *
+	 * A parallax of 1 moves the layer with the world, while a parallax of 0 fixes
+	 * it to the screen.
+	 *
+	 * @param value	the scroll speed relative to the world.
+	 */
+	public void setParallax(float value) {
+		parallax = value;
+	}
+
+	/**
+	 * Returns the color to tint the texture.
+	 *
+	 * This method returns a reference to the layer color.  Changes to it will
+	 * change the layer.
+	 *
+	 * @return the color to tint the texture.
+	 */
+	public Color getTint() {
+		return tint;
+	}
+
+	/**
+	 * Sets the color to tint the texture.
+	 *
+	 * @param value	the color to tint the texture.
+	 */
+	public void setTint(Color value) {
+		tint.set(value);
+	}
+
+	/**
+	 * Draws this layer over the given view.
+	 *
+	 * The quad exactly covers the view.  The texture coordinates are shifted by
+	 * whole tiles to keep them small, so precision does not degrade far from the
+	 * origin.
+	 *
+	 * @param canvas	The drawing context
+	 * @param view		The visible part of the world (in pixels)
+	 * @param scale		The number of pixels per physics unit
+	 */
+	public void draw(GameCanvas canvas, Rectangle view, Vector2 scale) {
+		if (texture == null) {
+			return;
+		}
+
+		float width  = tileWidth*scale.x;
+		float height = tileHeight*scale.y;
+		float u = view.x*parallax/width;
+		float v = view.y*parallax/height;
+		u -= (float)Math.floor(u);
+		v -= (float)Math.floor(v);
+
+		// Texture v runs downwards, so the bottom of the quad has the larger v
+		canvas.draw(texture, tint, view.x, view.y, view.width, view.height,
+					u, 1-v, u+view.width/width, 1-v-view.height/height);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * CollisionLayer.java
+ *
+ * Box2D gives every fixture a 16-bit category, and these are the ones used by the
+ * game.  Each kind of object gets its own bit, so that the contact dispatcher can
+ * tell what collided from the categories alone, without comparing the objects
+ * against the fields of the controller.
+ *
+ * The categories also decide what collides with what.  By default, every fixture
+ * in Box2D collides with every other, so the koi swimming over a field of sensor
+ * lily pads makes a contact (and two callbacks) for every pad it crosses, even
+ * though the tethers are found with a spatial index instead.  The INTERACTIONS
+ * table lists the pairs of categories that the game actually needs, and the mask
+ * of each category is built from it.  Any other pair is rejected as soon as the
+ * broadphase finds it, before Box2D creates a contact.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * The collision categories of the objects in the game.
+ *
+ * Each category is a single bit.  Box2D allows at most 16 of them.
+ */
+public class CollisionLayer {
+	/** The category of objects with no particular type (the Box2D default) */
+	public static final short DEFAULT = 0x0001;
+	/** The category of the player */
+	public static final short KOI     = 0x0002;
+	/** The category of the river banks */
+	public static final short WALL    = 0x0004;
+	/** The category of the lily pads (and other tethers) */
+	public static final short TETHER  = 0x0008;
+	/** The category of the enemy fish */
+	public static final short ENEMY   = 0x0010;
+	/** The category of the goal */
+	public static final short GOAL    = 0x0020;
+
+	/** The number of categories that Box2D supports */
+	public static final int MAX_CATEGORIES = 16;
+
+	/**
+	 * The pairs of categories that interact.
+	 *
+	 * The table is symmetric, so each pair only needs to be listed once.  DEFAULT
+	 * interacts with everything (as in Box2D), so objects without a category still
+	 * collide.  Tethers are sensors found through a spatial index, and so interact
+	 * with nothing.  The koi is the only dynamic body, and Box2D never collides two
+	 * bodies that are not dynamic, so walls, enemies and tethers ignore each other.
+	 */
+	private static final short[][] INTERACTIONS = {
+		{ KOI, WALL  },
+		{ KOI, ENEMY },
+		{ KOI, GOAL  },
+	};
+
+	/** The mask of each category, indexed by its bit */
+	private static final short[] MASKS = buildMasks();
+
+	/**
+	 * Puts the given object in a category.
+	 *
+	 * The object only collides with the categories that interact with it (see
+	 * INTERACTIONS).  This must be called before the object is added to the world
+	 * (or it only applies once it is reactivated).
+	 *
+	 * @param obj		The object to categorize
+	 * @param category	The category bit of the object
+	 */
+	public static void setCategory(Obstacle obj, short category) {
+		Filter filter = new Filter();
+		filter.categoryBits = category;
+		filter.maskBits = getMask(category);
+		filter.groupIndex = 0;
+		obj.setFilterData(filter);
+	}
+
+	/**
+	 * Returns the categories that collide with the given one.
+	 *
+	 * @param category	The category bit
+	 *
+	 * @return the categories that collide with the given one.
+	 */
+	public static short getMask(short category) {
+		int index = indexOf(category);
+		return index < 0 ? 0 : MASKS[index];
+	}
+
+	/**
+	 * Returns true if the two categories collide.
+	 *
+	 * @param category1	The first category bit
+	 * @param category2	The second category bit
+	 *
+	 * @return true if the two categories collide.
+	 */
+	public static boolean interacts(short category1, short category2) {
+		return (getMask(category1) & category2) != 0 && (getMask(category2) & category1) != 0;
+	}
+
+	/**
+	 * Returns the index (0 to 15) of a category, or -1 if it has no bits.
+	 *
+	 * If a category has more than one bit, this is the index of the lowest one.
+	 *
+	 * @param category	The category bits
+	 *
+	 * @return the index (0 to 15) of a category, or -1 if it has no bits.
+	 */
+	public static int indexOf(short category) {
+		int bits = category & 0xFFFF;
+		return bits == 0 ? -1 : Integer.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Returns the mask of every category, built from INTERACTIONS.
+	 *
+	 * @return the mask of every category, built from INTERACTIONS.
+	 */
+	private static short[] buildMasks() {
+		short[] masks = new short[MAX_CATEGORIES];
+		for(int ii = 0; ii < MAX_CATEGORIES; ii++) {
+			masks[ii] = DEFAULT;
+		}
+		masks[indexOf(DEFAULT)] = -1;
+		for(int ii = 0; ii < INTERACTIONS.length; ii++) {
+			short category1 = INTERACTIONS[ii][0];
+			short category2 = INTERACTIONS[ii][1];
+			masks[indexOf(category1)] |= category2;
+			masks[indexOf(category2)] |= category1;
+		}
+		return masks;
+	}
+}
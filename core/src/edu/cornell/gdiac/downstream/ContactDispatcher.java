@@ -0,0 +1,374 @@
+/*
+ * ContactDispatcher.java
+ *
+ * Box2D calls the contact listener for every pair of touching fixtures, several
+ * times per step.  A single listener that checks every pair against every rule in
+ * an if-chain does work for pairs that nobody cares about.  Worse, preSolve had
+ * to compute the relative speed (a world manifold and two native velocity calls)
+ * before it could decide to ignore the contact.
+ *
+ * This class routes each callback by the collision categories of the two fixtures
+ * (see CollisionLayer).  Handlers are registered per pair of categories.  A
+ * callback with no handlers at all returns at once, without even asking the
+ * contact for its fixtures.  Otherwise the categories come from the obstacles
+ * (which are plain Java), and only a pair with a handler does any more work.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.physics.box2d.*;
+
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * A contact listener that passes each contact to the handler for its categories.
+ *
+ * There is at most one handler per pair of categories for each kind of callback.
+ * Registering another replaces it, and so does registering one for (B, A) instead
+ * of (A, B).  A handler registered for (A, B) also gets the contacts between B and
+ * A, but always with the object of category A first.
+ */
+public class ContactDispatcher implements ContactListener {
+	/** The number of slots in each handler table */
+	private static final int TABLE_SIZE = CollisionLayer.MAX_CATEGORIES*CollisionLayer.MAX_CATEGORIES;
+
+	/**
+	 * Handler for the start or end of a contact.
+	 */
+	public interface ContactHandler {
+		/**
+		 * Handles a contact between two objects.
+		 *
+		 * @param contact	The contact
+		 * @param obj1		The object of the first category
+		 * @param obj2		The object of the second category
+		 */
+		public void handle(Contact contact, Obstacle obj1, Obstacle obj2);
+	}
+
+	/**
+	 * Handler for a contact just before it is resolved.
+	 */
+	public interface PreSolveHandler {
+		/**
+		 * Handles a contact before collision resolution.
+		 *
+		 * @param contact		The contact
+		 * @param oldManifold	The collision manifold before contact
+		 * @param obj1			The object of the first category
+		 * @param obj2			The object of the second category
+		 */
+		public void preSolve(Contact contact, Manifold oldManifold, Obstacle obj1, Obstacle obj2);
+	}
+
+	/**
+	 * Handler for a contact just after it is resolved.
+	 */
+	public interface PostSolveHandler {
+		/**
+		 * Handles a contact after collision resolution.
+		 *
+		 * @param contact	The contact
+		 * @param impulse	The impulses of the collision
+		 * @param obj1		The object of the first category
+		 * @param obj2		The object of the second category
+		 */
+		public void postSolve(Contact contact, ContactImpulse impulse, Obstacle obj1, Obstacle obj2);
+	}
+
+	/** The beginContact handlers, indexed by category pair */
+	private ContactHandler[] begins;
+	/** The endContact handlers, indexed by category pair */
+	private ContactHandler[] ends;
+	/** The preSolve handlers, indexed by category pair */
+	private PreSolveHandler[] preSolves;
+	/** The postSolve handlers, indexed by category pair */
+	private PostSolveHandler[] postSolves;
+	/** The number of beginContact handlers (so we can skip unneeded work) */
+	private int beginCount;
+	/** The number of endContact handlers */
+	private int endCount;
+	/** The number of preSolve handlers */
+	private int preSolveCount;
+	/** The number of postSolve handlers */
+	private int postSolveCount;
+
+	/** The object of the first fixture in the current contact */
+	private Obstacle obj1;
+	/** The object of the second fixture in the current contact */
+	private Obstacle obj2;
+
+	/**
+	 * Creates a dispatcher with no handlers.
+	 */
+	public ContactDispatcher() {
+		begins = new ContactHandler[TABLE_SIZE];
+		ends = new ContactHandler[TABLE_SIZE];
+		preSolves = new PreSolveHandler[TABLE_SIZE];
+		postSolves = new PostSolveHandler[TABLE_SIZE];
+	}
+
+	/**
+	 * Sets the handler for the start of a contact between two categories.
+	 *
+	 * @param category1	The category of the first object
+	 * @param category2	The category of the second object
+	 * @param handler	The handler (null to remove it)
+	 */
+	public void onBeginContact(short category1, short category2, ContactHandler handler) {
+		int slot = slot(category1, category2);
+		int other = mirror(slot);
+		beginCount += count(handler)-count(begins[slot])-(other != slot ? count(begins[other]) : 0);
+		begins[other] = null;
+		begins[slot] = handler;
+	}
+
+	/**
+	 * Sets the handler for the end of a contact between two categories.
+	 *
+	 * @param category1	The category of the first object
+	 * @param category2	The category of the second object
+	 * @param handler	The handler (null to remove it)
+	 */
+	public void onEndContact(short category1, short category2, ContactHandler handler) {
+		int slot = slot(category1, category2);
+		int other = mirror(slot);
+		endCount += count(handler)-count(ends[slot])-(other != slot ? count(ends[other]) : 0);
+		ends[other] = null;
+		ends[slot] = handler;
+	}
+
+	/**
+	 * Sets the handler for a contact between two categories before it is resolved.
+	 *
+	 * @param category1	The category of the first object
+	 * @param category2	The category of the second object
+	 * @param handler	The handler (null to remove it)
+	 */
+	public void onPreSolve(short category1, short category2, PreSolveHandler handler) {
+		int slot = slot(category1, category2);
+		int other = mirror(slot);
+		preSolveCount += count(handler)-count(preSolves[slot])-(other != slot ? count(preSolves[other]) : 0);
+		preSolves[other] = null;
+		preSolves[slot] = handler;
+	}
+
+	/**
+	 * Sets the handler for a contact between two categories after it is resolved.
+	 *
+	 * @param category1	The category of the first object
+	 * @param category2	The category of the second object
+	 * @param handler	The handler (null to remove it)
+	 */
+	public void onPostSolve(short category1, short category2, PostSolveHandler handler) {
+		int slot = slot(category1, category2);
+		int other = mirror(slot);
+		postSolveCount += count(handler)-count(postSolves[slot])-(other != slot ? count(postSolves[other]) : 0);
+		postSolves[other] = null;
+		postSolves[slot] = handler;
+	}
+
+	/**
+	 * Removes every handler.
+	 */
+	public void clear() {
+		for(int ii = 0; ii < TABLE_SIZE; ii++) {
+			begins[ii] = null;
+			ends[ii] = null;
+			preSolves[ii] = null;
+			postSolves[ii] = null;
+		}
+		beginCount = 0;
+		endCount = 0;
+		preSolveCount = 0;
+		postSolveCount = 0;
+	}
+
+	/// CONTACT LISTENER METHODS
+	/**
+	 * Callback method for the start of a collision
+	 *
+	 * @param contact The two bodies that collided
+	 */
+	public void beginContact(Contact contact) {
+		if (beginCount == 0) {
+			return;
+		}
+		int slot = find(contact);
+		if (slot >= 0) {
+			ContactHandler handler = begins[slot];
+			if (handler != null) {
+				handler.handle(contact, obj1, obj2);
+			} else {
+				handler = begins[mirror(slot)];
+				if (handler != null) {
+					handler.handle(contact, obj2, obj1);
+				}
+			}
+		}
+		release();
+	}
+
+	/**
+	 * Callback method for the end of a collision
+	 *
+	 * @param contact The two bodies that ceased to touch
+	 */
+	public void endContact(Contact contact) {
+		if (endCount == 0) {
+			return;
+		}
+		int slot = find(contact);
+		if (slot >= 0) {
+			ContactHandler handler = ends[slot];
+			if (handler != null) {
+				handler.handle(contact, obj1, obj2);
+			} else {
+				handler = ends[mirror(slot)];
+				if (handler != null) {
+					handler.handle(contact, obj2, obj1);
+				}
+			}
+		}
+		release();
+	}
+
+	/**
+	 * Callback method before collision resolution
+	 *
+	 * @param contact		The two bodies that collided
+	 * @param oldManifold	The collision manifold before contact
+	 */
+	public void preSolve(Contact contact, Manifold oldManifold) {
+		if (preSolveCount == 0) {
+			return;
+		}
+		int slot = find(contact);
+		if (slot >= 0) {
+			PreSolveHandler handler = preSolves[slot];
+			if (handler != null) {
+				handler.preSolve(contact, oldManifold, obj1, obj2);
+			} else {
+				handler = preSolves[mirror(slot)];
+				if (handler != null) {
+					handler.preSolve(contact, oldManifold, obj2, obj1);
+				}
+			}
+		}
+		release();
+	}
+
+	/**
+	 * Callback method after collision resolution
+	 *
+	 * @param contact	The two bodies that collided
+	 * @param impulse	The impulses of the collision
+	 */
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		if (postSolveCount == 0) {
+			return;
+		}
+		int slot = find(contact);
+		if (slot >= 0) {
+			PostSolveHandler handler = postSolves[slot];
+			if (handler != null) {
+				handler.postSolve(contact, impulse, obj1, obj2);
+			} else {
+				handler = postSolves[mirror(slot)];
+				if (handler != null) {
+					handler.postSolve(contact, impulse, obj2, obj1);
+				}
+			}
+		}
+		release();
+	}
+
+	/**
+	 * Returns the table slot for the fixtures of a contact (-1 if there is none).
+	 *
+	 * This also sets obj1 and obj2 to the objects of the two fixtures.  These
+	 * may be null for bodies that are not obstacles.
+	 *
+	 * @param contact	The contact
+	 *
+	 * @return the table slot for the fixtures of a contact (-1 if there is none).
+	 */
+	private int find(Contact contact) {
+		Fixture fix1 = contact.getFixtureA();
+		Fixture fix2 = contact.getFixtureB();
+		Object data1 = fix1.getBody().getUserData();
+		Object data2 = fix2.getBody().getUserData();
+		obj1 = (data1 instanceof Obstacle ? (Obstacle)data1 : null);
+		obj2 = (data2 instanceof Obstacle ? (Obstacle)data2 : null);
+		int index1 = CollisionLayer.indexOf(getCategory(fix1, obj1));
+		int index2 = CollisionLayer.indexOf(getCategory(fix2, obj2));
+		if (index1 < 0 || index2 < 0) {
+			return -1;
+		}
+		return index1*CollisionLayer.MAX_CATEGORIES+index2;
+	}
+
+	/**
+	 * Clears the references to the objects of the last contact.
+	 */
+	private void release() {
+		obj1 = null;
+		obj2 = null;
+	}
+
+	/**
+	 * Returns the category of a fixture.
+	 *
+	 * Fixture.getFilterData() is a native call every time, so we ask the obstacle
+	 * (which keeps a copy of the filter) when there is one.
+	 *
+	 * @param fixture	The fixture
+	 * @param obj		The obstacle that owns the fixture (or null)
+	 *
+	 * @return the category of a fixture.
+	 */
+	private static short getCategory(Fixture fixture, Obstacle obj) {
+		if (obj != null) {
+			return obj.getFilterData().categoryBits;
+		}
+		return fixture.getFilterData().categoryBits;
+	}
+
+	/**
+	 * Returns the table slot for a pair of categories.
+	 *
+	 * @param category1	The category of the first object
+	 * @param category2	The category of the second object
+	 *
+	 * @return the table slot for a pair of categories.
+	 */
+	private static int slot(short category1, short category2) {
+		int index1 = CollisionLayer.indexOf(category1);
+		int index2 = CollisionLayer.indexOf(category2);
+		if (index1 < 0 || index2 < 0) {
+			throw new IllegalArgumentException("A collision category must have at least one bit");
+		}
+		return index1*CollisionLayer.MAX_CATEGORIES+index2;
+	}
+
+	/**
+	 * Returns the slot for the same pair of categories in the other order.
+	 *
+	 * @param slot	The table slot
+	 *
+	 * @return the slot for the same pair of categories in the other order.
+	 */
+	private static int mirror(int slot) {
+		return (slot % CollisionLayer.MAX_CATEGORIES)*CollisionLayer.MAX_CATEGORIES+slot/CollisionLayer.MAX_CATEGORIES;
+	}
+
+	/**
+	 * Returns 1 if there is a handler, and 0 otherwise.
+	 *
+	 * @param handler	The handler (or null)
+	 *
+	 * @return 1 if there is a handler, and 0 otherwise.
+	 */
+	private static int count(Object handler) {
+		return handler == null ? 0 : 1;
+	}
+}
@@ -14,6 +14,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.assets.*;
 import com.badlogic.gdx.audio.*;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
@@ -23,6 +24,7 @@ import edu.cornell.gdiac.util.*;
 import edu.cornell.gdiac.downstream.*;
 import edu.cornell.gdiac.downstream.obstacle.*;
 import edu.cornell.gdiac.downstream.models.*;
+import edu.cornell.gdiac.downstream.levels.*;
 
 /**
  * Gameplay specific controller for Downstream.
@@ -33,13 +35,23 @@ import edu.cornell.gdiac.downstream.models.*;
  * This is the purpose of our AssetState variable; it ensures that multiple instances
  * place nicely with the static assets.
  */
-public class DownstreamController extends WorldController implements ContactListener {
+public class DownstreamController extends WorldController {
 	/** Reference to the fish texture */
 	private static final String KOI_TEXTURE = "koi/koi.png";
 	/** The reference for the tether textures  */
 	private static final String LILY_TEXTURE = "tethers/lilypad.png";
 	/** Reference to the enemy image assets */
 	private static final String ENEMY_TEXTURE = "enemy/enemy.png";
+	/** The texture file for the pond banks */
+	private static final String EARTH_TEXTURE = "terrain/land.png";
+	/** The compiled level file (see LevelCompiler) */
+	private static final String LEVEL_FILE = "levels/level1.lvl";
+	/** The size of a physics streaming region (about half a screen) */
+	private static final float STREAM_REGION_SIZE = 16.0f;
+	/** Regions this close to the view or the koi get physics bodies */
+	private static final float STREAM_ACTIVE_MARGIN = 8.0f;
+	/** Regions this far from the view and the koi lose their physics bodies */
+	private static final float STREAM_INACTIVE_MARGIN = 16.0f;
 
 	/** The asset for the collision sound */
 	//private static final String  COLLISION_SOUND = "fish/bump.mp3";
@@ -51,6 +63,8 @@ public class DownstreamController extends WorldController implements ContactList
 	private TextureRegion lilyTexture;
 	/** Texture assets for the enemy fish */
 	private TextureRegion enemyTexture;
+	/** Texture asset for the pond banks */
+	private TextureRegion earthTile;
 
 	/** Texture filmstrip for the main afterburner */
 	//private FilmStrip mainTexture;
@@ -85,16 +99,14 @@ public class DownstreamController extends WorldController implements ContactList
 		
 		fishAssetState = AssetState.LOADING;
 
-		
-		manager.load(ENEMY_TEXTURE, Texture.class);
-		assets.add(ENEMY_TEXTURE);
-		
 		// Ship textures
-		manager.load(KOI_TEXTURE, Texture.class);
-		assets.add(KOI_TEXTURE);
+		loadSprite(manager, KOI_TEXTURE);
 		
-		manager.load(LILY_TEXTURE, Texture.class);
-		assets.add(LILY_TEXTURE);
+		loadSprite(manager, LILY_TEXTURE);
+		
+		// The enemies and banks can start as placeholders
+		deferSprite(ENEMY_TEXTURE);
+		deferAsset(new AssetDescriptor<Texture>(EARTH_TEXTURE, Texture.class));
 		
 		//sounds
 		//manager.load(MAIN_FIRE_SOUND, Sound.class);
@@ -122,6 +134,7 @@ public class DownstreamController extends WorldController implements ContactList
 		enemyTexture = createTexture(manager,ENEMY_TEXTURE,false);
 		koiTexture = createTexture(manager,KOI_TEXTURE,false);
 		lilyTexture = createTexture(manager,LILY_TEXTURE,false);
+		earthTile = createTexture(manager,EARTH_TEXTURE,true);
 		
 		SoundController sounds = SoundController.getInstance();
 		//sounds.allocate(manager,MAIN_FIRE_SOUND);
@@ -131,6 +144,28 @@ public class DownstreamController extends WorldController implements ContactList
 		fishAssetState = AssetState.COMPLETE;
 	}
 	
+	/**
+	 * Gives a streamed texture to the objects that were using a placeholder.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 * @param file		The file name of the asset
+	 */
+	protected void assetLoaded(AssetManager manager, String file) {
+		if (file.equals(ENEMY_TEXTURE)) {
+			enemyTexture = createTexture(manager,ENEMY_TEXTURE,false);
+			for(EnemyModel enemy : enemies) {
+				enemy.setTexture(enemyTexture);
+			}
+		} else if (file.equals(EARTH_TEXTURE)) {
+			earthTile = createTexture(manager,EARTH_TEXTURE,true);
+			for(PolygonObstacle wall : walls) {
+				wall.setTexture(earthTile);
+			}
+			invalidateStatics();
+		}
+		super.assetLoaded(manager, file);
+	}
+	
 	// Physics constants for initialization
 	/** Density of non-enemy objects */
 	private static final float BASIC_DENSITY   = 0.0f;
@@ -148,49 +183,49 @@ public class DownstreamController extends WorldController implements ContactList
 	private static final float TETHER_DENSITY = ENEMY_DENSITY;
 	private static final float TETHER_FRICTION = ENEMY_FRICTION;
 	private static final float TETHER_RESTITUTION = BASIC_RESTITUTION;
-
-	// Since these appear only once, we do not care about the magic numbers.
-	// In an actual game, this information would go in a data file.
-	// Wall vertices
-	private static final float[][] LAND = {{}};
-
-	private static final float[] WALL1 = { 0.0f, 18.0f, 16.0f, 18.0f, 16.0f, 17.0f,
-										   8.0f, 15.0f,  1.0f, 17.0f,  2.0f,  7.0f,
-										   3.0f,  5.0f,  3.0f,  1.0f, 16.0f,  1.0f,
-										  16.0f,  0.0f,  0.0f,  0.0f};
-	private static final float[] WALL2 = {32.0f, 18.0f, 32.0f,  0.0f, 16.0f,  0.0f,
-										  16.0f,  1.0f, 31.0f,  1.0f, 30.0f, 10.0f,
-										  31.0f, 16.0f, 16.0f, 17.0f, 16.0f, 18.0f};
-	private static final float[] WALL3 = { 4.0f, 10.5f,  8.0f, 10.5f,
-            							   8.0f,  9.5f,  4.0f,  9.5f};
 	
-	private static final float[] WALLX = { 0.0f, 0.0f, 32.0f, 0.0f,
-										   16.0f, 32.0f, 0.0f, 0.0f, 16.0f};
+	/** Size of the koi (in physics units) if there is no texture to measure */
+	private static final Vector2 KOI_SIZE = new Vector2(2.0f, 2.0f);
+	/** Size of the enemy (in physics units) if there is no texture to measure */
+	private static final Vector2 ENEMY_SIZE = new Vector2(2.85f, 1.675f);
 
-	// The positions of the crate pyramid
-//	private static final float[] BOXES = { 14.5f, 14.25f,
-//            							   13.0f, 12.00f, 16.0f, 12.00f,
-//            							   11.5f,  9.75f, 14.5f,  9.75f, 17.5f, 9.75f,
-//            							   13.0f,  7.50f, 16.0f,  7.50f,
-//            							   11.5f,  5.25f, 14.5f,  5.25f, 17.5f, 5.25f,
-//            							   10.0f,  3.00f, 13.0f,  3.00f, 16.0f, 3.00f, 19.0f, 3.0f};
-	private static final float[] BOXES = {};
+	/** The level file to load (null for the default level) */
+	private FileHandle levelFile;
+	/** The level layout (loaded once, and reused on every reset) */
+	private LevelData level;
+	/** The state of the level right after it was laid out (to restart it in place) */
+	private LevelSnapshot initialState = new LevelSnapshot();
+	/** Streams the bodies of the walls and tethers in and out around the koi */
+	private PhysicsStreamer streamer = new PhysicsStreamer(STREAM_REGION_SIZE, STREAM_ACTIVE_MARGIN,
+														   STREAM_INACTIVE_MARGIN);
+	/** Cache object for the visible part of the world */
+	private Rectangle viewCache = new Rectangle();
 	
 	private ArrayList<TetherModel> tethers = new ArrayList<TetherModel>();
-
-	// Other game objects
-	/** The initial koi position */
-	private static Vector2 KOI_POS = new Vector2(24, 4);
-	/** The goal door position */
-	private static Vector2 GOAL_POS = new Vector2( 6, 12);
+	/** The size of a cell in the tether index (about the spacing between tethers) */
+	private static final float TETHER_CELL_SIZE = 8.0f;
+	/** Spatial index of the tethers, built once the level is laid out */
+	private SpatialGrid<TetherModel> tetherIndex = new SpatialGrid<TetherModel>(TETHER_CELL_SIZE);
+	/** The tether closest to the koi, as of the last physics step */
+	private TetherModel closestTether;
 
 	// Physics objects for the game
-	/** Reference to the goalDoor (for collision detection) */
-	private BoxObstacle goalDoor;
+	/** Routes the contacts in the world to the handlers for their categories */
+	private ContactDispatcher contacts = new ContactDispatcher();
 	/** Reference to the player avatar */
 	private PlayerModel koi;
 	
-	private EnemyModel eFish;
+	/** The enemies in the level */
+	private ArrayList<EnemyModel> enemies = new ArrayList<EnemyModel>();
+	/** The walls in the level (to retexture when the bank texture streams in) */
+	private ArrayList<PolygonObstacle> walls = new ArrayList<PolygonObstacle>();
+	
+	/** Cache object for converting physics positions to the screen */
+	private Vector2 cameraCache = new Vector2();
+	/** Cache object for the start of a line drawn on screen */
+	private Vector2 startCache = new Vector2();
+	/** Cache object for the end of a line drawn on screen */
+	private Vector2 endCache = new Vector2();
 
 	/**
 	 * Creates and initialize a new instance of Downstream
@@ -201,16 +236,24 @@ public class DownstreamController extends WorldController implements ContactList
 		setDebug(false);
 		setComplete(false);
 		setFailure(false);
-		world.setContactListener(this);
+		registerContacts();
+		world.setContactListener(contacts);
 		tethered = false;
 	}
 	
 	/**
 	 * Resets the status of the game so that we can play again.
 	 *
-	 * This method disposes of the world and creates a new one.
+	 * If the level still has the objects it was laid out with, they are put back
+	 * where they started, and the world is kept.  Otherwise, this method disposes 
+	 * of the world and creates a new one.
 	 */
 	public void reset() {
+		if (initialState.restore(objects)) {
+			restart();
+			return;
+		}
+		
 		Vector2 gravity = new Vector2(world.getGravity() );
 		
 		for(Obstacle obj : objects) {
@@ -218,102 +261,203 @@ public class DownstreamController extends WorldController implements ContactList
 		}
 		objects.clear();
 		addQueue.clear();
+		tethers.clear();
+		enemies.clear();
+		walls.clear();
+		streamer.clear();
+		tetherIndex.clear();
+		closestTether = null;
 		world.dispose();
 		
 		world = new World(gravity,false);
-		world.setContactListener(this);
+		world.setContactListener(contacts);
 		setComplete(false);
 		setFailure(false);
+		int span = StartupTrace.getInstance().begin("DownstreamController.populateLevel");
 		populateLevel();
-		canvas.setCameraPosition(koi.getPosition().cpy().scl(scale));
+		StartupTrace.getInstance().end(span);
+		initialState.capture(objects);
+		if (canvas != null) {
+			canvas.setCameraPosition(cameraCache.set(koi.getPosition()).scl(scale));
+			resetCamera();
+		}
+	}
+
+	/**
+	 * Restarts the level after its objects have been restored to their start.
+	 *
+	 * The snapshot only covers the physics state, so this resets everything else
+	 * that play can change.  It does not touch the world, and so is much faster
+	 * than laying out the level again.
+	 */
+	private void restart() {
+		addQueue.clear();
+		rewind.clear();
+		setComplete(false);
+		setFailure(false);
+		tethered = false;
+		koi.setFX(0);
+		koi.setFY(0);
+		for(int ii = 0; ii < enemies.size(); ii++) {
+			enemies.get(ii).restartRoute();
+		}
+		closestTether = getClosestTether();
+		updateStreaming();
+		if (canvas != null) {
+			canvas.setCameraPosition(cameraCache.set(koi.getPosition()).scl(scale));
+			resetCamera();
+		}
 	}
 
 	/**
 	 * Lays out the game geography.
+	 *
+	 * The layout comes from the compiled level file, which is only read the first
+	 * time.  Resetting the level rebuilds the objects from the same data.
+	 *
+	 * The textures are optional.  Without them (e.g. when running headless), the
+	 * objects are sized from the default dimensions and are not drawn.  Textures
+	 * that are still streaming in are replaced by placeholders.
 	 */
 	private void populateLevel() {
-		// Add level goal
-		float dwidth  = getBackground().getWidth()/scale.x;
-		float dheight = getBackground().getHeight()/scale.y;
-		
+		if (level == null) {
+			level = LevelData.load(levelFile != null ? levelFile : Gdx.files.internal(LEVEL_FILE));
+		}
 		boolean sensorTethers = true;
-		
-		float rad = lilyTexture.getRegionWidth()/2;
+		TextureRegion earth = (earthTile != null ? earthTile : createPlaceholder(1, 1));
 
-		TetherModel lily = new TetherModel(12, 2, dwidth, dheight);
-		lily.setBodyType(BodyDef.BodyType.StaticBody);
-		lily.setName("lily"+ 1);
-		lily.setDensity(TETHER_DENSITY);
-		lily.setFriction(TETHER_FRICTION);
-		lily.setRestitution(TETHER_RESTITUTION);
-		lily.setSensor(sensorTethers);
-		lily.setDrawScale(scale);
-		lily.setTexture(lilyTexture);
-		addObject(lily);
-		tethers.add(lily);
-		
-		lily = new TetherModel(6, 12, dwidth, dheight);
-		lily.setBodyType(BodyDef.BodyType.StaticBody);
-		lily.setName("lily"+ 2);
-		lily.setDensity(TETHER_DENSITY);
-		lily.setFriction(TETHER_FRICTION);
-		lily.setRestitution(TETHER_RESTITUTION);
-		lily.setSensor(sensorTethers);
-		lily.setDrawScale(scale);
-		lily.setTexture(lilyTexture);
-		addObject(lily);
-		tethers.add(lily);
-		
-		lily = new TetherModel(28, 10, dwidth, dheight);
-		lily.setBodyType(BodyDef.BodyType.StaticBody);
-		lily.setName("lily"+ 3);
-		lily.setDensity(TETHER_DENSITY);
-		lily.setFriction(TETHER_FRICTION);
-		lily.setRestitution(TETHER_RESTITUTION);
-		lily.setSensor(sensorTethers);
-		lily.setDrawScale(scale);
-		lily.setTexture(lilyTexture);
-		addObject(lily);
-		tethers.add(lily);
-		
-		lily = new TetherModel(16, 14, dwidth, dheight);
-		lily.setBodyType(BodyDef.BodyType.StaticBody);
-		lily.setName("lily"+ 4);
-		lily.setDensity(TETHER_DENSITY);
-		lily.setFriction(TETHER_FRICTION);
-		lily.setRestitution(TETHER_RESTITUTION);
-		lily.setSensor(sensorTethers);
-		lily.setDrawScale(scale);
-		lily.setTexture(lilyTexture);
-		addObject(lily);
-		tethers.add(lily);
+		for(int ii = 0; ii < level.getWallCount(); ii++) {
+			PolygonObstacle wall = new PolygonObstacle(level.getWall(ii), 0, 0);
+			wall.setBodyType(BodyDef.BodyType.StaticBody);
+			wall.setDensity(BASIC_DENSITY);
+			wall.setFriction(BASIC_FRICTION);
+			wall.setRestitution(BASIC_RESTITUTION);
+			wall.setDrawScale(scale);
+			wall.setTexture(earth);
+			wall.setName("wall"+(ii+1));
+			wall.setImmobile(true);
+			CollisionLayer.setCategory(wall, CollisionLayer.WALL);
+			addInactiveObject(wall);
+			addStreamed(wall, level.getWall(ii));
+			walls.add(wall);
+		}
 
+		for(int ii = 0; ii < level.getTetherCount(); ii++) {
+			TetherModel lily = new TetherModel(level.getTetherX(ii), level.getTetherY(ii), level.getTetherType(ii));
+			lily.setBodyType(BodyDef.BodyType.StaticBody);
+			lily.setName("lily"+(ii+1));
+			lily.setDensity(TETHER_DENSITY);
+			lily.setFriction(TETHER_FRICTION);
+			lily.setRestitution(TETHER_RESTITUTION);
+			lily.setSensor(sensorTethers);
+			lily.setDrawScale(scale);
+			lily.setTexture(lilyTexture);
+			lily.setImmobile(true);
+			addInactiveObject(lily);
+			streamer.add(lily);
+			tethers.add(lily);
+		}
 
 		TextureRegion texture = enemyTexture;
-		dwidth  = texture.getRegionWidth()/scale.x;
-		dheight = texture.getRegionHeight()/scale.y;
-		eFish = new EnemyModel(20, 0, dwidth, dheight);
-		eFish.setDensity(ENEMY_DENSITY);
-		eFish.setFriction(ENEMY_FRICTION);
-		eFish.setRestitution(BASIC_RESTITUTION);
-		eFish.setName("enemy");
-		eFish.setDrawScale(scale);
-		eFish.setTexture(texture);
-		eFish.setAngle((float) (Math.PI/2));
-		eFish.setBodyType(BodyDef.BodyType.StaticBody);
-		eFish.setGoal(0, 0);
-		addObject(eFish);
+		float dwidth  = (texture != null ? texture.getRegionWidth()/scale.x  : ENEMY_SIZE.x);
+		float dheight = (texture != null ? texture.getRegionHeight()/scale.y : ENEMY_SIZE.y);
+		if (texture == null) {
+			texture = createPlaceholder((int)(dwidth*scale.x), (int)(dheight*scale.y));
+		}
+		for(int ii = 0; ii < level.getEnemyCount(); ii++) {
+			EnemyModel eFish = new EnemyModel(level.getEnemyX(ii), level.getEnemyY(ii), dwidth, dheight);
+			eFish.setDensity(ENEMY_DENSITY);
+			eFish.setFriction(ENEMY_FRICTION);
+			eFish.setRestitution(BASIC_RESTITUTION);
+			eFish.setName("enemy"+(ii+1));
+			eFish.setDrawScale(scale);
+			eFish.setTexture(texture);
+			eFish.setAngle((float) (Math.PI/2));
+			eFish.setBodyType(BodyDef.BodyType.KinematicBody);
+			eFish.setGoal(level.getEnemyX(ii), level.getEnemyY(ii));
+			if (level.getWaypointCount(ii) >= 2) {
+				for(int jj = 0; jj < level.getWaypointCount(ii); jj++) {
+					eFish.addWaypoint(level.getWaypointX(ii, jj), level.getWaypointY(ii, jj));
+				}
+				eFish.restartRoute();
+			}
+			addObject(eFish);
+			enemies.add(eFish);
+		}
 
 		// Create the fish avatar
-		dwidth  = koiTexture.getRegionWidth()/scale.x;
-		dheight = koiTexture.getRegionHeight()/scale.y;
-		koi = new PlayerModel(KOI_POS.x, KOI_POS.y, dwidth, dheight);
+		dwidth  = (koiTexture != null ? koiTexture.getRegionWidth()/scale.x  : KOI_SIZE.x);
+		dheight = (koiTexture != null ? koiTexture.getRegionHeight()/scale.y : KOI_SIZE.y);
+		koi = new PlayerModel(level.getKoiX(), level.getKoiY(), dwidth, dheight);
 		koi.setDrawScale(scale);
 		koi.setName("koi");
 		koi.setTexture(koiTexture);
 	  
 		addObject(koi);
 		
+		// Tethers do not move, so we only need to index them once
+		for(TetherModel tether : tethers) {
+			tetherIndex.add(tether, tether.getX(), tether.getY());
+		}
+		tetherIndex.build();
+		closestTether = getClosestTether();
+		
+		// Only the walls and tethers near the koi need bodies
+		streamer.build();
+		updateStreaming();
+	}
+	
+	/**
+	 * Adds a wall to the physics streamer, using its outline as the bounds.
+	 *
+	 * @param wall		The wall to add
+	 * @param outline	The wall outline (x, y pairs, relative to the wall position)
+	 */
+	private void addStreamed(Obstacle wall, float[] outline) {
+		float left = outline[0];
+		float right = left;
+		float bottom = outline[1];
+		float top = bottom;
+		for(int ii = 2; ii < outline.length; ii += 2) {
+			left   = Math.min(left,  outline[ii]);
+			right  = Math.max(right, outline[ii]);
+			bottom = Math.min(bottom,outline[ii+1]);
+			top    = Math.max(top,   outline[ii+1]);
+		}
+		streamer.add(wall, wall.getX()+left, wall.getY()+bottom, wall.getX()+right, wall.getY()+top);
+	}
+	
+	/**
+	 * Activates the walls and tethers near the koi and the view, and deactivates the rest.
+	 *
+	 * Without a canvas (e.g. when running headless), only the koi matters.
+	 */
+	private void updateStreaming() {
+		float left = koi.getX();
+		float right = left;
+		float bottom = koi.getY();
+		float top = bottom;
+		if (canvas != null) {
+			canvas.getViewBounds(viewCache);
+			left   = Math.min(left,  viewCache.x/scale.x);
+			right  = Math.max(right, (viewCache.x+viewCache.width)/scale.x);
+			bottom = Math.min(bottom,viewCache.y/scale.y);
+			top    = Math.max(top,   (viewCache.y+viewCache.height)/scale.y);
+		}
+		streamer.update(world, left, bottom, right, top);
+	}
+	
+	/**
+	 * Sets the compiled level file to play.
+	 *
+	 * The level is loaded on the next reset.  A null file plays the default level.
+	 *
+	 * @param file	The compiled level file
+	 */
+	public void setLevelFile(FileHandle file) {
+		levelFile = file;
+		level = null;
+		initialState.clear();
 	}
 
 	/**
@@ -330,6 +474,13 @@ public class DownstreamController extends WorldController implements ContactList
 //		System.out.println(canvas.camera.viewportWidth);
 //		System.out.println(canvas.camera.viewportHeight);
 		
+		// The world is played backwards, so just keep up with the koi
+		if (isRewinding()) {
+			moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY);
+			updateStreaming();
+			return;
+		}
+		
 		float thrust = koi.getThrust();
 		InputController input = InputController.getInstance();
 		koi.setFX(thrust * input.getHorizontal());
@@ -342,7 +493,7 @@ public class DownstreamController extends WorldController implements ContactList
 		if (input.didTether()) tethered = !tethered;
 //		if (input.space) tethered = true; else tethered = false;
 		
-		TetherModel closestTether = getClosestTether();
+		closestTether = getClosestTether();
 		
 //		if (tethered &&
 		
@@ -355,13 +506,13 @@ public class DownstreamController extends WorldController implements ContactList
 			// else move slowly to fish
 			case 0:
 				if (tethered && 
-					koi.getPosition().sub(koi.getInitialTangentPoint(closestTether.getPosition())).len2() < .01) {
+					koi.getPosition().dst2(koi.getInitialTangentPoint(closestTether.getPosition())) < .01) {
 					koi.applyTetherForce(closestTether);
-					canvas.moveCameraTowards(closestTether.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY);
-					if (camera_zoom) canvas.zoomOut();
+					moveCamera(closestTether.getPosition(), CAMERA_LINEAR_VELOCITY);
+					if (camera_zoom) zoomCamera(true);
 				} else {
-					canvas.moveCameraTowards(koi.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY/2);
-					if (camera_zoom) canvas.zoomIn();
+					moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY/2);
+					if (camera_zoom) zoomCamera(false);
 				}
 				break;
 			// quick catch up
@@ -369,13 +520,13 @@ public class DownstreamController extends WorldController implements ContactList
 			// else move quickly to fish
 			case 1:
 				if (tethered && 
-					koi.getPosition().sub(koi.getInitialTangentPoint(closestTether.getPosition())).len2() < .01) {
+					koi.getPosition().dst2(koi.getInitialTangentPoint(closestTether.getPosition())) < .01) {
 					koi.applyTetherForce(closestTether);
-					canvas.moveCameraTowards(closestTether.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY/2);
-					if (camera_zoom) canvas.zoomOut();
+					moveCamera(closestTether.getPosition(), CAMERA_LINEAR_VELOCITY/2);
+					if (camera_zoom) zoomCamera(true);
 				} else {
-					canvas.moveCameraTowards(koi.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY);
-					if (camera_zoom) canvas.zoomIn();
+					moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY);
+					if (camera_zoom) zoomCamera(false);
 				}
 				break;
 			// laggy catch up with space
@@ -384,23 +535,23 @@ public class DownstreamController extends WorldController implements ContactList
 			// else slowly to fish
 			case 2:
 				if (tethered && 
-					koi.getPosition().sub(koi.getInitialTangentPoint(closestTether.getPosition())).len2() < .01) {
+					koi.getPosition().dst2(koi.getInitialTangentPoint(closestTether.getPosition())) < .01) {
 					koi.applyTetherForce(closestTether);
-					canvas.moveCameraTowards(closestTether.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY/2);
-					if (camera_zoom) canvas.zoomOut();
+					moveCamera(closestTether.getPosition(), CAMERA_LINEAR_VELOCITY/2);
+					if (camera_zoom) zoomCamera(true);
 				} else {
-					if (tethered) canvas.moveCameraTowards(koi.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY);
-					else 			 canvas.moveCameraTowards(koi.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY/2);
-					if (camera_zoom) canvas.zoomIn();
+					if (tethered) moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY);
+					else 			 moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY/2);
+					if (camera_zoom) zoomCamera(false);
 				}
 				break;
 			// follow player
 			case 3:
 				if (tethered && 
-					koi.getPosition().sub(koi.getInitialTangentPoint(closestTether.getPosition())).len2() < .01) {
+					koi.getPosition().dst2(koi.getInitialTangentPoint(closestTether.getPosition())) < .01) {
 					koi.applyTetherForce(closestTether);
 				}
-				canvas.moveCameraTowards(koi.getPosition().cpy().scl(scale), CAMERA_LINEAR_VELOCITY);
+				moveCamera(koi.getPosition(), CAMERA_LINEAR_VELOCITY);
 		}
 		
 		
@@ -417,118 +568,111 @@ public class DownstreamController extends WorldController implements ContactList
 		
 		int motionType = 0;
 		
-		eFish.moveTowardsGoal();
-		eFish.patrol(20, 0, 20, 18);
-		eFish.getGoal();
+		for(int ii = 0; ii < enemies.size(); ii++) {
+			enemies.get(ii).moveTowardsGoal(dt);
+		}
 		
-	    SoundController.getInstance().update();
+		updateStreaming();
 	}
 	
-	private TetherModel getClosestTether() {
-		TetherModel closestTether = tethers.get(0);
-		float closestDistance = tethers.get(0).getPosition().sub(koi.getPosition()).len2();
-		for (TetherModel tether : tethers) {
-			float newDistance = tether.getPosition().sub(koi.getPosition()).len2();
-			if (newDistance < closestDistance) {
-				closestDistance = newDistance;
-				closestTether = tether;
-			}
-		}
-		return closestTether;
+	/**
+	 * Called when the Screen should render itself.
+	 *
+	 * The sounds are updated here, once the frame is drawn.  This is on the GL
+	 * thread, as the simulation thread must not make audio calls.
+	 *
+	 * @param delta Number of seconds since last animation frame
+	 */
+	public void render(float delta) {
+		super.render(delta);
+		SoundController.getInstance().update();
 	}
 	
-	public void draw(float delta) {
-		super.draw(delta);
-		
-		if (enableLeadingLine) {
-			Vector2 farOff = koi.getPosition().cpy();
-			farOff.add(koi.getLinearVelocity().cpy().scl(1000));
-			canvas.drawLeadingLine(koi.getPosition().cpy(), farOff);
-		}
-		if (enableTetherRadius) {
-			Vector2 closestTether = getClosestTether().getPosition().cpy().scl(scale);
-			Vector2 initialTangent = koi.getInitialTangentPoint(getClosestTether().getPosition()).scl(scale);
-			float radius = closestTether.dst(initialTangent);
-			canvas.drawTetherCircle(closestTether, radius);
+	/**
+	 * Moves the camera towards the given physics position.
+	 *
+	 * This method does nothing if there is no canvas (e.g. when running headless).
+	 *
+	 * @param target	The position to move towards, in physics coordinates
+	 * @param velocity	The camera speed, in pixels per step
+	 */
+	private void moveCamera(Vector2 target, float velocity) {
+		if (canvas != null) {
+			canvas.moveCameraTowards(cameraCache.set(target).scl(scale), velocity);
 		}
-		
 	}
 	
-	/// CONTACT LISTENER METHODS
 	/**
-	 * Callback method for the start of a collision
+	 * Zooms the camera out (or in) by a single step.
 	 *
-	 * This method is called when we first get a collision between two objects.  We use 
-	 * this method to test if it is the "right" kind of collision.  In particular, we
-	 * use it to test if we made it to the win door.
+	 * This method does nothing if there is no canvas (e.g. when running headless).
 	 *
-	 * @param contact The two bodies that collided
+	 * @param out	Whether to zoom out instead of in
 	 */
-	public void beginContact(Contact contact) {
-		Body body1 = contact.getFixtureA().getBody();
-		Body body2 = contact.getFixtureB().getBody();
-
-		if( (body1.getUserData() == koi   && body2.getUserData() == goalDoor) ||
-			(body1.getUserData() == goalDoor && body2.getUserData() == koi)) {
-			setComplete(true);
+	private void zoomCamera(boolean out) {
+		if (canvas == null) {
+			return;
+		} else if (out) {
+			canvas.zoomOut();
+		} else {
+			canvas.zoomIn();
 		}
 	}
 	
 	/**
-	 * Callback method for the start of a collision
+	 * Returns the tether closest to the koi.
 	 *
-	 * This method is called when two objects cease to touch.  We do not use it.
-	 */ 
-	public void endContact(Contact contact) {}
-	
-	private Vector2 cache = new Vector2();
+	 * This queries the spatial index, so it is fast even with many tethers.  It
+	 * is called once per physics step; use the closestTether field otherwise.
+	 *
+	 * @return the tether closest to the koi.
+	 */
+	private TetherModel getClosestTether() {
+		return tetherIndex.nearest(koi.getX(), koi.getY());
+	}
 	
-	/** Unused ContactListener method */
-	public void postSolve(Contact contact, ContactImpulse impulse) {}
-
 	/**
-	 * Handles any modifications necessary before collision resolution
+	 * Queues the overlay shapes (lines, circles, arcs) for the frame.
 	 *
-	 * This method is called just before Box2D resolves a collision.  We use this method
-	 * to implement sound on contact, using the algorithms outlined similar to those in
-	 * Ian Parberry's "Introduction to Game Physics with Box2D".  
-	 * 
-	 * However, we cannot use the proper algorithms, because LibGDX does not implement 
-	 * b2GetPointStates from Box2D.  The danger with our approximation is that we may
-	 * get a collision over multiple frames (instead of detecting the first frame), and
-	 * so play a sound repeatedly.  Fortunately, the cooldown hack in SoundController
-	 * prevents this from happening.
+	 * These are the leading line of the koi and the radius of the closest tether.
 	 *
-	 * @param  contact  	The two bodies that collided
-	 * @param  oldManfold  	The collision manifold before contact
+	 * @param overlay	The overlay shapes of the frame
 	 */
-
-	public void preSolve(Contact contact, Manifold oldManifold) {
-		float speed = 0;
-
-		// Use Ian Parberry's method to compute a speed threshold
-		Body body1 = contact.getFixtureA().getBody();
-		Body body2 = contact.getFixtureB().getBody();
-		WorldManifold worldManifold = contact.getWorldManifold();
-		Vector2 wp = worldManifold.getPoints()[0];
-		cache.set(body1.getLinearVelocityFromWorldPoint(wp));
-		cache.sub(body2.getLinearVelocityFromWorldPoint(wp));
-		speed = cache.dot(worldManifold.getNormal());
-		
-		/*
-		// Play a sound if above threshold
-		if (speed > SOUND_THRESHOLD) {
-			String s1 = ((Obstacle)body1.getUserData()).getName();
-			String s2 = ((Obstacle)body2.getUserData()).getName();
-			if (s1.equals("koi") || s1.startsWith("enemy") || s1.startsWith("tether")) {
-				SoundController.getInstance().play(s1, COLLISION_SOUND, false, 0.5f);
-			}
-			if (s2.equals("koi") || s2.startsWith("enemy") || s2.startsWith("tether")) {
-				SoundController.getInstance().play(s2, COLLISION_SOUND, false, 0.5f);
-			}
+	protected void queueOverlay(OverlayBatch overlay) {
+		// Use the interpolated positions, so the shapes stay on the sprites
+		if (enableLeadingLine) {
+			startCache.set(koi.getDrawX(), koi.getDrawY());
+			endCache.set(koi.getLinearVelocity()).scl(1000).add(startCache);
+			startCache.scl(scale);
+			endCache.scl(scale);
+			overlay.line(Color.WHITE, startCache.x, startCache.y, endCache.x, endCache.y);
+		}
+		if (enableTetherRadius && closestTether != null) {
+			Vector2 tetherPos = startCache.set(closestTether.getDrawX(), closestTether.getDrawY());
+			Vector2 initialTangent = endCache.set(koi.getInitialTangentPoint(tetherPos, koi.getDrawX(), koi.getDrawY()));
+			tetherPos.scl(scale);
+			initialTangent.scl(scale);
+			float radius = tetherPos.dst(initialTangent);
+			overlay.circle(Color.WHITE, tetherPos.x, tetherPos.y, radius);
 		}
-		*/
 	}
 	
-	
+	/// CONTACT HANDLERS
+	/**
+	 * Registers the handlers for the collisions that matter to the game.
+	 *
+	 * Contacts are routed by collision category (see CollisionLayer), so a pair
+	 * with no handler costs nothing beyond the callback from Box2D.  Collision
+	 * sounds, if they come back, belong in a preSolve handler for just the pairs
+	 * that should make noise, as the world manifold and velocities are native calls.
+	 */
+	private void registerContacts() {
+		// Reaching the goal completes the level.  The level files have no goal yet, so
+		// this only fires once the loader creates one in CollisionLayer.GOAL.
+		contacts.onBeginContact(CollisionLayer.KOI, CollisionLayer.GOAL, new ContactDispatcher.ContactHandler() {
+			public void handle(Contact contact, Obstacle koi, Obstacle goal) {
+				setComplete(true);
+			}
+		});
+	}
 }
\ No newline at end of file
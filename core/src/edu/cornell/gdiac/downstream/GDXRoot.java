@@ -15,10 +15,12 @@
 
 import com.badlogic.gdx.*;
 import com.badlogic.gdx.assets.*;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.g2d.freetype.*;
 import com.badlogic.gdx.assets.loaders.*;
 import com.badlogic.gdx.assets.loaders.resolvers.*;
+import com.badlogic.gdx.utils.Logger;
 
 import edu.cornell.gdiac.util.*;
 
@@ -42,6 +44,27 @@ public class GDXRoot extends Game implements ScreenListener {
 	private int current;
 	/** List of all WorldControllers */
 	private WorldController[] controllers;
+	/** Whether to run the physics on a separate thread */
+	private boolean threaded;
+	/** The file to record the input to (null for none) */
+	private FileHandle recordFile;
+	/** The file to replay the input from (null to read the devices) */
+	private FileHandle replayFile;
+	
+	/** The file to write the startup trace to (next to the assets) */
+	private static final String TRACE_FILE = "startup.json";
+	/** The startup trace (null once the first gameplay frame is drawn) */
+	private StartupTrace trace;
+	/** The asset manager logger to restore once the trace is done */
+	private Logger assetLogger;
+	/** The span of the loading screen, until the assets are loaded */
+	private int loadingSpan;
+	/** The span of the loading screen, waiting for the player to press play */
+	private int waitingSpan = -1;
+	/** The time the player started waiting */
+	private long waitingStart;
+	/** The nanoseconds the player waited before pressing play */
+	private long waitingTime;
 	
 	/**
 	 * Creates a new game from the configuration settings.
@@ -50,13 +73,57 @@ public class GDXRoot extends Game implements ScreenListener {
 	 * or assign any screen.
 	 */
 	public GDXRoot() {
-		// Start loading with the asset manager
+		this(false);
+	}
+	
+	/**
+	 * Creates a new game from the configuration settings.
+	 *
+	 * This method configures the asset manager, but does not load any assets
+	 * or assign any screen.  If threaded is true, each game world simulates its
+	 * physics on a separate thread (see WorldController.setThreaded).
+	 *
+	 * @param threaded	Whether to run the physics on a separate thread
+	 */
+	public GDXRoot(boolean threaded) {
+		trace = StartupTrace.getInstance();
+		int span = trace.begin("GDXRoot()");
+		this.threaded = threaded;
+		
+		// Start loading with the asset manager (timing each asset for the trace)
 		manager = new AssetManager();
+		assetLogger = manager.getLogger();
+		manager.setLogger(trace.createAssetLogger());
 		
-		// Add font support to the asset manager
+		// Add font support to the asset manager (baked fonts are cached on disk)
 		FileHandleResolver resolver = new InternalFileHandleResolver();
 		manager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
-		manager.setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
+		manager.setLoader(BitmapFont.class, ".ttf", new CachedFontLoader(resolver));
+		trace.end(span);
+	}
+
+	/**
+	 * Sets the file to record the input of every physics step to.
+	 *
+	 * This must be set before the application is created.  A null file does not
+	 * record.  The log is finished when the game exits.
+	 *
+	 * @param file	The input log to write (see InputRecorder)
+	 */
+	public void setRecordFile(FileHandle file) {
+		recordFile = file;
+	}
+
+	/**
+	 * Sets the file to replay the input from, instead of the keyboard and gamepad.
+	 *
+	 * This must be set before the application is created.  A null file reads the 
+	 * devices as usual.
+	 *
+	 * @param file	The input log to replay (see InputRecorder)
+	 */
+	public void setReplayFile(FileHandle file) {
+		replayFile = file;
 	}
 
 	/** 
@@ -66,7 +133,10 @@ public class GDXRoot extends Game implements ScreenListener {
 	 * the asynchronous loader for all other assets.
 	 */
 	public void create() {
+		int span = trace.begin("GDXRoot.create");
+		int step = trace.begin("GameCanvas()");
 		canvas  = new GameCanvas();
+		trace.end(step);
 		loading = new LoadingMode(canvas,manager,1);
 		
 		// Initialize the three game worlds
@@ -77,11 +147,57 @@ public class GDXRoot extends Game implements ScreenListener {
 		controllers = new WorldController[1];
 		controllers[0] = new DownstreamController();
 		for(int ii = 0; ii < controllers.length; ii++) {
+			step = trace.begin(controllers[ii].getClass().getSimpleName()+".preLoadContent");
 			controllers[ii].preLoadContent(manager);
+			trace.end(step);
+			controllers[ii].setThreaded(threaded);
+		}
+		
+		// Record or replay the input, one physics step at a time
+		InputController input = InputController.getInstance();
+		if (replayFile != null) {
+			input.setSource(new InputReplay(replayFile));
+		}
+		if (recordFile != null) {
+			input.setRecorder(new InputRecorder(recordFile, controllers[0].getStepSize()));
 		}
 		current = 0;
 		loading.setScreenListener(this);
 		setScreen(loading);
+		trace.end(span);
+		loadingSpan = trace.begin("LoadingMode");
+	}
+	
+	/**
+	 * Called when the Application should render itself.
+	 *
+	 * The first frame of gameplay ends the startup trace, which is then written
+	 * to a file.  The time spent waiting for the player to press play is traced
+	 * separately, as it is not part of the loading time.
+	 */
+	public void render() {
+		if (trace == null) {
+			super.render();
+			return;
+		} else if (getScreen() == loading) {
+			super.render();
+			if (waitingSpan < 0 && loading != null && manager.getProgress() >= 1) {
+				trace.end(loadingSpan);
+				waitingSpan = trace.begin("LoadingMode (waiting for play)");
+				waitingStart = System.nanoTime();
+			}
+			return;
+		}
+		
+		int span = trace.begin("WorldController.render");
+		super.render();
+		trace.end(span);
+		trace.finish();
+		manager.setLogger(assetLogger);
+		Gdx.app.log("GDXRoot", String.format("First frame after %.1f ms (%.1f ms without waiting for play)", 
+					trace.getTimeToFirstFrame(), trace.getTimeToFirstFrame()-waitingTime/1000000.0f));
+		trace.write(Gdx.files.local(TRACE_FILE));
+		trace = null;
 	}
 
 	/** 
@@ -96,6 +212,13 @@ public class GDXRoot extends Game implements ScreenListener {
 			controllers[ii].unloadContent(manager);
 			controllers[ii].dispose();
 		}
+		
+		// The physics has stopped, so the input log is complete
+		InputController input = InputController.getInstance();
+		if (input.getRecorder() != null) {
+			input.getRecorder().close();
+			input.setRecorder(null);
+		}
 
 		canvas.dispose();
 		canvas = null;
@@ -130,12 +253,22 @@ public class GDXRoot extends Game implements ScreenListener {
 	 */
 	public void exitScreen(Screen screen, int exitCode) {
 		if (screen == loading) {
+			if (waitingSpan < 0) {
+				trace.end(loadingSpan);
+			} else {
+				trace.end(waitingSpan);
+				waitingTime = System.nanoTime()-waitingStart;
+			}
 			for(int ii = 0; ii < controllers.length; ii++) {
+				int span = trace.begin(controllers[ii].getClass().getSimpleName()+".loadContent");
 				controllers[ii].loadContent(manager);
+				trace.end(span);
 				controllers[ii].setScreenListener(this);
 				controllers[ii].setCanvas(canvas);
 			}
+			int span = trace.begin(controllers[current].getClass().getSimpleName()+".reset");
 			controllers[current].reset();
+			trace.end(span);
 			setScreen(controllers[current]);
 			
 			loading.dispose();
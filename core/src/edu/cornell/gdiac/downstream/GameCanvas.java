@@ -24,6 +24,8 @@ import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.*;
 import com.badlogic.gdx.physics.box2d.*;
 
+import edu.cornell.gdiac.util.SpriteSheet;
+
 /**
  * Primary view class for the game, abstracting the basic graphics calls.
  * 
@@ -39,7 +41,9 @@ public class GameCanvas {
 		/** We are drawing sprites */
 		STANDARD,
 		/** We are drawing outlines */
-		DEBUG
+		DEBUG,
+		/** We are recording sprites into a static layer */
+		CACHE
 	}
 	
 	/**
@@ -64,14 +68,14 @@ public class GameCanvas {
 	/** Drawing context to handle textures AND POLYGONS as sprites */
 	private PolygonSpriteBatch spriteBatch;
 	
-	/** Rendering context for the debug outlines */
+	/** Rendering context for the debug outlines (and the overlay shapes) */
 	private ShapeRenderer debugRender;
 	
-	/** Rendering for the fish's leading line */
-	private ShapeRenderer leadingLine;
+	/** The queued overlay shapes, drawn together by drawOverlayShapes() */
+	private OverlayBatch overlayShapes;
 	
-	/** Rendering for tether radius */
-	private ShapeRenderer tetherRadiusLine;
+	/** The static layer being recorded (null if not recording) */
+	private StaticLayer recording;
 	
 	/** Track whether or not we are active (for error checking) */
 	private DrawPass active;
@@ -79,8 +83,10 @@ public class GameCanvas {
 	/** The current color blending mode */
 	private BlendState blend;
 	
-	/** Camera for the underlying SpriteBatch */
+	/** Camera moved by the gameplay code */
 	private OrthographicCamera camera;
+	/** Camera used for drawing (copied from the gameplay camera each frame) */
+	private OrthographicCamera renderCamera;
 	
 	/** Value to cache window width (if we are currently full screen) */
 	int width;
@@ -95,6 +101,18 @@ public class GameCanvas {
 	private Vector2 vertex;
 	/** Cache object to handle raw textures */
 	private TextureRegion holder;
+	/** The floats per vertex of a sprite (x, y, packed color, u, v) */
+	private static final int QUAD_VERTEX_SIZE = 5;
+	/** The floats per sprite (four corners) */
+	private static final int QUAD_SIZE = 4*QUAD_VERTEX_SIZE;
+	/** Cache for the vertices of a sprite sheet frame */
+	private float[] quad;
+	/** Cache object to lay out text */
+	private GlyphLayout layout;
+	/** Screen-space projection for overlays (ignores the camera) */
+	private Matrix4 overlay;
+	/** Cache object for moving the camera */
+	private Vector2 cameraCache;
 
 	/**
 	 * Creates a new GameCanvas determined by the application configuration.
@@ -107,24 +125,27 @@ public class GameCanvas {
 		active = DrawPass.INACTIVE;
 		spriteBatch = new PolygonSpriteBatch();
 		debugRender = new ShapeRenderer();
-		leadingLine = new ShapeRenderer();
-		tetherRadiusLine = new ShapeRenderer();
+		overlayShapes = new OverlayBatch();
 		
 		// Set the projection matrix (for proper scaling)
 		camera = new OrthographicCamera(getWidth(),getWidth());
 		camera.position.set(0,0,0);
 		camera.update();
 		camera.setToOrtho(false);
-		spriteBatch.setProjectionMatrix(camera.combined);
-		debugRender.setProjectionMatrix(camera.combined);
-		leadingLine.setProjectionMatrix(camera.combined);
-		tetherRadiusLine.setProjectionMatrix(camera.combined);
+		renderCamera = new OrthographicCamera();
+		renderCamera.setToOrtho(false);
+		spriteBatch.setProjectionMatrix(renderCamera.combined);
+		debugRender.setProjectionMatrix(renderCamera.combined);
 		
 		// Initialize the cache objects
 		holder = new TextureRegion();
+		quad   = new float[QUAD_SIZE];
 		local  = new Affine2();
 		global = new Matrix4();
 		vertex = new Vector2();
+		layout = new GlyphLayout();
+		overlay = new Matrix4();
+		cameraCache = new Vector2();
 	}
 		
     /**
@@ -136,11 +157,16 @@ public class GameCanvas {
 			return;
 		}
 		spriteBatch.dispose();
+		debugRender.dispose();
     	spriteBatch = null;
+    	debugRender = null;
+    	overlayShapes = null;
     	local  = null;
     	global = null;
     	vertex = null;
     	holder = null;
+    	layout = null;
+    	overlay = null;
     }
 
 	/**
@@ -161,6 +187,8 @@ public class GameCanvas {
 	public void setViewportSize(float width, float height) {
 		camera.viewportWidth = width;
 		camera.viewportHeight = height;
+		renderCamera.viewportWidth = width;
+		renderCamera.viewportHeight = height;
 	}
 	
 	public void zoomOut() {
@@ -172,7 +200,7 @@ public class GameCanvas {
 	}
 	
 	public void moveCameraTowards(Vector2 newPosition, float velocity) {
-		Vector2 difference = newPosition.cpy().sub(new Vector2(camera.position.x, camera.position.y));
+		Vector2 difference = cameraCache.set(newPosition).sub(camera.position.x, camera.position.y);
 		if (difference.len() < velocity) {
 			camera.position.set(newPosition,0);
 		} else {
@@ -185,6 +213,54 @@ public class GameCanvas {
 		camera.position.set(newPosition, 0);
 	}
 	
+	/**
+	 * Returns the part of the world visible to the camera, in screen coordinates.
+	 *
+	 * This accounts for both the camera position and its current zoom.
+	 *
+	 * @param result	The rectangle to store the visible area
+	 *
+	 * @return the part of the world visible to the camera, in screen coordinates.
+	 */
+	public Rectangle getViewBounds(Rectangle result) {
+		float width  = camera.viewportWidth*camera.zoom;
+		float height = camera.viewportHeight*camera.zoom;
+		return result.set(camera.position.x-width/2, camera.position.y-height/2, width, height);
+	}
+	
+	/**
+	 * Sets the position and zoom of the camera used for drawing.
+	 *
+	 * The gameplay code moves the camera with methods like moveCameraTowards().
+	 * Those changes only affect drawing once they are copied over with this
+	 * method.  That way the gameplay may run on another thread while drawing.
+	 *
+	 * @param x		The x-coordinate of the camera center
+	 * @param y		The y-coordinate of the camera center
+	 * @param zoom	The camera zoom
+	 */
+	public void setRenderView(float x, float y, float zoom) {
+		renderCamera.position.set(x, y, 0);
+		renderCamera.zoom = zoom;
+		renderCamera.update();
+	}
+	
+	/**
+	 * Returns the part of the world visible when drawing, in screen coordinates.
+	 *
+	 * This is the same as getViewBounds(), except that it uses the camera set by
+	 * setRenderView().
+	 *
+	 * @param result	The rectangle to store the visible area
+	 *
+	 * @return the part of the world visible when drawing, in screen coordinates.
+	 */
+	public Rectangle getRenderBounds(Rectangle result) {
+		float width  = renderCamera.viewportWidth*renderCamera.zoom;
+		float height = renderCamera.viewportHeight*renderCamera.zoom;
+		return result.set(renderCamera.position.x-width/2, renderCamera.position.y-height/2, width, height);
+	}
+	
 	/**
 	 * Changes the width of this canvas
 	 *
@@ -375,7 +451,7 @@ public class GameCanvas {
 	 */
     public void begin(Affine2 affine) {
 		global.setAsAffine(affine);
-    	global.mulLeft(camera.combined);
+    	global.mulLeft(renderCamera.combined);
 		spriteBatch.setProjectionMatrix(global);
 		
 		setBlendState(BlendState.NO_PREMULT);
@@ -394,7 +470,7 @@ public class GameCanvas {
     public void begin(float sx, float sy) {
 		global.idt();
 		global.scl(sx,sy,1.0f);
-    	global.mulLeft(camera.combined);
+    	global.mulLeft(renderCamera.combined);
 		spriteBatch.setProjectionMatrix(global);
 		
     	spriteBatch.begin();
@@ -407,7 +483,7 @@ public class GameCanvas {
 	 * Nothing is flushed to the graphics card until the method end() is called.
 	 */
     public void begin() {
-		spriteBatch.setProjectionMatrix(camera.combined);
+		spriteBatch.setProjectionMatrix(renderCamera.combined);
     	spriteBatch.begin();
     	active = DrawPass.STANDARD;
     }
@@ -419,6 +495,69 @@ public class GameCanvas {
     	spriteBatch.end();
     	active = DrawPass.INACTIVE;
     }
+    
+	/**
+	 * Starts recording a static layer.
+	 *
+	 * Until endCache() is called, the draw methods for rotated regions and polygons
+	 * (the ones used by obstacles) record into the layer instead of drawing.  The
+	 * other draw methods are not supported while recording.
+	 *
+	 * @param layer	The layer to record
+	 */
+	public void beginCache(StaticLayer layer) {
+		if (active != DrawPass.INACTIVE) {
+			Gdx.app.error("GameCanvas", "Cannot record while drawing active", new IllegalStateException());
+			return;
+		}
+		recording = layer;
+		recording.begin();
+		active = DrawPass.CACHE;
+	}
+	
+	/**
+	 * Finishes recording a static layer, uploading it to the graphics card.
+	 */
+	public void endCache() {
+		if (active != DrawPass.CACHE) {
+			Gdx.app.error("GameCanvas", "Cannot end without active beginCache()", new IllegalStateException());
+			return;
+		}
+		recording.end();
+		recording = null;
+		active = DrawPass.INACTIVE;
+	}
+	
+	/**
+	 * Draws a static layer with the camera transform.
+	 *
+	 * The layer is blended like the sprites.  It cannot be drawn while another 
+	 * drawing pass is active.
+	 *
+	 * @param layer	The layer to draw
+	 */
+	public void drawCache(StaticLayer layer) {
+		if (active != DrawPass.INACTIVE) {
+			Gdx.app.error("GameCanvas", "Cannot draw layer while drawing active", new IllegalStateException());
+			return;
+		}
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(spriteBatch.getBlendSrcFunc(), spriteBatch.getBlendDstFunc());
+		layer.draw(renderCamera.combined);
+	}
+    
+	/**
+	 * Start an overlay drawing sequence.
+	 *
+	 * An overlay is drawn in screen coordinates, with the origin in the bottom left
+	 * corner.  It ignores the camera position and zoom.  End the sequence with end().
+	 */
+    public void beginOverlay() {
+    	overlay.setToOrtho2D(0, 0, getWidth(), getHeight());
+		spriteBatch.setProjectionMatrix(overlay);
+    	spriteBatch.begin();
+    	active = DrawPass.STANDARD;
+    }
 
 	/**
 	 * Draws the tinted texture at the given position.
@@ -474,6 +613,36 @@ public class GameCanvas {
 		spriteBatch.draw(image, x,  y, width, height);
 	}
 	
+	/**
+	 * Draws the tinted texture with the given texture coordinates.
+	 *
+	 * The texture colors will be multiplied by the given color.  The texture
+	 * coordinates may lie outside of 0..1, in which case the texture wrap mode
+	 * decides what is drawn.  With a repeating texture, this draws any number of
+	 * tiles as a single quad.
+	 *
+	 * @param image The texture to draw
+	 * @param tint  The color tint
+	 * @param x 	The x-coordinate of the bottom left corner
+	 * @param y 	The y-coordinate of the bottom left corner
+	 * @param width	The quad width
+	 * @param height The quad height
+	 * @param u		The texture x-coordinate of the bottom left corner
+	 * @param v		The texture y-coordinate of the bottom left corner
+	 * @param u2	The texture x-coordinate of the top right corner
+	 * @param v2	The texture y-coordinate of the top right corner
+	 */
+	public void draw(Texture image, Color tint, float x, float y, float width, float height,
+					 float u, float v, float u2, float v2) {
+		if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+		
+    	spriteBatch.setColor(tint);
+		spriteBatch.draw(image, x, y, width, height, u, v, u2, v2);
+	}
+	
 	/**
 	 * Draws the tinted texture at the given position.
 	 *
@@ -685,7 +854,11 @@ public class GameCanvas {
 	 */	
 	public void draw(TextureRegion region, Color tint, float ox, float oy, 
 					 float x, float y, float angle, float sx, float sy) {
-		if (active != DrawPass.STANDARD) {
+		if (active == DrawPass.CACHE) {
+			computeTransform(ox,oy,x,y,angle,sx,sy);
+			recording.add(region, tint, local);
+			return;
+		} else if (active != DrawPass.STANDARD) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
@@ -698,6 +871,76 @@ public class GameCanvas {
 		spriteBatch.draw(region, region.getRegionWidth(), region.getRegionHeight(), local);
 	}
 
+	/**
+	 * Draws the tinted frame of a sprite sheet with the given transformations
+	 *
+	 * The texture coordinates come straight from the sheet, so nothing shared is
+	 * modified.  Any number of objects may draw the same sheet at different frames.
+	 *
+	 * The texture colors will be multiplied by the given color.  This will turn
+	 * any white into the given color.  Other colors will be similarly affected.
+	 *
+	 * The local transformations in this method are applied in the following order: 
+	 * scaling, then rotation, then translation (e.g. placement at (sx,sy)).
+	 *
+	 * @param sheet The sprite sheet to draw
+	 * @param frame The frame of the sheet to draw
+	 * @param tint  The color tint
+	 * @param ox 	The x-coordinate of texture origin (in pixels)
+	 * @param oy 	The y-coordinate of texture origin (in pixels)
+	 * @param x 	The x-coordinate of the texture origin (on screen)
+	 * @param y 	The y-coordinate of the texture origin (on screen)
+	 * @param angle The rotation angle (in radians) about the origin.
+	 * @param sx 	The x-axis scaling factor
+	 * @param sy 	The y-axis scaling factor
+	 */	
+	public void draw(SpriteSheet sheet, int frame, Color tint, float ox, float oy, 
+					 float x, float y, float angle, float sx, float sy) {
+		if (active == DrawPass.CACHE) {
+			computeTransform(ox,oy,x,y,angle,sx,sy);
+			recording.add(sheet.getRegion(frame, holder), tint, local);
+			return;
+		} else if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+
+		computeTransform(ox,oy,x,y,angle,sx,sy);
+		float w = sheet.getFrameWidth();
+		float h = sheet.getFrameHeight();
+		float color = tint.toFloatBits();
+		float u  = sheet.getU(frame);
+		float v  = sheet.getV(frame);
+		float u2 = sheet.getU2(frame);
+		float v2 = sheet.getV2(frame);
+		
+		// Same corner order as the batch (texture v runs downwards)
+		setCorner(0, 0, 0, color, u,  v2);
+		setCorner(1, 0, h, color, u,  v);
+		setCorner(2, w, h, color, u2, v);
+		setCorner(3, w, 0, color, u2, v2);
+		spriteBatch.draw(sheet.getTexture(), quad, 0, QUAD_SIZE);
+	}
+	
+	/**
+	 * Transforms a corner of a sprite sheet frame into the quad cache.
+	 *
+	 * @param corner	The corner index (0 to 3)
+	 * @param x			The x-coordinate of the corner (in pixels)
+	 * @param y			The y-coordinate of the corner (in pixels)
+	 * @param color		The packed vertex color
+	 * @param u			The u texture coordinate
+	 * @param v			The v texture coordinate
+	 */
+	private void setCorner(int corner, float x, float y, float color, float u, float v) {
+		int pos = corner*QUAD_VERTEX_SIZE;
+		quad[pos  ] = local.m00*x + local.m01*y + local.m02;
+		quad[pos+1] = local.m10*x + local.m11*y + local.m12;
+		quad[pos+2] = color;
+		quad[pos+3] = u;
+		quad[pos+4] = v;
+	}
+
 	/**
 	 * Draws the tinted texture with the given transformations
 	 *
@@ -859,12 +1102,15 @@ public class GameCanvas {
 	 */	
 	public void draw(PolygonRegion region, Color tint, float ox, float oy, 
 					 float x, float y, float angle, float sx, float sy) {
-		if (active != DrawPass.STANDARD) {
+		TextureRegion bounds = region.getRegion();
+		if (active == DrawPass.CACHE) {
+			recording.add(region, tint, x, y, ox, oy, sx, sy, 180.0f*angle/(float)Math.PI);
+			return;
+		} else if (active != DrawPass.STANDARD) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
-		TextureRegion bounds = region.getRegion();
 		spriteBatch.setColor(tint);
 		spriteBatch.draw(region, x, y, ox, oy, 
 						 bounds.getRegionWidth(), bounds.getRegionHeight(), 
@@ -931,12 +1177,12 @@ public class GameCanvas {
      * @param x The x-coordinate of the lower-left corner
      * @param y The y-coordinate of the lower-left corner
      */
-    public void drawText(String text, BitmapFont font, float x, float y) {
+    public void drawText(CharSequence text, BitmapFont font, float x, float y) {
 		if (active != DrawPass.STANDARD) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
-		GlyphLayout layout = new GlyphLayout(font,text);
+		layout.setText(font,text);
 		font.draw(spriteBatch, layout, x, y);
     }
 
@@ -953,7 +1199,7 @@ public class GameCanvas {
 			return;
 		}
 		
-		GlyphLayout layout = new GlyphLayout(font,text);
+		layout.setText(font,text);
 		float x = (getWidth()  - layout.width) / 2.0f;
 		float y = (getHeight() + layout.height) / 2.0f;
 		font.draw(spriteBatch, layout, x, y+offset);
@@ -968,7 +1214,7 @@ public class GameCanvas {
 	 */
     public void beginDebug(Affine2 affine) {
 		global.setAsAffine(affine);
-    	global.mulLeft(camera.combined);
+    	global.mulLeft(renderCamera.combined);
     	debugRender.setProjectionMatrix(global);
 		
     	debugRender.begin(ShapeRenderer.ShapeType.Line);
@@ -986,7 +1232,7 @@ public class GameCanvas {
     public void beginDebug(float sx, float sy) {
 		global.idt();
 		global.scl(sx,sy,1.0f);
-    	global.mulLeft(camera.combined);
+    	global.mulLeft(renderCamera.combined);
     	debugRender.setProjectionMatrix(global);
 		
     	debugRender.begin(ShapeRenderer.ShapeType.Line);
@@ -999,7 +1245,7 @@ public class GameCanvas {
 	 * Nothing is flushed to the graphics card until the method end() is called.
 	 */
     public void beginDebug() {
-    	debugRender.setProjectionMatrix(camera.combined);
+    	debugRender.setProjectionMatrix(renderCamera.combined);
     	debugRender.begin(ShapeRenderer.ShapeType.Filled);
     	debugRender.setColor(Color.RED);
     	debugRender.circle(0, 0, 10);
@@ -1127,7 +1373,27 @@ public class GameCanvas {
 		local.applyTo(vertex);
 		x1 = vertex.x; y1 = vertex.y;
 		debugRender.line(x0, y0, x1, y1);
-		System.out.println("" + x0 + " " + y0 + " " + x1 + " " + y1);
+    }
+    
+    /**
+     * Draws a closed outline in the specified color
+     *
+     * The vertices are x, y pairs, already in screen coordinates.  Unlike the 
+     * drawPhysics methods, this does not read anything from Box2d.
+     *
+     * @param vertices	The outline vertices
+     * @param offset	The index of the first vertex coordinate
+     * @param count		The number of vertex coordinates (twice the number of points)
+     * @param color 	The outline color
+     */
+    public void drawOutline(float[] vertices, int offset, int count, Color color) {
+		if (active != DrawPass.DEBUG) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active beginDebug()", new IllegalStateException());
+			return;
+		}
+		
+    	debugRender.setColor(color);
+    	debugRender.polygon(vertices, offset, count);
     }
     
     /** 
@@ -1196,25 +1462,89 @@ public class GameCanvas {
 		local.translate(-ox,-oy);
 	}
 	
-	public void drawLeadingLine(Vector2 start, Vector2 end) {
-		Gdx.gl.glLineWidth(1);
-        leadingLine.setProjectionMatrix(camera.combined);
-        leadingLine.begin(ShapeRenderer.ShapeType.Line);
-        leadingLine.setColor(Color.WHITE);
-        local.applyTo(start);
-        local.applyTo(end);
-        leadingLine.line(start, end);
-        leadingLine.end();
-        Gdx.gl.glLineWidth(1);
-    }
+	/**
+	 * Queues a line for the overlay pass.
+	 *
+	 * The line is drawn with the camera transform by the next call to 
+	 * drawOverlayShapes(), so this may be called at any time on the
+	 * GL thread.
+	 *
+	 * @param color	The line color
+	 * @param x1	The x-coordinate of the start
+	 * @param y1	The y-coordinate of the start
+	 * @param x2	The x-coordinate of the end
+	 * @param y2	The y-coordinate of the end
+	 */
+	public void queueLine(Color color, float x1, float y1, float x2, float y2) {
+		overlayShapes.line(color, x1, y1, x2, y2);
+	}
 	
-	public void drawTetherCircle(Vector2 tetherPos, float radius) {
-		tetherRadiusLine.setProjectionMatrix(camera.combined);
-		tetherRadiusLine.begin(ShapeRenderer.ShapeType.Line);
-		tetherRadiusLine.setColor(Color.WHITE);
-//		System.out.println(tetherPos);
-//		System.out.println(radius);
-		tetherRadiusLine.circle(tetherPos.x, tetherPos.y, radius);
-		tetherRadiusLine.end();
+	/**
+	 * Queues a circle outline for the overlay pass.
+	 *
+	 * The circle is drawn with the camera transform by the next call to 
+	 * drawOverlayShapes(), so this may be called at any time on the
+	 * GL thread.
+	 *
+	 * @param color		The outline color
+	 * @param x			The x-coordinate of the center
+	 * @param y			The y-coordinate of the center
+	 * @param radius	The circle radius
+	 */
+	public void queueCircle(Color color, float x, float y, float radius) {
+		overlayShapes.circle(color, x, y, radius);
+	}
+	
+	/**
+	 * Queues an arc outline for the overlay pass.
+	 *
+	 * The arc runs counter-clockwise from the start angle.  It is drawn with the
+	 * camera transform by the next call to drawOverlayShapes(), so this may be 
+	 * called at any time on the GL thread.
+	 *
+	 * @param color		The outline color
+	 * @param x			The x-coordinate of the center
+	 * @param y			The y-coordinate of the center
+	 * @param radius	The arc radius
+	 * @param start		The start angle in radians
+	 * @param sweep		The angle covered by the arc in radians
+	 */
+	public void queueArc(Color color, float x, float y, float radius, float start, float sweep) {
+		overlayShapes.arc(color, x, y, radius, start, sweep);
+	}
+	
+	/**
+	 * Draws all queued overlay shapes in a single pass, and empties the queue.
+	 *
+	 * This should be called once per frame, after the sprites.  It cannot be 
+	 * called while another drawing pass is active.
+	 */
+	public void drawOverlayShapes() {
+		if (active != DrawPass.INACTIVE) {
+			Gdx.app.error("GameCanvas", "Cannot draw overlay while drawing active", new IllegalStateException());
+			return;
+		}
+		overlayShapes.flush(debugRender, renderCamera.combined);
+	}
+	
+	/**
+	 * Draws the shapes queued in the given batch in a single pass, and empties it.
+	 *
+	 * The shapes queued on this canvas are added to the batch first, so they are
+	 * drawn in the same pass (and the canvas queue is emptied too).  Use this
+	 * instead of drawOverlayShapes(), not as well as it, so that the frame only
+	 * has one overlay pass.  This cannot be called while another drawing pass is
+	 * active.
+	 *
+	 * @param batch	The queued overlay shapes
+	 */
+	public void drawOverlayShapes(OverlayBatch batch) {
+		if (active != DrawPass.INACTIVE) {
+			Gdx.app.error("GameCanvas", "Cannot draw overlay while drawing active", new IllegalStateException());
+			return;
+		}
+		batch.addAll(overlayShapes);
+		overlayShapes.clear();
+		batch.flush(debugRender, renderCamera.combined);
 	}
 }
\ No newline at end of file
@@ -24,6 +24,10 @@ import edu.cornell.gdiac.util.*;
  * This supports both a keyboard and X-Box controller. In previous solutions, we only 
  * detected the X-Box controller on start-up.  This class allows us to hot-swap in
  * a controller via the new XBox360Controller class.
+ *
+ * The devices are polled once per animation frame on the GL thread, and each
+ * physics step reads a copy of that state.  This way the steps can run on the
+ * simulation thread without touching the devices.
  */
 public class InputController {
 	// Sensitivity for moving crosshair with gameplay
@@ -34,6 +38,38 @@ public class InputController {
 	/** The singleton instance of the input controller */
 	private static InputController theController = null;
 	
+	// Bit flags to pack the button state (for input sources other than devices)
+	/** Bit flag for the reset button */
+	public static final int BUTTON_RESET    = 1 << 0;
+	/** Bit flag for the debug toggle */
+	public static final int BUTTON_DEBUG    = 1 << 1;
+	/** Bit flag for the primary action button */
+	public static final int BUTTON_PRIMARY  = 1 << 2;
+	/** Bit flag for the secondary action button */
+	public static final int BUTTON_SECONDARY = 1 << 3;
+	/** Bit flag for the tertiary action button */
+	public static final int BUTTON_TERTIARY = 1 << 4;
+	/** Bit flag for the button to step back worlds */
+	public static final int BUTTON_PREV     = 1 << 5;
+	/** Bit flag for the button to advance worlds */
+	public static final int BUTTON_NEXT     = 1 << 6;
+	/** Bit flag for the exit button */
+	public static final int BUTTON_EXIT     = 1 << 7;
+	/** Bit flag for the tether toggle */
+	public static final int BUTTON_TETHER   = 1 << 8;
+	/** Bit flag for the space bar (held) */
+	public static final int BUTTON_SPACE    = 1 << 9;
+	/** Bit flag for the slow down button (held) */
+	public static final int BUTTON_SLOW     = 1 << 10;
+	/** Bit flag for the accelerate button (held) */
+	public static final int BUTTON_ACCEL    = 1 << 11;
+	/** Bit flag for the decelerate button (held) */
+	public static final int BUTTON_DECCEL   = 1 << 12;
+	/** Bit flag for the timing overlay toggle */
+	public static final int BUTTON_TIMING   = 1 << 13;
+	/** Bit flag for the rewind button (held) */
+	public static final int BUTTON_REWIND   = 1 << 14;
+	
 	/** 
 	 * Return the singleton instance of the input controller
 	 *
@@ -67,12 +103,17 @@ public class InputController {
 	/** Whether the debug toggle was pressed. */
 	private boolean debugPressed;
 	private boolean debugPrevious;
+	/** Whether the timing overlay toggle was pressed. */
+	private boolean timingPressed;
+	private boolean timingPrevious;
 	/** Whether the exit button was pressed. */
 	private boolean exitPressed;
 	private boolean exitPrevious;
 	
 	private boolean tetherPressed;
 	private boolean tetherPrevious;
+	/** Whether the rewind button is held down. */
+	private boolean rewindPressed;
 	
 	/** How much did we move horizontally? */
 	private float horizontal;
@@ -90,8 +131,26 @@ public class InputController {
 	public boolean space;
 	public boolean slow;
 	
+	// Fields to manage the devices (owned by the GL thread)
+	/** The buttons held down at the last poll of the devices */
+	private int polledButtons;
+	/** The buttons held down at any poll since the last physics step */
+	private int latchedButtons;
+	/** The sideways movement at the last poll of the devices */
+	private float polledHorizontal;
+	/** The vertical movement at the last poll of the devices */
+	private float polledVertical;
+	/** The crosshair position at the last poll of the devices */
+	private Vector2 polledCrosshair;
+	/** The crosshair movement cache (for polling the gamepad) */
+	private Vector2 pollCache;
+	
 	/** An X-Box controller (if it is connected) */
 	XBox360Controller xbox;
+	/** An alternate source of input that replaces the devices (null for none) */
+	private InputSource source;
+	/** The log to write the input of every step to (null for none) */
+	private InputRecorder recorder;
 	
 	/**
 	 * Returns the amount of sideways movement. 
@@ -202,6 +261,15 @@ public class InputController {
 		return debugPressed && !debugPrevious;
 	}
 	
+	/**
+	 * Returns true if the player wants to toggle the frame timing overlay.
+	 *
+	 * @return true if the player wants to toggle the frame timing overlay.
+	 */
+	public boolean didTiming() {
+		return timingPressed && !timingPrevious;
+	}
+	
 	/**
 	 * Returns true if the exit button was pressed.
 	 *
@@ -220,6 +288,119 @@ public class InputController {
 		return tetherPressed && !tetherPrevious;
 	}
 	
+	/**
+	 * Returns true if the rewind button is held down.
+	 *
+	 * Unlike the other buttons, this is true for as long as the button is held.
+	 *
+	 * @return true if the rewind button is held down.
+	 */
+	public boolean isRewinding() {
+		return rewindPressed;
+	}
+	
+	/**
+	 * Returns the alternate source of input, or null if reading the devices.
+	 *
+	 * @return the alternate source of input, or null if reading the devices.
+	 */
+	public InputSource getSource() {
+		return source;
+	}
+	
+	/**
+	 * Sets an alternate source of input to replace the devices.
+	 *
+	 * When a source is set, the keyboard and gamepad are ignored.  Instead, the
+	 * source is asked for the input state every time input is read.  This is how
+	 * we script input for runs without a window.  A value of null goes back to
+	 * reading the devices.
+	 *
+	 * @param value the alternate source of input (null for the devices)
+	 */
+	public void setSource(InputSource value) {
+		source = value;
+	}
+	
+	/**
+	 * Returns the recorder of the input, or null if not recording.
+	 *
+	 * @return the recorder of the input, or null if not recording.
+	 */
+	public InputRecorder getRecorder() {
+		return recorder;
+	}
+	
+	/**
+	 * Sets the recorder of the input.
+	 *
+	 * Every time input is read (once per physics step), the new state is passed to
+	 * the recorder, whether it came from the devices or a source.  A value of null
+	 * stops recording, but does not close the recorder.
+	 *
+	 * @param value the recorder of the input (null for none)
+	 */
+	public void setRecorder(InputRecorder value) {
+		recorder = value;
+	}
+	
+	/**
+	 * Returns the pressed buttons as a bit mask of the BUTTON constants.
+	 *
+	 * This is the inverse of setState(), so that the state can be recorded.
+	 *
+	 * @return the pressed buttons as a bit mask of the BUTTON constants.
+	 */
+	public int getButtons() {
+		int buttons = 0;
+		buttons |= (resetPressed  ? BUTTON_RESET : 0);
+		buttons |= (debugPressed  ? BUTTON_DEBUG : 0);
+		buttons |= (timingPressed ? BUTTON_TIMING : 0);
+		buttons |= (primePressed  ? BUTTON_PRIMARY : 0);
+		buttons |= (secondPressed ? BUTTON_SECONDARY : 0);
+		buttons |= (tertiaryPressed ? BUTTON_TERTIARY : 0);
+		buttons |= (prevPressed   ? BUTTON_PREV : 0);
+		buttons |= (nextPressed   ? BUTTON_NEXT : 0);
+		buttons |= (exitPressed   ? BUTTON_EXIT : 0);
+		buttons |= (tetherPressed ? BUTTON_TETHER : 0);
+		buttons |= (rewindPressed ? BUTTON_REWIND : 0);
+		buttons |= (space  ? BUTTON_SPACE : 0);
+		buttons |= (slow   ? BUTTON_SLOW : 0);
+		buttons |= (accel  ? BUTTON_ACCEL : 0);
+		buttons |= (deccel ? BUTTON_DECCEL : 0);
+		return buttons;
+	}
+	
+	/**
+	 * Sets the input state directly, bypassing the devices.
+	 *
+	 * This method is for use by an InputSource.  The buttons are packed as a bit
+	 * mask of the BUTTON constants in this class.  The crosshair is unaffected.
+	 *
+	 * @param horizontal The amount of sideways movement (-1 to 1)
+	 * @param vertical   The amount of vertical movement (-1 to 1)
+	 * @param buttons    The bit mask of the pressed buttons
+	 */
+	public void setState(float horizontal, float vertical, int buttons) {
+		this.horizontal = horizontal;
+		this.vertical = vertical;
+		resetPressed  = (buttons & BUTTON_RESET) != 0;
+		debugPressed  = (buttons & BUTTON_DEBUG) != 0;
+		timingPressed = (buttons & BUTTON_TIMING) != 0;
+		primePressed  = (buttons & BUTTON_PRIMARY) != 0;
+		secondPressed = (buttons & BUTTON_SECONDARY) != 0;
+		tertiaryPressed = (buttons & BUTTON_TERTIARY) != 0;
+		prevPressed   = (buttons & BUTTON_PREV) != 0;
+		nextPressed   = (buttons & BUTTON_NEXT) != 0;
+		exitPressed   = (buttons & BUTTON_EXIT) != 0;
+		tetherPressed = (buttons & BUTTON_TETHER) != 0;
+		rewindPressed = (buttons & BUTTON_REWIND) != 0;
+		space  = (buttons & BUTTON_SPACE) != 0;
+		slow   = (buttons & BUTTON_SLOW) != 0;
+		accel  = (buttons & BUTTON_ACCEL) != 0;
+		deccel = (buttons & BUTTON_DECCEL) != 0;
+	}
+
 	/**
 	 * Creates a new input controller
 	 * 
@@ -231,10 +412,18 @@ public class InputController {
 		xbox = new XBox360Controller(0);
 		crosshair = new Vector2();
 		crosscache = new Vector2();
+		polledCrosshair = new Vector2();
+		pollCache = new Vector2();
 	}
 
 	/**
-	 * Reads the input for the player and converts the result into game logic.
+	 * Polls the keyboard and gamepad, and stores the result for the next physics step.
+	 *
+	 * The devices are updated by the event loop of the GL thread, so they must only
+	 * be polled from there (once per animation frame).  The physics steps read the
+	 * stored copy instead, with readInput().  A button is passed to the next step
+	 * even if it is released before that step runs, so that a press is not lost
+	 * when an animation frame takes no physics steps.
 	 *
 	 * The method provides both the input bounds and the drawing scale.  It needs
 	 * the drawing scale to convert screen coordinates to world coordinates.  The
@@ -243,24 +432,49 @@ public class InputController {
 	 * @param bounds The input bounds for the crosshair.  
 	 * @param scale  The drawing scale
 	 */
-	public void readInput(Rectangle bounds, Vector2 scale) {
+	public void pollDevices(Rectangle bounds, Vector2 scale) {
+		if (source != null) {
+			return;
+		} else if (xbox.isConnected()) {
+			readGamepad(bounds, scale);
+			readKeyboard(bounds, scale, true); // Read as a back-up
+		} else {
+			readKeyboard(bounds, scale, false);
+		}
+		latchedButtons |= polledButtons;
+	}
+
+	/**
+	 * Reads the input for the next physics step and converts the result into game logic.
+	 *
+	 * This does not poll the devices, as it may run on the simulation thread.  It
+	 * takes the state stored by the last call to pollDevices(), unless an alternate
+	 * source is attached.
+	 */
+	public void readInput() {
 		// Copy state from last animation frame
 		// Helps us ignore buttons that are held down
 		primePrevious  = primePressed;
 		secondPrevious = secondPressed;
 		resetPrevious  = resetPressed;
 		debugPrevious  = debugPressed;
+		timingPrevious = timingPressed;
 		exitPrevious = exitPressed;
 		nextPrevious = nextPressed;
 		prevPrevious = prevPressed;
 		tetherPrevious = tetherPressed;
 		
-		// Check to see if a GamePad is connected
-		if (xbox.isConnected()) {
-			readGamepad(bounds, scale);
-			readKeyboard(bounds, scale, true); // Read as a back-up
+		// Scripted input takes the place of the devices
+		if (source != null) {
+			source.readInput(this);
 		} else {
-			readKeyboard(bounds, scale, false);
+			setState(polledHorizontal, polledVertical, polledButtons | latchedButtons);
+			crosshair.set(polledCrosshair);
+			latchedButtons = 0;
+		}
+		
+		if (recorder != null) {
+			recorder.record(horizontal, vertical, getButtons());
 		}
 	}
 
@@ -275,31 +489,35 @@ public class InputController {
 	 * @param scale  The drawing scale
 	 */
 	private void readGamepad(Rectangle bounds, Vector2 scale) {
-		resetPressed = xbox.getStart();
-		exitPressed  = xbox.getBack();
-		nextPressed  = xbox.getRB();
-		prevPressed  = xbox.getLB();
-		primePressed = xbox.getA();
-		debugPressed  = xbox.getY();
+		int buttons = 0;
+		buttons |= (xbox.getStart() ? BUTTON_RESET : 0);
+		buttons |= (xbox.getBack()  ? BUTTON_EXIT : 0);
+		buttons |= (xbox.getRB()    ? BUTTON_NEXT : 0);
+		buttons |= (xbox.getLB()    ? BUTTON_PREV : 0);
+		buttons |= (xbox.getA()     ? BUTTON_PRIMARY : 0);
+		buttons |= (xbox.getY()     ? BUTTON_DEBUG : 0);
+		buttons |= (xbox.getX()     ? BUTTON_REWIND : 0);
+		// The timing overlay is keyboard only
 
 		// Increase animation frame, but only if trying to move
-		horizontal = xbox.getLeftX();
-		vertical   = xbox.getLeftY();
-		secondPressed = xbox.getRightTrigger() > 0.6f;
+		polledHorizontal = xbox.getLeftX();
+		polledVertical   = xbox.getLeftY();
+		buttons |= (xbox.getRightTrigger() > 0.6f ? BUTTON_SECONDARY : 0);
 		
 		// Move the crosshairs with the right stick.
-		tertiaryPressed = xbox.getA();
-		crosscache.set(xbox.getLeftX(), xbox.getLeftY());
-		if (crosscache.len2() > GP_THRESHOLD) {
+		buttons |= (xbox.getA() ? BUTTON_TERTIARY : 0);
+		pollCache.set(xbox.getLeftX(), xbox.getLeftY());
+		if (pollCache.len2() > GP_THRESHOLD) {
 			momentum += GP_ACCELERATE;
 			momentum = Math.min(momentum, GP_MAX_SPEED);
-			crosscache.scl(momentum);
-			crosscache.scl(1/scale.x,1/scale.y);
-			crosshair.add(crosscache);
+			pollCache.scl(momentum);
+			pollCache.scl(1/scale.x,1/scale.y);
+			polledCrosshair.add(pollCache);
 		} else {
 			momentum = 0;
 		}
 		clampPosition(bounds);
+		polledButtons = buttons;
 	}
 
 	/**
@@ -313,61 +531,47 @@ public class InputController {
 	 */
 	private void readKeyboard(Rectangle bounds, Vector2 scale, boolean secondary) {
 		// Give priority to gamepad results
-		resetPressed = (secondary && resetPressed) || (Gdx.input.isKeyPressed(Input.Keys.R));
-		debugPressed = (secondary && debugPressed) || (Gdx.input.isKeyPressed(Input.Keys.D));
-		primePressed = (secondary && primePressed) || (Gdx.input.isKeyPressed(Input.Keys.UP));
-		secondPressed = (secondary && secondPressed) || (Gdx.input.isKeyPressed(Input.Keys.SPACE));
-		prevPressed = (secondary && prevPressed) || (Gdx.input.isKeyPressed(Input.Keys.P));
-		nextPressed = (secondary && nextPressed) || (Gdx.input.isKeyPressed(Input.Keys.N));
-		exitPressed  = (secondary && exitPressed) || (Gdx.input.isKeyPressed(Input.Keys.ESCAPE));
-		tetherPressed  = (secondary && tetherPressed) || (Gdx.input.isKeyPressed(Input.Keys.SPACE));
+		int buttons = (secondary ? polledButtons & ~BUTTON_TERTIARY : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.R) ? BUTTON_RESET : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.D) ? BUTTON_DEBUG : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.T) ? BUTTON_TIMING : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.UP) ? BUTTON_PRIMARY : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.SPACE) ? BUTTON_SECONDARY : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.P) ? BUTTON_PREV : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.N) ? BUTTON_NEXT : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.ESCAPE) ? BUTTON_EXIT : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.SPACE) ? BUTTON_TETHER : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.BACKSPACE) ? BUTTON_REWIND : 0);
 		
 		// Directional controls
-		horizontal = (secondary ? horizontal : 0.0f);
+		polledHorizontal = (secondary ? polledHorizontal : 0.0f);
 		if (Gdx.input.isKeyPressed(Input.Keys.RIGHT)) {
-			horizontal += 1.0f;
+			polledHorizontal += 1.0f;
 		}
 		if (Gdx.input.isKeyPressed(Input.Keys.LEFT)) {
-			horizontal -= 1.0f;
+			polledHorizontal -= 1.0f;
 		}
 		
-		vertical = (secondary ? vertical : 0.0f);
+		polledVertical = (secondary ? polledVertical : 0.0f);
 		if (Gdx.input.isKeyPressed(Input.Keys.UP)) {
-			vertical += 1.0f;
+			polledVertical += 1.0f;
 		}
 		if (Gdx.input.isKeyPressed(Input.Keys.DOWN)) {
-			vertical -= 1.0f;
-		}
-		
-		if (Gdx.input.isKeyPressed(Input.Keys.SPACE)) {
-			space = true;
-		} else {
-			space = false;
-		}
-		if (Gdx.input.isKeyPressed(Input.Keys.S)) {
-			slow = true;
-		} else {
-			slow = false;
+			polledVertical -= 1.0f;
 		}
 		
-		if (Gdx.input.isKeyPressed(Input.Keys.ALT_RIGHT)) {
-			deccel = true;
-		} else {
-			deccel = false;
-		}
-		
-		if (Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT)) {
-			accel = true;
-		} else {
-			accel = false;
-		}
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.SPACE) ? BUTTON_SPACE : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.S) ? BUTTON_SLOW : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.ALT_RIGHT) ? BUTTON_DECCEL : 0);
+		buttons |= (Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT) ? BUTTON_ACCEL : 0);
 		
 		// Mouse results
-        tertiaryPressed = Gdx.input.isButtonPressed(Input.Buttons.LEFT);
-		crosshair.set(Gdx.input.getX(), Gdx.input.getY());
-		crosshair.scl(1/scale.x,-1/scale.y);
-		crosshair.y += bounds.height;
+		buttons |= (Gdx.input.isButtonPressed(Input.Buttons.LEFT) ? BUTTON_TERTIARY : 0);
+		polledCrosshair.set(Gdx.input.getX(), Gdx.input.getY());
+		polledCrosshair.scl(1/scale.x,-1/scale.y);
+		polledCrosshair.y += bounds.height;
 		clampPosition(bounds);
+		polledButtons = buttons;
 	}
 	
 	/**
@@ -377,7 +581,7 @@ public class InputController {
 	 * for the gamepad controls.
 	 */
 	private void clampPosition(Rectangle bounds) {
-		crosshair.x = Math.max(bounds.x, Math.min(bounds.x+bounds.width, crosshair.x));
-		crosshair.y = Math.max(bounds.y, Math.min(bounds.y+bounds.height, crosshair.y));
+		polledCrosshair.x = Math.max(bounds.x, Math.min(bounds.x+bounds.width, polledCrosshair.x));
+		polledCrosshair.y = Math.max(bounds.y, Math.min(bounds.y+bounds.height, polledCrosshair.y));
 	}
 }
\ No newline at end of file
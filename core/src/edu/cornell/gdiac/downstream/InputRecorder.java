@@ -0,0 +1,180 @@
+/*
+ * InputRecorder.java
+ *
+ * The input controller polls the keyboard and gamepad, so no session can be played
+ * the same way twice.  This class writes the input of every physics step to a log
+ * instead, which InputReplay can feed back to the controller later.  As the physics
+ * has a fixed step, the same log on the same level plays out the same way, which
+ * makes it a repeatable workload for measuring performance.
+ *
+ * The log is binary, and run-length encoded, since the input rarely changes from
+ * one step to the next.  It starts with a header:
+ *
+ *     int   MAGIC
+ *     int   VERSION
+ *     float the step size, in seconds
+ *
+ * followed by one segment for each run of identical steps:
+ *
+ *     int   the number of steps
+ *     float horizontal movement
+ *     float vertical movement
+ *     int   the pressed buttons (the BUTTON constants of InputController)
+ *
+ * All values are big-endian.  The crosshair is not recorded, as the game does not
+ * use it.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.io.*;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Writer of the per-step input to a binary log.
+ *
+ * Attach a recorder with InputController.setRecorder(), and close it when the
+ * game exits (or the last segment is lost).  Errors are logged, not thrown, and
+ * stop the recording.
+ */
+public class InputRecorder {
+	/** The first int of every input log ("DSIN") */
+	public static final int MAGIC = 0x4453494E;
+	/** The version of the log format */
+	public static final int VERSION = 1;
+
+	/** The file being written */
+	private FileHandle file;
+	/** The stream to the file (null once closed, or after an error) */
+	private DataOutputStream stream;
+	/** The number of steps in the current segment */
+	private int count;
+	/** The horizontal movement of the current segment */
+	private float horizontal;
+	/** The vertical movement of the current segment */
+	private float vertical;
+	/** The buttons of the current segment */
+	private int buttons;
+	/** The number of steps recorded */
+	private long steps;
+
+	/**
+	 * Creates a new recorder writing to the given file.
+	 *
+	 * The file is replaced if it exists.
+	 *
+	 * @param file		The log file to write
+	 * @param stepSize	The seconds in a physics step
+	 */
+	public InputRecorder(FileHandle file, float stepSize) {
+		this.file = file;
+		try {
+			stream = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+			stream.writeInt(MAGIC);
+			stream.writeInt(VERSION);
+			stream.writeFloat(stepSize);
+		} catch (IOException e) {
+			fail("Could not write "+file.path(), e);
+		} catch (GdxRuntimeException e) {
+			fail("Could not open "+file.path(), e);
+		}
+	}
+
+	/**
+	 * Returns the number of steps recorded.
+	 *
+	 * @return the number of steps recorded.
+	 */
+	public synchronized long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns true if the recorder is still writing.
+	 *
+	 * @return true if the recorder is still writing.
+	 */
+	public synchronized boolean isRecording() {
+		return stream != null;
+	}
+
+	/**
+	 * Records the input state of a single physics step.
+	 *
+	 * @param horizontal	The amount of sideways movement (-1 to 1)
+	 * @param vertical		The amount of vertical movement (-1 to 1)
+	 * @param buttons		The bit mask of the pressed buttons
+	 */
+	public synchronized void record(float horizontal, float vertical, int buttons) {
+		if (stream == null) {
+			return;
+		}
+		if (count > 0 && (horizontal != this.horizontal || vertical != this.vertical || buttons != this.buttons)) {
+			writeSegment();
+		}
+		if (count == 0) {
+			this.horizontal = horizontal;
+			this.vertical = vertical;
+			this.buttons = buttons;
+		}
+		count++;
+		steps++;
+	}
+
+	/**
+	 * Writes the last segment and closes the file.
+	 *
+	 * Later calls do nothing.
+	 */
+	public synchronized void close() {
+		if (stream == null) {
+			return;
+		}
+		if (count > 0) {
+			writeSegment();
+		}
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				Gdx.app.error("InputRecorder", "Could not close "+file.path(), e);
+			}
+			stream = null;
+		}
+	}
+
+	/**
+	 * Writes the current segment to the file, and starts a new one.
+	 */
+	private void writeSegment() {
+		try {
+			stream.writeInt(count);
+			stream.writeFloat(horizontal);
+			stream.writeFloat(vertical);
+			stream.writeInt(buttons);
+		} catch (IOException e) {
+			fail("Could not write "+file.path(), e);
+		}
+		count = 0;
+	}
+
+	/**
+	 * Logs an error and stops recording.
+	 *
+	 * @param message	The error message
+	 * @param e			The cause of the error
+	 */
+	private void fail(String message, Exception e) {
+		Gdx.app.error("InputRecorder", message, e);
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException f) {
+				// Already failed
+			}
+		}
+		stream = null;
+	}
+}
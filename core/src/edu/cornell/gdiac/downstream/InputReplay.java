@@ -0,0 +1,151 @@
+/*
+ * InputReplay.java
+ *
+ * Plays back an input log written by InputRecorder, one physics step at a time.
+ * On the same level, with the same step size, a replay repeats the recorded
+ * session exactly.  So a single log can be used to compare the performance of the
+ * game before and after a change, on the desktop or headless.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.io.*;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * An input source that replays a binary input log.
+ *
+ * The whole log is read when the replay is created.  Once the log runs out, the
+ * player stops moving and presses nothing.  Unlike a script, a replay does not loop.
+ */
+public class InputReplay implements InputSource {
+	/** The seconds in a physics step when the log was recorded */
+	private float stepSize;
+	/** The number of steps for each segment */
+	private IntArray steps;
+	/** The horizontal movement for each segment */
+	private FloatArray horizontal;
+	/** The vertical movement for each segment */
+	private FloatArray vertical;
+	/** The button mask for each segment */
+	private IntArray buttons;
+	/** The total number of steps in the log */
+	private long length;
+
+	/** The current segment of the log */
+	private int segment;
+	/** The number of steps taken in the current segment */
+	private int counter;
+
+	/**
+	 * Creates a new input source from the given log file.
+	 *
+	 * @param file The log file (see InputRecorder)
+	 */
+	public InputReplay(FileHandle file) {
+		steps = new IntArray();
+		horizontal = new FloatArray();
+		vertical = new FloatArray();
+		buttons  = new IntArray();
+		DataInputStream stream = null;
+		try {
+			stream = new DataInputStream(new BufferedInputStream(file.read()));
+			if (stream.readInt() != InputRecorder.MAGIC) {
+				throw new GdxRuntimeException(file.path()+" is not an input log");
+			}
+			int version = stream.readInt();
+			if (version != InputRecorder.VERSION) {
+				throw new GdxRuntimeException("Unsupported input log version "+version+" in "+file.path());
+			}
+			stepSize = stream.readFloat();
+			parse(stream, file);
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Could not read "+file.path(), e);
+		} finally {
+			StreamUtils.closeQuietly(stream);
+		}
+		segment = 0;
+		counter = 0;
+	}
+
+	/**
+	 * Reads the segments of a log, up to the end of the file.
+	 *
+	 * @param stream	The stream, positioned after the header
+	 * @param file		The log file (for error messages)
+	 */
+	private void parse(DataInputStream stream, FileHandle file) throws IOException {
+		while (true) {
+			int count;
+			try {
+				count = stream.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			if (count <= 0) {
+				throw new GdxRuntimeException("Segment length must be positive in "+file.path());
+			}
+			steps.add(count);
+			horizontal.add(stream.readFloat());
+			vertical.add(stream.readFloat());
+			buttons.add(stream.readInt());
+			length += count;
+		}
+	}
+
+	/**
+	 * Returns the seconds in a physics step when the log was recorded.
+	 *
+	 * The replay only repeats the session if the game uses the same step size.
+	 *
+	 * @return the seconds in a physics step when the log was recorded.
+	 */
+	public float getStepSize() {
+		return stepSize;
+	}
+
+	/**
+	 * Returns the number of steps in the log.
+	 *
+	 * @return the number of steps in the log.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns true if every step in the log has been played.
+	 *
+	 * @return true if every step in the log has been played.
+	 */
+	public boolean isFinished() {
+		return segment >= steps.size;
+	}
+
+	/**
+	 * Restarts the replay from the first step.
+	 */
+	public void rewind() {
+		segment = 0;
+		counter = 0;
+	}
+
+	/**
+	 * Reads the input state for the next physics step.
+	 *
+	 * @param input The input controller to update
+	 */
+	public void readInput(InputController input) {
+		if (isFinished()) {
+			input.setState(0, 0, 0);
+			return;
+		}
+		input.setState(horizontal.get(segment), vertical.get(segment), buttons.get(segment));
+		counter++;
+		if (counter >= steps.get(segment)) {
+			counter = 0;
+			segment++;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * InputSource.java
+ *
+ * Not all input comes from the keyboard or a gamepad.  When we run the game without
+ * a window (e.g. for soak tests on the build machines), the input has to come from a 
+ * script instead.  This interface lets us plug such a source into the InputController
+ * without the rest of the game knowing the difference.
+ */
+package edu.cornell.gdiac.downstream;
+
+/**
+ * A source of player input other than the physical devices.
+ *
+ * An input source is attached with InputController.setSource().  Every time the
+ * controller reads input, it asks the source for the new state instead of polling
+ * the keyboard and gamepad.  One-press buttons (like the tether toggle) work as
+ * usual, since the controller still tracks the state from the previous read.
+ */
+public interface InputSource {
+	
+	/**
+	 * Reads the input state for the next physics step.
+	 *
+	 * Implementations should call InputController.setState() with the new state.
+	 *
+	 * @param input The input controller to update
+	 */
+	public void readInput(InputController input);
+}
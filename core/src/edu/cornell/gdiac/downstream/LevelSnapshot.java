@@ -0,0 +1,181 @@
+/*
+ * LevelSnapshot.java
+ *
+ * Restarting a level used to throw the whole Box2D world away and build it again
+ * from the level file, fixture by fixture.  But most of a level never changes
+ * during play.  The walls and tethers stay put, and the objects that do move only
+ * need their position and velocity put back.  This class records that state once,
+ * right after the level is built, so that a restart can restore it in place on
+ * the existing bodies.
+ *
+ * This only works if the same objects are still in the level.  If any were added
+ * or removed, restore() refuses, and the level must be rebuilt instead.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * The initial physics state of every object in a level.
+ *
+ * The state of an object is its transform, its velocity, whether it is awake, and
+ * its animation frame (if it is animated).  Anything else (such as the goal of an
+ * enemy) is up to the controller to reset.
+ */
+public class LevelSnapshot {
+	/** The number of floats saved per object */
+	private static final int STATE_SIZE = 8;
+	/** The animation frame of objects that are not animated */
+	private static final int NO_FRAME = -1;
+
+	/** The objects in the level, in list order */
+	private Array<Obstacle> objects;
+	/** The state of each object (see STATE_SIZE) */
+	private FloatArray states;
+	/** Whether a snapshot has been taken */
+	private boolean captured;
+	/** Cache object for restoring velocities */
+	private Vector2 velocity;
+
+	/**
+	 * Creates a new empty snapshot.
+	 */
+	public LevelSnapshot() {
+		objects = new Array<Obstacle>();
+		states = new FloatArray();
+		velocity = new Vector2();
+	}
+
+	/**
+	 * Returns true if a snapshot has been taken.
+	 *
+	 * @return true if a snapshot has been taken.
+	 */
+	public boolean isCaptured() {
+		return captured;
+	}
+
+	/**
+	 * Discards the snapshot, so the level will be rebuilt on the next reset.
+	 */
+	public void clear() {
+		objects.clear();
+		states.clear();
+		captured = false;
+	}
+
+	/**
+	 * Records the current state of the given objects.
+	 *
+	 * @param list	The objects in the level
+	 */
+	public void capture(PooledList<Obstacle> list) {
+		clear();
+		for(Obstacle obj : list) {
+			objects.add(obj);
+			float[] items = states.ensureCapacity(STATE_SIZE);
+			int pos = states.size;
+			items[pos  ] = obj.getX();
+			items[pos+1] = obj.getY();
+			items[pos+2] = obj.getAngle();
+			items[pos+3] = obj.getVX();
+			items[pos+4] = obj.getVY();
+			items[pos+5] = obj.getAngularVelocity();
+			items[pos+6] = obj.isAwake() ? 1 : 0;
+			items[pos+7] = getFrame(obj);
+			states.size += STATE_SIZE;
+		}
+		captured = true;
+	}
+
+	/**
+	 * Restores the recorded state of the given objects.
+	 *
+	 * This returns false (and changes nothing) if there is no snapshot, or if the
+	 * objects are not the ones recorded.  Restoring discards the interpolation
+	 * history, so the objects do not appear to slide back to their start.
+	 *
+	 * @param list	The objects in the level
+	 *
+	 * @return true if the state was restored
+	 */
+	public boolean restore(PooledList<Obstacle> list) {
+		if (!matches(list)) {
+			return false;
+		}
+
+		float[] items = states.items;
+		for(int ii = 0; ii < objects.size; ii++) {
+			Obstacle obj = objects.get(ii);
+			int pos = ii*STATE_SIZE;
+			if (hasMoved(obj, items, pos)) {
+				obj.setPosition(items[pos], items[pos+1]);
+				obj.setAngle(items[pos+2]);
+				obj.setLinearVelocity(velocity.set(items[pos+3], items[pos+4]));
+				obj.setAngularVelocity(items[pos+5]);
+				obj.setAwake(items[pos+6] != 0);
+			}
+			if (items[pos+7] != NO_FRAME) {
+				((SimpleObstacle)obj).getAnimator().setFrame((int)items[pos+7]);
+			}
+			obj.resetTransform();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the given objects are exactly the ones recorded.
+	 *
+	 * @param list	The objects in the level
+	 *
+	 * @return true if the given objects are exactly the ones recorded.
+	 */
+	private boolean matches(PooledList<Obstacle> list) {
+		if (!captured || list.size() != objects.size) {
+			return false;
+		}
+		int ii = 0;
+		for(Obstacle obj : list) {
+			if (obj != objects.get(ii++) || obj.isRemoved()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if an object is no longer in its recorded state.
+	 *
+	 * Most objects in a level never move, and moving a body (even to where it 
+	 * already is) updates the collision tree.  So unmoved objects are skipped.
+	 *
+	 * @param obj	The object to check
+	 * @param items	The recorded states
+	 * @param pos	The position of the state of the object
+	 *
+	 * @return true if an object is no longer in its recorded state.
+	 */
+	private static boolean hasMoved(Obstacle obj, float[] items, int pos) {
+		return obj.getX() != items[pos] || obj.getY() != items[pos+1] || obj.getAngle() != items[pos+2] ||
+			   obj.getVX() != items[pos+3] || obj.getVY() != items[pos+4] || 
+			   obj.getAngularVelocity() != items[pos+5] || obj.isAwake() != (items[pos+6] != 0);
+	}
+
+	/**
+	 * Returns the animation frame of an object (NO_FRAME if not animated).
+	 *
+	 * @param obj	The object to check
+	 *
+	 * @return the animation frame of an object (NO_FRAME if not animated).
+	 */
+	private static int getFrame(Obstacle obj) {
+		if (obj instanceof SimpleObstacle && ((SimpleObstacle)obj).getSheet() != null) {
+			return ((SimpleObstacle)obj).getAnimator().getFrame();
+		}
+		return NO_FRAME;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * OverlayBatch.java
+ *
+ * Gameplay overlays (the leading line, the tether radius, ...) used to have a
+ * ShapeRenderer each, with their own begin/end pair every frame.  Every one of
+ * those is a separate draw call.  This class instead queues the lines, circles
+ * and arcs as they are requested, and draws all of them with a single renderer
+ * in one pass at the end of the frame.
+ *
+ * Circles are drawn from a precomputed table of segment directions, so drawing
+ * one needs no trigonometry beyond its start angle.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.glutils.*;
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A queue of outline primitives, drawn together in a single pass.
+ *
+ * Primitives may be queued at any time.  They are drawn (and removed) by flush().
+ * All coordinates are in the space of the projection passed to flush().
+ */
+public class OverlayBatch {
+	/** The number of segments in a full circle */
+	private static final int CIRCLE_SEGMENTS = 32;
+	/** The angle covered by a single circle segment */
+	private static final float SEGMENT_ANGLE = MathUtils.PI2/CIRCLE_SEGMENTS;
+
+	/** Primitive type for a line */
+	private static final int TYPE_LINE = 0;
+	/** Primitive type for an arc (or a circle) */
+	private static final int TYPE_ARC  = 1;
+	/** The number of floats stored for each primitive */
+	private static final int RECORD_SIZE = 10;
+
+	/** The cosine of each segment boundary of a circle */
+	private float[] cosTable;
+	/** The sine of each segment boundary of a circle */
+	private float[] sinTable;
+	/** The queued primitives (type, color, then up to five parameters) */
+	private FloatArray queue;
+
+	/**
+	 * Creates a new empty overlay batch.
+	 */
+	public OverlayBatch() {
+		cosTable = new float[CIRCLE_SEGMENTS+1];
+		sinTable = new float[CIRCLE_SEGMENTS+1];
+		for(int ii = 0; ii <= CIRCLE_SEGMENTS; ii++) {
+			cosTable[ii] = (float)Math.cos(ii*SEGMENT_ANGLE);
+			sinTable[ii] = (float)Math.sin(ii*SEGMENT_ANGLE);
+		}
+		queue = new FloatArray(16*RECORD_SIZE);
+	}
+
+	/**
+	 * Returns the number of queued primitives.
+	 *
+	 * @return the number of queued primitives.
+	 */
+	public int size() {
+		return queue.size/RECORD_SIZE;
+	}
+
+	/**
+	 * Removes all queued primitives without drawing them.
+	 */
+	public void clear() {
+		queue.clear();
+	}
+
+	/**
+	 * Queues all of the primitives of another batch, after those already queued.
+	 *
+	 * The other batch is not changed.
+	 *
+	 * @param other	The batch to copy the primitives from
+	 */
+	public void addAll(OverlayBatch other) {
+		queue.addAll(other.queue);
+	}
+
+	/**
+	 * Queues a line segment.
+	 *
+	 * @param color	The line color
+	 * @param x1	The x-coordinate of the start
+	 * @param y1	The y-coordinate of the start
+	 * @param x2	The x-coordinate of the end
+	 * @param y2	The y-coordinate of the end
+	 */
+	public void line(Color color, float x1, float y1, float x2, float y2) {
+		record(TYPE_LINE, color, x1, y1, x2, y2, 0);
+	}
+
+	/**
+	 * Queues a circle outline.
+	 *
+	 * @param color		The outline color
+	 * @param x			The x-coordinate of the center
+	 * @param y			The y-coordinate of the center
+	 * @param radius	The circle radius
+	 */
+	public void circle(Color color, float x, float y, float radius) {
+		record(TYPE_ARC, color, x, y, radius, 0, MathUtils.PI2);
+	}
+
+	/**
+	 * Queues an arc outline.
+	 *
+	 * The arc runs counter-clockwise from the start angle for the given sweep.
+	 * A negative sweep runs clockwise.
+	 *
+	 * @param color		The outline color
+	 * @param x			The x-coordinate of the center
+	 * @param y			The y-coordinate of the center
+	 * @param radius	The arc radius
+	 * @param start		The start angle in radians
+	 * @param sweep		The angle covered by the arc in radians
+	 */
+	public void arc(Color color, float x, float y, float radius, float start, float sweep) {
+		record(TYPE_ARC, color, x, y, radius, start, sweep);
+	}
+
+	/**
+	 * Adds a primitive to the queue.
+	 *
+	 * @param type	The primitive type
+	 * @param color	The primitive color
+	 * @param p0	The first parameter
+	 * @param p1	The second parameter
+	 * @param p2	The third parameter
+	 * @param p3	The fourth parameter
+	 * @param p4	The fifth parameter
+	 */
+	private void record(int type, Color color, float p0, float p1, float p2, float p3, float p4) {
+		float[] items = queue.ensureCapacity(RECORD_SIZE);
+		int pos = queue.size;
+		items[pos  ] = type;
+		items[pos+1] = color.r;
+		items[pos+2] = color.g;
+		items[pos+3] = color.b;
+		items[pos+4] = color.a;
+		items[pos+5] = p0;
+		items[pos+6] = p1;
+		items[pos+7] = p2;
+		items[pos+8] = p3;
+		items[pos+9] = p4;
+		queue.size += RECORD_SIZE;
+	}
+
+	/**
+	 * Draws all queued primitives in a single pass, and empties the queue.
+	 *
+	 * The renderer must not be drawing already.  If the queue is empty, this
+	 * method does nothing.
+	 *
+	 * @param renderer		The shape renderer to draw with
+	 * @param projection	The projection matrix for the primitives
+	 */
+	public void flush(ShapeRenderer renderer, Matrix4 projection) {
+		if (queue.size == 0) {
+			return;
+		}
+
+		renderer.setProjectionMatrix(projection);
+		renderer.begin(ShapeRenderer.ShapeType.Line);
+		float[] items = queue.items;
+		for(int pos = 0; pos < queue.size; pos += RECORD_SIZE) {
+			renderer.setColor(items[pos+1], items[pos+2], items[pos+3], items[pos+4]);
+			if ((int)items[pos] == TYPE_LINE) {
+				renderer.line(items[pos+5], items[pos+6], items[pos+7], items[pos+8]);
+			} else {
+				drawArc(renderer, items[pos+5], items[pos+6], items[pos+7], items[pos+8], items[pos+9]);
+			}
+		}
+		renderer.end();
+		queue.clear();
+	}
+
+	/**
+	 * Draws an arc from the segment table.
+	 *
+	 * The table directions are rotated to the start angle, so the arc needs only
+	 * one sine and cosine.  The last segment is shortened to end exactly at the
+	 * end of the sweep.
+	 *
+	 * @param renderer	The active shape renderer
+	 * @param x			The x-coordinate of the center
+	 * @param y			The y-coordinate of the center
+	 * @param radius	The arc radius
+	 * @param start		The start angle in radians
+	 * @param sweep		The angle covered by the arc in radians
+	 */
+	private void drawArc(ShapeRenderer renderer, float x, float y, float radius, float start, float sweep) {
+		float sign = (sweep < 0 ? -1 : 1);
+		float extent = Math.min(Math.abs(sweep), MathUtils.PI2);
+		int full = Math.min((int)(extent/SEGMENT_ANGLE), CIRCLE_SEGMENTS);
+
+		float c0 = MathUtils.cos(start);
+		float s0 = MathUtils.sin(start);
+		float px = x+radius*c0;
+		float py = y+radius*s0;
+		for(int ii = 1; ii <= full; ii++) {
+			float ct = cosTable[ii];
+			float st = sign*sinTable[ii];
+			float nx = x+radius*(c0*ct-s0*st);
+			float ny = y+radius*(s0*ct+c0*st);
+			renderer.line(px, py, nx, ny);
+			px = nx;
+			py = ny;
+		}
+		if (extent-full*SEGMENT_ANGLE > MathUtils.FLOAT_ROUNDING_ERROR) {
+			float end = start+sign*extent;
+			renderer.line(px, py, x+radius*MathUtils.cos(end), y+radius*MathUtils.sin(end));
+		}
+	}
+}
@@ -0,0 +1,381 @@
+/*
+ * RenderSnapshot.java
+ *
+ * Drawing a frame needs very little of the game state: which objects to draw,
+ * where to draw them, where the camera is, and a few overlay shapes.  This class
+ * copies exactly that.  Once copied, the frame can be drawn while the simulation
+ * moves on, which is what lets WorldController run the physics on a separate
+ * thread.
+ *
+ * All of the storage is reused from frame to frame, so taking a snapshot does not
+ * allocate once the arrays have grown to the size of the level.  Immobile objects
+ * are kept in a separate list, which is only copied when it changes.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * The visual state of a world at the end of a simulation frame.
+ *
+ * Everything that changes during play is copied into the snapshot: the drawing
+ * transform and animation frame of each object (see Obstacle.saveDrawState), its
+ * bounding box, the camera and the status of the level.  The objects themselves
+ * are only used for what does not change while the simulation runs (textures,
+ * shapes, scale).  Those are changed by level builds and asset streaming, which
+ * WorldController only does while the simulation is idle.
+ */
+public class RenderSnapshot {
+	/**
+	 * A list of objects together with their copied drawing state.
+	 */
+	private static class Layer {
+		/** The objects to draw, in drawing order */
+		private Array<Obstacle> objects = new Array<Obstacle>();
+		/** The position of the drawing state of each object */
+		private IntArray offsets = new IntArray();
+		/** The drawing state of every object */
+		private FloatArray states = new FloatArray();
+		/** The bounding box of each object (x, y, width, height) */
+		private FloatArray bounds = new FloatArray();
+
+		/**
+		 * Removes all objects from this layer.
+		 */
+		public void clear() {
+			objects.clear();
+			offsets.clear();
+			states.clear();
+			bounds.clear();
+		}
+
+		/**
+		 * Adds an object, copying its drawing state and bounding box.
+		 *
+		 * @param obj	The object to add
+		 */
+		public void add(Obstacle obj) {
+			objects.add(obj);
+			offsets.add(states.size);
+			obj.saveDrawState(states);
+			Rectangle box = obj.getBounds();
+			float[] items = bounds.ensureCapacity(4);
+			int pos = bounds.size;
+			items[pos  ] = box.x;
+			items[pos+1] = box.y;
+			items[pos+2] = box.width;
+			items[pos+3] = box.height;
+			bounds.size += 4;
+		}
+
+		/**
+		 * Returns true if the bounding box of an object overlaps the view.
+		 *
+		 * @param index	The object index
+		 * @param view	The visible part of the world, in Box2d units
+		 *
+		 * @return true if the bounding box of an object overlaps the view.
+		 */
+		public boolean overlaps(int index, Rectangle view) {
+			float[] items = bounds.items;
+			int pos = 4*index;
+			return items[pos] < view.x+view.width && items[pos]+items[pos+2] > view.x &&
+				   items[pos+1] < view.y+view.height && items[pos+1]+items[pos+3] > view.y;
+		}
+
+		/**
+		 * Draws the objects that overlap the view (or all of them if view is null).
+		 *
+		 * @param canvas	The drawing context
+		 * @param view		The visible part of the world (or null)
+		 */
+		public void draw(GameCanvas canvas, Rectangle view) {
+			for(int ii = 0; ii < objects.size; ii++) {
+				if (view == null || overlaps(ii, view)) {
+					objects.get(ii).draw(canvas, states.items, offsets.get(ii));
+				}
+			}
+		}
+
+		/**
+		 * Draws the outlines of the objects that overlap the view.
+		 *
+		 * @param canvas	The drawing context
+		 * @param view		The visible part of the world
+		 */
+		public void drawDebug(GameCanvas canvas, Rectangle view) {
+			for(int ii = 0; ii < objects.size; ii++) {
+				if (overlaps(ii, view)) {
+					objects.get(ii).drawDebug(canvas, states.items, offsets.get(ii));
+				}
+			}
+		}
+	}
+
+	/** The mobile objects, in drawing order */
+	private Layer objects;
+	/** The immobile objects, in drawing order */
+	private Layer statics;
+	/** The version of the immobile objects (changes whenever they do) */
+	private int staticVersion;
+	/** The x-coordinate of the camera center */
+	private float cameraX;
+	/** The y-coordinate of the camera center */
+	private float cameraY;
+	/** The camera zoom */
+	private float cameraZoom;
+	/** Whether the level was completed */
+	private boolean complete;
+	/** Whether the level was failed */
+	private boolean failed;
+	/** Whether to draw the physics outlines */
+	private boolean debug;
+	/** Whether to show the frame timing overlay */
+	private boolean showTiming;
+	/** The overlay shapes for this frame */
+	private OverlayBatch overlay;
+
+	/**
+	 * Creates a new empty snapshot.
+	 */
+	public RenderSnapshot() {
+		objects = new Layer();
+		statics = new Layer();
+		staticVersion = -1;
+		overlay = new OverlayBatch();
+		cameraZoom = 1;
+	}
+
+	/**
+	 * Removes all objects and overlay shapes from this snapshot.
+	 *
+	 * The immobile objects are kept, as they are replaced by setStatics().
+	 */
+	public void clear() {
+		objects.clear();
+		overlay.clear();
+	}
+
+	/**
+	 * Adds an object, copying its drawing state and bounding box.
+	 *
+	 * The object should already be interpolated for this frame.
+	 *
+	 * @param obj	The object to add
+	 */
+	public void add(Obstacle obj) {
+		objects.add(obj);
+	}
+
+	/**
+	 * Returns the number of objects in this snapshot.
+	 *
+	 * @return the number of objects in this snapshot.
+	 */
+	public int size() {
+		return objects.objects.size;
+	}
+
+	/**
+	 * Returns the object at the given index.
+	 *
+	 * Do not read the position of the object when drawing, as it belongs to the
+	 * simulation.  Use draw() instead.
+	 *
+	 * @param index	The object index
+	 *
+	 * @return the object at the given index.
+	 */
+	public Obstacle get(int index) {
+		return objects.objects.get(index);
+	}
+
+	/**
+	 * Returns the version of the immobile objects.
+	 *
+	 * The version changes whenever the immobile objects do, so comparing it to
+	 * the version of the last frame tells whether they must be redrawn.
+	 *
+	 * @return the version of the immobile objects.
+	 */
+	public int getStaticVersion() {
+		return staticVersion;
+	}
+
+	/**
+	 * Sets the immobile objects.
+	 *
+	 * The objects (and their drawing state) are only copied if the version differs
+	 * from the one already in this snapshot.
+	 *
+	 * @param objects	The immobile objects, in drawing order
+	 * @param version	The version of the immobile objects
+	 */
+	public void setStatics(Array<Obstacle> objects, int version) {
+		if (version != staticVersion) {
+			statics.clear();
+			for(int ii = 0; ii < objects.size; ii++) {
+				statics.add(objects.get(ii));
+			}
+			staticVersion = version;
+		}
+	}
+
+	/**
+	 * Draws the mobile objects that overlap the view.
+	 *
+	 * @param canvas	The drawing context
+	 * @param view		The visible part of the world, in Box2d units
+	 */
+	public void draw(GameCanvas canvas, Rectangle view) {
+		objects.draw(canvas, view);
+	}
+
+	/**
+	 * Draws all of the immobile objects.
+	 *
+	 * These are not culled, as they are drawn once into the static layer.
+	 *
+	 * @param canvas	The drawing context
+	 */
+	public void drawStatics(GameCanvas canvas) {
+		statics.draw(canvas, null);
+	}
+
+	/**
+	 * Draws the outlines of all objects (mobile or not) that overlap the view.
+	 *
+	 * @param canvas	The drawing context
+	 * @param view		The visible part of the world, in Box2d units
+	 */
+	public void drawDebug(GameCanvas canvas, Rectangle view) {
+		statics.drawDebug(canvas, view);
+		objects.drawDebug(canvas, view);
+	}
+
+	/**
+	 * Returns the x-coordinate of the camera center.
+	 *
+	 * @return the x-coordinate of the camera center.
+	 */
+	public float getCameraX() {
+		return cameraX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the camera center.
+	 *
+	 * @return the y-coordinate of the camera center.
+	 */
+	public float getCameraY() {
+		return cameraY;
+	}
+
+	/**
+	 * Returns the camera zoom.
+	 *
+	 * @return the camera zoom.
+	 */
+	public float getCameraZoom() {
+		return cameraZoom;
+	}
+
+	/**
+	 * Sets the camera position and zoom.
+	 *
+	 * @param x		The x-coordinate of the camera center
+	 * @param y		The y-coordinate of the camera center
+	 * @param zoom	The camera zoom
+	 */
+	public void setCamera(float x, float y, float zoom) {
+		cameraX = x;
+		cameraY = y;
+		cameraZoom = zoom;
+	}
+
+	/**
+	 * Returns true if the level was completed.
+	 *
+	 * @return true if the level was completed.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Sets whether the level was completed.
+	 *
+	 * @param value	whether the level was completed.
+	 */
+	public void setComplete(boolean value) {
+		complete = value;
+	}
+
+	/**
+	 * Returns true if the level was failed.
+	 *
+	 * @return true if the level was failed.
+	 */
+	public boolean isFailure() {
+		return failed;
+	}
+
+	/**
+	 * Sets whether the level was failed.
+	 *
+	 * @param value	whether the level was failed.
+	 */
+	public void setFailure(boolean value) {
+		failed = value;
+	}
+
+	/**
+	 * Returns true if the physics outlines are drawn.
+	 *
+	 * @return true if the physics outlines are drawn.
+	 */
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * Sets whether the physics outlines are drawn.
+	 *
+	 * @param value	whether the physics outlines are drawn.
+	 */
+	public void setDebug(boolean value) {
+		debug = value;
+	}
+
+	/**
+	 * Returns true if the frame timing overlay is shown.
+	 *
+	 * @return true if the frame timing overlay is shown.
+	 */
+	public boolean isShowTiming() {
+		return showTiming;
+	}
+
+	/**
+	 * Sets whether the frame timing overlay is shown.
+	 *
+	 * @param value	whether the frame timing overlay is shown.
+	 */
+	public void setShowTiming(boolean value) {
+		showTiming = value;
+	}
+
+	/**
+	 * Returns the overlay shapes for this frame.
+	 *
+	 * Shapes queued here are drawn (and removed) with the snapshot.
+	 *
+	 * @return the overlay shapes for this frame.
+	 */
+	public OverlayBatch getOverlay() {
+		return overlay;
+	}
+}
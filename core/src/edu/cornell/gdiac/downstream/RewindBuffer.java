@@ -0,0 +1,269 @@
+/*
+ * RewindBuffer.java
+ *
+ * To rewind the last few seconds of play, we need the state of every object at
+ * every step in those seconds.  That is a lot of small records, written 60 times
+ * a second, so we cannot afford an object (or even a float array) per step.  This
+ * class keeps them in a single direct byte buffer instead, allocated once, and
+ * used as a ring: each step overwrites the oldest one.
+ *
+ * Only objects that can move are recorded.  Immobile objects (the walls and
+ * tethers, in most levels) cannot change while they are in the world, so there is
+ * nothing to rewind.  The records are stored in the order of the objects, without
+ * saying which object they belong to.  So whenever an object is added or removed,
+ * the buffer must be cleared, and starts recording again.
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.nio.*;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.obstacle.*;
+
+/**
+ * A ring buffer of the physics state of every mobile object, one entry per step.
+ *
+ * The state of an object is its position, angle, velocity, angular velocity,
+ * animation frame (or NO_FRAME) and flags, packed into RECORD_SIZE bytes.  This
+ * is only the physics state, so anything else is up to the controller.
+ */
+public class RewindBuffer {
+	/** The number of bytes saved per object per step */
+	private static final int RECORD_SIZE = 32;
+	/** The offset of the x-coordinate in a record */
+	private static final int OFFSET_X = 0;
+	/** The offset of the y-coordinate in a record */
+	private static final int OFFSET_Y = 4;
+	/** The offset of the angle in a record */
+	private static final int OFFSET_ANGLE = 8;
+	/** The offset of the x-velocity in a record */
+	private static final int OFFSET_VX = 12;
+	/** The offset of the y-velocity in a record */
+	private static final int OFFSET_VY = 16;
+	/** The offset of the angular velocity in a record */
+	private static final int OFFSET_SPIN = 20;
+	/** The offset of the animation frame in a record */
+	private static final int OFFSET_FRAME = 24;
+	/** The offset of the flags in a record */
+	private static final int OFFSET_FLAGS = 28;
+	/** The flag for an awake body */
+	private static final int FLAG_AWAKE = 1;
+	/** The animation frame of objects that are not animated */
+	private static final int NO_FRAME = -1;
+
+	/** The number of steps that fit in the buffer */
+	private int capacity;
+	/** The number of objects that fit in each step */
+	private int width;
+	/** The records, capacity steps of width objects each */
+	private ByteBuffer buffer;
+	/** The mobile objects being recorded, in list order */
+	private Array<Obstacle> objects;
+	/** Whether the objects to record have been found since the last clear */
+	private boolean tracking;
+	/** The slot of the next step to record */
+	private int head;
+	/** The number of steps recorded */
+	private int size;
+	/** Cache object for restoring velocities */
+	private Vector2 velocity;
+
+	/**
+	 * Creates a new rewind buffer for the given number of steps.
+	 *
+	 * The buffer starts with room for the given number of mobile objects, and grows
+	 * (forgetting its history) if a level has more.
+	 *
+	 * @param steps		The number of steps to keep
+	 * @param objects	The expected number of objects per step
+	 */
+	public RewindBuffer(int steps, int objects) {
+		capacity = Math.max(steps, 1);
+		this.objects = new Array<Obstacle>();
+		velocity = new Vector2();
+		allocate(Math.max(objects, 1));
+	}
+
+	/**
+	 * Returns the number of steps that can be rewound.
+	 *
+	 * The newest step is the current state, so it does not count.
+	 *
+	 * @return the number of steps that can be rewound.
+	 */
+	public int getSize() {
+		return Math.max(size-1, 0);
+	}
+
+	/**
+	 * Returns the number of steps kept by this buffer.
+	 *
+	 * @return the number of steps kept by this buffer.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Forgets every step recorded so far.
+	 *
+	 * This must be called whenever an object is added to or removed from the world.
+	 */
+	public void clear() {
+		objects.clear();
+		tracking = false;
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Records the state of the given objects as the newest step.
+	 *
+	 * The first step after a clear finds the mobile objects in the list.  After
+	 * that, the list is not looked at again (until the next clear), and this method
+	 * does not allocate.
+	 *
+	 * @param list	The objects in the world
+	 */
+	public void record(PooledList<Obstacle> list) {
+		if (!tracking) {
+			track(list);
+		}
+
+		int pos = head*width*RECORD_SIZE;
+		for(int ii = 0; ii < objects.size; ii++) {
+			Obstacle obj = objects.get(ii);
+			// Each getter on a body is a native call, so get the vectors whole
+			Vector2 position = obj.getPosition();
+			buffer.putFloat(pos+OFFSET_X, position.x);
+			buffer.putFloat(pos+OFFSET_Y, position.y);
+			buffer.putFloat(pos+OFFSET_ANGLE, obj.getAngle());
+			Vector2 speed = obj.getLinearVelocity();
+			buffer.putFloat(pos+OFFSET_VX, speed.x);
+			buffer.putFloat(pos+OFFSET_VY, speed.y);
+			buffer.putFloat(pos+OFFSET_SPIN, obj.getAngularVelocity());
+			buffer.putInt(pos+OFFSET_FRAME, getFrame(obj));
+			buffer.putInt(pos+OFFSET_FLAGS, obj.isAwake() ? FLAG_AWAKE : 0);
+			pos += RECORD_SIZE;
+		}
+		head = (head+1) % capacity;
+		size = Math.min(size+1, capacity);
+	}
+
+	/**
+	 * Restores the objects to the step before the newest, and forgets the newest.
+	 *
+	 * Calling this once per step plays the history backwards.  The newest step is
+	 * the current state, so this restores the one before it.  This returns false
+	 * (and changes nothing) if there is no such step.
+	 *
+	 * @return true if the objects were restored
+	 */
+	public boolean rewind() {
+		if (!restore(1)) {
+			return false;
+		}
+		head = (head+capacity-1) % capacity;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Restores the objects to the given number of steps ago.
+	 *
+	 * An age of 0 is the newest step.  The history is unchanged, so recording
+	 * continues after the newest step.  Use rewind() to play the history backwards.
+	 * This returns false (and changes nothing) if the step is not in the buffer.
+	 *
+	 * @param age	The number of steps ago
+	 *
+	 * @return true if the objects were restored
+	 */
+	public boolean restore(int age) {
+		if (age < 0 || age >= size) {
+			return false;
+		}
+
+		int slot = (head+capacity-1-age) % capacity;
+		int pos = slot*width*RECORD_SIZE;
+		for(int ii = 0; ii < objects.size; ii++) {
+			Obstacle obj = objects.get(ii);
+			float x = buffer.getFloat(pos+OFFSET_X);
+			float y = buffer.getFloat(pos+OFFSET_Y);
+			float angle = buffer.getFloat(pos+OFFSET_ANGLE);
+			float vx = buffer.getFloat(pos+OFFSET_VX);
+			float vy = buffer.getFloat(pos+OFFSET_VY);
+			float spin  = buffer.getFloat(pos+OFFSET_SPIN);
+			boolean awake = (buffer.getInt(pos+OFFSET_FLAGS) & FLAG_AWAKE) != 0;
+
+			// Moving a body updates the collision tree, so skip the ones that did not move
+			if (obj.getX() != x || obj.getY() != y || obj.getAngle() != angle ||
+				obj.getVX() != vx || obj.getVY() != vy || obj.getAngularVelocity() != spin) {
+				obj.setPosition(x, y);
+				obj.setAngle(angle);
+				obj.setLinearVelocity(velocity.set(vx, vy));
+				obj.setAngularVelocity(spin);
+			}
+			if (obj.isAwake() != awake) {
+				obj.setAwake(awake);
+			}
+			int frame = buffer.getInt(pos+OFFSET_FRAME);
+			if (frame != NO_FRAME) {
+				((SimpleObstacle)obj).getAnimator().setFrame(frame);
+			}
+			pos += RECORD_SIZE;
+		}
+		return true;
+	}
+
+	/**
+	 * Allocates the buffer for the given number of objects per step.
+	 *
+	 * Any history is forgotten, but the objects being tracked are not.
+	 *
+	 * @param width	The number of objects per step
+	 */
+	private void allocate(int width) {
+		this.width = width;
+		buffer = ByteBuffer.allocateDirect(capacity*width*RECORD_SIZE).order(ByteOrder.nativeOrder());
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Finds the mobile objects to record in the given list.
+	 *
+	 * The buffer grows if there are more than fit.
+	 *
+	 * @param list	The objects in the world
+	 */
+	private void track(PooledList<Obstacle> list) {
+		clear();
+		for(Obstacle obj : list) {
+			if (!obj.isImmobile()) {
+				objects.add(obj);
+			}
+		}
+		if (objects.size > width) {
+			allocate(objects.size);
+		}
+		tracking = true;
+	}
+
+	/**
+	 * Returns the animation frame of an object (NO_FRAME if not animated).
+	 *
+	 * @param obj	The object to check
+	 *
+	 * @return the animation frame of an object (NO_FRAME if not animated).
+	 */
+	private static int getFrame(Obstacle obj) {
+		if (obj instanceof SimpleObstacle && ((SimpleObstacle)obj).getSheet() != null) {
+			return ((SimpleObstacle)obj).getAnimator().getFrame();
+		}
+		return NO_FRAME;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * SimulationThread.java
+ *
+ * Normally the physics steps and the drawing of a frame happen one after the
+ * other on the GL thread, so the frame time is their sum.  This class moves the
+ * simulation of a frame onto a thread of its own.  The GL thread hands it the
+ * frame time, draws the previous frame while the simulation runs, and then waits
+ * for it to finish.  On a multi-core machine the frame time is then closer to
+ * the larger of the two than to their sum.
+ *
+ * The handoff uses a pair of semaphores, which also make the results of the
+ * simulation visible to the GL thread (and vice versa).
+ */
+package edu.cornell.gdiac.downstream;
+
+import java.util.concurrent.Semaphore;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * A thread that simulates one frame of a world at a time.
+ *
+ * Call start() to hand over a frame and finish() to wait for it.  Between those
+ * two calls, the GL thread must not touch the simulation state of the world.
+ */
+public class SimulationThread implements Runnable {
+	/** The world to simulate */
+	private WorldController controller;
+	/** The underlying thread (null if not running) */
+	private Thread thread;
+	/** Released by the GL thread when there is a frame to simulate */
+	private Semaphore work;
+	/** Released by the simulation thread when a frame is done */
+	private Semaphore done;
+	/** The animation time of the frame to simulate */
+	private float delta;
+	/** Whether a frame has been handed over and not yet finished */
+	private boolean busy;
+	/** Whether the thread should exit when woken */
+	private volatile boolean stopping;
+	/** The error that stopped the last frame (null if none) */
+	private Throwable failure;
+
+	/**
+	 * Creates a new (idle) simulation thread for the given world.
+	 *
+	 * @param controller	The world to simulate
+	 */
+	public SimulationThread(WorldController controller) {
+		this.controller = controller;
+		work = new Semaphore(0);
+		done = new Semaphore(0);
+		busy = false;
+		stopping = false;
+	}
+
+	/**
+	 * Returns true if a frame has been handed over and not yet finished.
+	 *
+	 * @return true if a frame has been handed over and not yet finished.
+	 */
+	public boolean isBusy() {
+		return busy;
+	}
+
+	/**
+	 * Hands a frame to the simulation thread, starting the thread if necessary.
+	 *
+	 * This method returns immediately.  It must not be called while busy.
+	 *
+	 * @param delta	The animation time of the frame
+	 */
+	public void start(float delta) {
+		assert !busy : "The previous frame has not finished";
+		if (thread == null) {
+			stopping = false;
+			thread = new Thread(this, "Simulation");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		this.delta = delta;
+		busy = true;
+		work.release();
+	}
+
+	/**
+	 * Waits for the frame handed over by start() to finish.
+	 *
+	 * This method returns immediately if there is no such frame.  If the frame
+	 * failed with an exception, it is rethrown here (on the calling thread).
+	 */
+	public void finish() {
+		if (!busy) {
+			return;
+		}
+		done.acquireUninterruptibly();
+		busy = false;
+		if (failure != null) {
+			Throwable cause = failure;
+			failure = null;
+			throw new GdxRuntimeException("Simulation failed", cause);
+		}
+	}
+
+	/**
+	 * Waits for the current frame (if any) and stops the thread.
+	 *
+	 * The thread is restarted by the next call to start().
+	 */
+	public void stop() {
+		if (thread == null) {
+			return;
+		}
+		try {
+			finish();
+		} finally {
+			stopping = true;
+			work.release();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	/**
+	 * Simulates frames as they are handed over, until stopped.
+	 */
+	public void run() {
+		while (true) {
+			work.acquireUninterruptibly();
+			if (stopping) {
+				return;
+			}
+			try {
+				controller.simulate(delta);
+			} catch (Throwable e) {
+				failure = e;
+			}
+			done.release();
+		}
+	}
+}
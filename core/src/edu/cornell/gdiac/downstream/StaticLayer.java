@@ -0,0 +1,282 @@
+/*
+ * StaticLayer.java
+ *
+ * The walls and lily pads of a level never move, yet they used to be drawn one
+ * at a time every frame, each one recomputing its vertices in the sprite batch.
+ * This class records them once into a SpriteCache, which keeps the vertices on the
+ * graphics card.  Drawing the whole layer is then a single call per texture, no
+ * matter how many objects are in it.
+ *
+ * The cache is unindexed, so every "sprite" in it is a pair of triangles.  That lets
+ * the layer hold textured polygons (the walls) as well as rectangles, and removes
+ * the limit on the number of sprites that comes with short indices.
+ */
+package edu.cornell.gdiac.downstream;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A prebuilt layer of textured triangles, drawn with a single call per texture.
+ *
+ * Triangles are recorded between begin() and end(), usually by GameCanvas while
+ * obstacles draw themselves.  The end() method uploads them, and draw() draws them.
+ * Building the layer needs the OpenGL context, so it must be done on the GL thread.
+ */
+public class StaticLayer implements Disposable {
+	/** The floats per vertex (x, y, packed color, u, v) */
+	private static final int VERTEX_SIZE = 5;
+	/** The floats per triangle */
+	private static final int TRIANGLE_SIZE = 3*VERTEX_SIZE;
+	/** The floats per (unindexed) sprite in the cache, which is two triangles */
+	private static final int SPRITE_SIZE = 2*TRIANGLE_SIZE;
+	/** The smallest number of sprites to allocate the cache for */
+	private static final int MIN_CAPACITY = 64;
+
+	/** The cache on the graphics card (null until the first non-empty build) */
+	private SpriteCache cache;
+	/** The number of sprites the cache can hold */
+	private int capacity;
+	/** The cache id of the layer (-1 if the layer is empty) */
+	private int cacheId;
+
+	/** The recorded vertices, in cache order */
+	private FloatArray vertices;
+	/** The texture of each run of recorded vertices */
+	private Array<Texture> textures;
+	/** The end (in floats) of each run of recorded vertices */
+	private IntArray runs;
+	/** Whether we are between begin() and end() */
+	private boolean recording;
+
+	/** Cache for transforming vertices */
+	private Vector2 vertex;
+	/** Cache for transforming polygon regions */
+	private Affine2 local;
+
+	/**
+	 * Creates a new empty layer.
+	 *
+	 * The layer does not allocate any graphics resources until it is first built.
+	 */
+	public StaticLayer() {
+		vertices = new FloatArray();
+		textures = new Array<Texture>();
+		runs = new IntArray();
+		vertex = new Vector2();
+		local = new Affine2();
+		cacheId = -1;
+	}
+
+	/**
+	 * Returns true if the layer has nothing to draw.
+	 *
+	 * @return true if the layer has nothing to draw.
+	 */
+	public boolean isEmpty() {
+		return cacheId < 0;
+	}
+
+	/**
+	 * Starts recording the layer, discarding its previous contents.
+	 */
+	public void begin() {
+		vertices.clear();
+		textures.clear();
+		runs.clear();
+		recording = true;
+	}
+
+	/**
+	 * Records a texture region with the given transform.
+	 *
+	 * The transform maps the region (in pixels, with the origin in the bottom left
+	 * corner) to the screen.  This is the transform that GameCanvas gives to the
+	 * sprite batch.
+	 *
+	 * @param region	The texture region
+	 * @param tint		The color tint
+	 * @param transform	The region transform
+	 */
+	public void add(TextureRegion region, Color tint, Affine2 transform) {
+		assert recording : "Layer is not recording";
+		startRun(region.getTexture());
+
+		float w = region.getRegionWidth();
+		float h = region.getRegionHeight();
+		float color = tint.toFloatBits();
+		float u  = region.getU();
+		float v  = region.getV();
+		float u2 = region.getU2();
+		float v2 = region.getV2();
+
+		// Texture v runs downwards, so the bottom of the region has the larger v
+		addVertex(transform, 0, 0, color, u,  v2);
+		addVertex(transform, 0, h, color, u,  v);
+		addVertex(transform, w, h, color, u2, v);
+		addVertex(transform, w, h, color, u2, v);
+		addVertex(transform, w, 0, color, u2, v2);
+		addVertex(transform, 0, 0, color, u,  v2);
+	}
+
+	/**
+	 * Records a polygon region with the given placement.
+	 *
+	 * The arguments are the same as those of PolygonSpriteBatch, and the polygon is
+	 * placed exactly as that batch would draw it.
+	 *
+	 * @param region	The polygon region
+	 * @param tint		The color tint
+	 * @param x			The x-coordinate of the region (on screen)
+	 * @param y			The y-coordinate of the region (on screen)
+	 * @param ox		The x-coordinate of the rotation origin (in pixels)
+	 * @param oy		The y-coordinate of the rotation origin (in pixels)
+	 * @param sx		The x-axis scaling factor
+	 * @param sy		The y-axis scaling factor
+	 * @param degrees	The rotation angle (in degrees) about the origin
+	 */
+	public void add(PolygonRegion region, Color tint, float x, float y,
+					float ox, float oy, float sx, float sy, float degrees) {
+		assert recording : "Layer is not recording";
+		startRun(region.getRegion().getTexture());
+
+		local.setToTranslation(x+ox, y+oy);
+		local.rotate(degrees);
+		local.scale(sx, sy);
+		local.translate(-ox, -oy);
+
+		float color = tint.toFloatBits();
+		float[] points = region.getVertices();
+		float[] coords = region.getTextureCoords();
+		short[] triangles = region.getTriangles();
+		for(int ii = 0; ii < triangles.length; ii++) {
+			int index = 2*triangles[ii];
+			addVertex(local, points[index], points[index+1], color, coords[index], coords[index+1]);
+		}
+	}
+
+	/**
+	 * Finishes recording, and uploads the layer to the graphics card.
+	 *
+	 * The cache is only reallocated if the layer has outgrown it.
+	 */
+	public void end() {
+		assert recording : "Layer is not recording";
+		recording = false;
+		endRun();
+		if (vertices.size == 0) {
+			cacheId = -1;
+			return;
+		}
+
+		int sprites = vertices.size/SPRITE_SIZE;
+		if (cache == null || sprites > capacity) {
+			if (cache != null) {
+				cache.dispose();
+			}
+			capacity = Math.max(Math.max(sprites, 2*capacity), MIN_CAPACITY);
+			cache = new SpriteCache(capacity, false);
+		}
+
+		cache.clear();
+		cache.beginCache();
+		int start = 0;
+		for(int ii = 0; ii < runs.size; ii++) {
+			int end = runs.get(ii);
+			cache.add(textures.get(ii), vertices.items, start, end-start);
+			start = end;
+		}
+		cacheId = cache.endCache();
+	}
+
+	/**
+	 * Draws the layer with the given projection.
+	 *
+	 * This sets the cache shader and mesh, so it cannot be called while a sprite
+	 * batch is drawing.  Blending must be set up by the caller.
+	 *
+	 * @param projection	The projection matrix
+	 */
+	public void draw(Matrix4 projection) {
+		if (cacheId < 0) {
+			return;
+		}
+		cache.setProjectionMatrix(projection);
+		cache.begin();
+		cache.draw(cacheId);
+		cache.end();
+	}
+
+	/**
+	 * Releases the graphics resources of this layer.
+	 */
+	public void dispose() {
+		if (cache != null) {
+			cache.dispose();
+			cache = null;
+		}
+		capacity = 0;
+		cacheId = -1;
+	}
+
+	/**
+	 * Starts a run of vertices with the given texture.
+	 *
+	 * Consecutive objects with the same texture share a run (and so a draw call).
+	 *
+	 * @param texture	The texture of the next vertices
+	 */
+	private void startRun(Texture texture) {
+		if (textures.size > 0 && textures.peek() == texture) {
+			return;
+		}
+		endRun();
+		textures.add(texture);
+		runs.add(vertices.size);
+	}
+
+	/**
+	 * Closes the current run of vertices (if any).
+	 *
+	 * A run must be a whole number of cache sprites, so an odd triangle is padded
+	 * with an empty one.
+	 */
+	private void endRun() {
+		if (runs.size == 0) {
+			return;
+		}
+		if (vertices.size % SPRITE_SIZE != 0) {
+			float[] items = vertices.ensureCapacity(TRIANGLE_SIZE);
+			int pos = vertices.size;
+			for(int ii = 0; ii < TRIANGLE_SIZE; ii++) {
+				items[pos+ii] = items[pos-VERTEX_SIZE+ii%VERTEX_SIZE];
+			}
+			vertices.size += TRIANGLE_SIZE;
+		}
+		runs.set(runs.size-1, vertices.size);
+	}
+
+	/**
+	 * Transforms a vertex and appends it to the recorded vertices.
+	 *
+	 * @param transform	The vertex transform
+	 * @param x			The x-coordinate of the vertex
+	 * @param y			The y-coordinate of the vertex
+	 * @param color		The packed vertex color
+	 * @param u			The u texture coordinate
+	 * @param v			The v texture coordinate
+	 */
+	private void addVertex(Affine2 transform, float x, float y, float color, float u, float v) {
+		transform.applyTo(vertex.set(x,y));
+		float[] items = vertices.ensureCapacity(VERTEX_SIZE);
+		int pos = vertices.size;
+		items[pos  ] = vertex.x;
+		items[pos+1] = vertex.y;
+		items[pos+2] = color;
+		items[pos+3] = u;
+		items[pos+4] = v;
+		vertices.size += VERTEX_SIZE;
+	}
+}
@@ -78,6 +78,36 @@ public abstract class WorldController implements Screen {
 	protected BitmapFont displayFont;
 	/** The background image for the battle */
 	private static Texture background; 
+	
+	/** The width and height of a sprite atlas page (all sprites fit on one page) */
+	private static final int ATLAS_PAGE_SIZE = 1024;
+	/** The padding between atlas sprites (so linear filtering does not bleed) */
+	private static final int ATLAS_PADDING = 2;
+	
+	/** The sprite files to pack into the atlas */
+	private Array<String> spriteFiles;
+	/** The atlas of all sprites (packed when the first sprite is created) */
+	private TextureAtlas atlas;
+	/** The packer behind the atlas (kept until the deferred sprites are packed) */
+	private PixmapPacker packer;
+	
+	/** The milliseconds per frame to spend streaming assets during play */
+	private static final int STREAM_BUDGET = 4;
+	/** The color of the placeholder for assets that have not arrived */
+	private static final Color PLACEHOLDER_COLOR = new Color(0.5f, 0.5f, 0.5f, 0.5f);
+	
+	/** The assets to stream in during play, queued once the critical ones are loaded */
+	private Array<AssetDescriptor<?>> deferredAssets;
+	/** The number of deferred assets that are sprites */
+	private int deferredSprites;
+	/** The deferred assets that have not arrived yet (null until streaming starts) */
+	private Array<String> pendingAssets;
+	/** The deferred assets that arrived this frame */
+	private Array<String> arrivedAssets;
+	/** The asset manager streaming the deferred assets */
+	private AssetManager streamManager;
+	/** The texture drawn in place of assets that have not arrived */
+	private Texture placeholder;
 
 	/**
 	 * Preloads the assets for this controller.
@@ -86,6 +116,9 @@ public abstract class WorldController implements Screen {
 	 * this time.  However, we still want the assets themselves to be static.  So
 	 * we have an AssetState that determines the current loading state.  If the
 	 * assets are already loaded, this method will do nothing.
+	 *
+	 * The loading screen waits for the assets queued here.  Assets that are not 
+	 * needed to start playing should be deferred instead (see deferAsset).
 	 * 
 	 * @param manager Reference to global asset manager.
 	 */
@@ -99,12 +132,11 @@ public abstract class WorldController implements Screen {
 		manager.load(BACKGROUND_FILE, Texture.class);
 		assets.add(BACKGROUND_FILE);
 		
-		// Load the font
+		// The font is only needed at the end of a level
 		FreetypeFontLoader.FreeTypeFontLoaderParameter size2Params = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
 		size2Params.fontFileName = FONT_FILE;
 		size2Params.fontParameters.size = FONT_SIZE;
-		manager.load(FONT_FILE, BitmapFont.class, size2Params);
-		assets.add(FONT_FILE);
+		deferAsset(new AssetDescriptor<BitmapFont>(FONT_FILE, BitmapFont.class, size2Params));
 	}
 
 	/**
@@ -126,6 +158,8 @@ public abstract class WorldController implements Screen {
 
 		setBackground(manager.get(BACKGROUND_FILE, Texture.class));
 		getBackground().setWrap(TextureWrap.Repeat, TextureWrap.Repeat);
+		backgroundLayers.clear();
+		backgroundLayers.add(new BackgroundLayer(getBackground(), bounds.width, bounds.height));
 		
 		// Allocate the font
 		if (manager.isLoaded(FONT_FILE)) {
@@ -133,15 +167,231 @@ public abstract class WorldController implements Screen {
 		} else {
 			displayFont = null;
 		}
+		
+		// Stream in everything else during play
+		Pixmap pixel = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+		pixel.setColor(PLACEHOLDER_COLOR);
+		pixel.fill();
+		placeholder = new Texture(pixel);
+		pixel.dispose();
+		startStreaming(manager);
 
 		worldAssetState = AssetState.COMPLETE;
 	}
 	
+	/**
+	 * Queues an asset to be streamed in during play.
+	 *
+	 * Deferred assets are not loaded before play starts.  They are queued once the
+	 * other assets are loaded, in the order deferred, and then loaded a little each
+	 * frame.  When one arrives, assetLoaded() is called with its file name.  Until
+	 * then, use a placeholder (see createPlaceholder).
+	 *
+	 * @param asset	The asset to stream in
+	 */
+	protected void deferAsset(AssetDescriptor<?> asset) {
+		deferredAssets.add(asset);
+		assets.add(asset.fileName);
+	}
+	
+	/**
+	 * Queues a sprite image to be streamed in during play.
+	 *
+	 * When the image arrives, it is packed into the sprite atlas, and createTexture
+	 * or createFilmStrip will then return it.  Until then they return null.
+	 *
+	 * @param file	The sprite image file
+	 */
+	protected void deferSprite(String file) {
+		deferAsset(new AssetDescriptor<Pixmap>(file, Pixmap.class));
+		spriteFiles.add(file);
+		deferredSprites++;
+	}
+	
+	/**
+	 * Returns true if some deferred assets have not arrived yet.
+	 *
+	 * @return true if some deferred assets have not arrived yet.
+	 */
+	public boolean isStreaming() {
+		return pendingAssets != null && pendingAssets.size > 0;
+	}
+	
+	/**
+	 * Returns a placeholder region of the given size (in pixels).
+	 *
+	 * The placeholder is a translucent gray box, to draw in place of a texture that
+	 * has not arrived yet.  This returns null if the content is not loaded (e.g.
+	 * when running headless), so it can be used wherever a texture may be null.
+	 *
+	 * @param width		The region width in pixels
+	 * @param height	The region height in pixels
+	 *
+	 * @return a placeholder region of the given size (in pixels).
+	 */
+	protected TextureRegion createPlaceholder(int width, int height) {
+		if (placeholder == null) {
+			return null;
+		}
+		return new TextureRegion(placeholder, 0, 0, width, height);
+	}
+	
+	/**
+	 * Called when a deferred asset arrives.
+	 *
+	 * This is called on the GL thread, between frames, while the simulation is
+	 * idle.  So it is safe to give the asset to the game objects here.  Subclasses
+	 * that override this method must call the superclass version.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 * @param file		The file name of the asset
+	 */
+	protected void assetLoaded(AssetManager manager, String file) {
+		if (file.equals(FONT_FILE)) {
+			displayFont = manager.get(FONT_FILE,BitmapFont.class);
+		}
+	}
+	
+	/**
+	 * Refreshes the static layer after the textures of immobile objects change.
+	 *
+	 * Immobile objects are only redrawn when they are added or removed.  Call this
+	 * after changing their textures (e.g. in assetLoaded) so they are redrawn too.
+	 * It must not be called while the simulation is running.
+	 */
+	protected void invalidateStatics() {
+		staticObjects.clear();
+	}
+	
+	/**
+	 * Queues the deferred assets on the asset manager.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 */
+	private void startStreaming(AssetManager manager) {
+		streamManager = manager;
+		if (deferredSprites > 0) {
+			// Pack the sprites that are here, so the late ones are added to them
+			getAtlas(manager);
+		}
+		pendingAssets = new Array<String>(deferredAssets.size);
+		arrivedAssets = new Array<String>(deferredAssets.size);
+		for(int ii = 0; ii < deferredAssets.size; ii++) {
+			AssetDescriptor<?> asset = deferredAssets.get(ii);
+			manager.load(asset);
+			pendingAssets.add(asset.fileName);
+		}
+	}
+	
+	/**
+	 * Loads deferred assets for a few milliseconds, and hands over any that arrived.
+	 *
+	 * Sprites are packed into the atlas as they arrive; the atlas textures are
+	 * updated in place, so regions created earlier stay valid.
+	 */
+	private void streamAssets() {
+		if (!isStreaming()) {
+			return;
+		}
+		streamManager.update(STREAM_BUDGET);
+		
+		boolean packed = false;
+		arrivedAssets.clear();
+		for(int ii = 0; ii < pendingAssets.size; ii++) {
+			String file = pendingAssets.get(ii);
+			if (!streamManager.isLoaded(file)) {
+				continue;
+			}
+			arrivedAssets.add(file);
+			if (spriteFiles.contains(file, false)) {
+				getAtlas(streamManager);
+				packer.pack(file, streamManager.get(file, Pixmap.class));
+				streamManager.unload(file);
+				deferredSprites--;
+				packed = true;
+			}
+		}
+		if (arrivedAssets.size == 0) {
+			return;
+		}
+		
+		pendingAssets.removeAll(arrivedAssets, false);
+		if (packed) {
+			packer.updateTextureAtlas(atlas, Texture.TextureFilter.Linear, Texture.TextureFilter.Linear, false);
+			if (deferredSprites == 0) {
+				packer.dispose();
+				packer = null;
+			}
+		}
+		for(int ii = 0; ii < arrivedAssets.size; ii++) {
+			assetLoaded(streamManager, arrivedAssets.get(ii));
+		}
+	}
+	
+	/**
+	 * Queues a sprite image to be loaded and packed into the sprite atlas.
+	 *
+	 * The image is loaded as a Pixmap.  Once everything is loaded, the first call
+	 * to createTexture or createFilmStrip packs all of these images onto a single 
+	 * texture, so that sprites can be drawn without switching textures.  Images
+	 * that repeat (like backgrounds) cannot be packed; load those as a Texture.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 * @param file		The sprite image file
+	 */
+	protected void loadSprite(AssetManager manager, String file) {
+		manager.load(file, Pixmap.class);
+		assets.add(file);
+		spriteFiles.add(file);
+	}
+	
+	/**
+	 * Returns the sprite atlas, packing it if necessary.
+	 *
+	 * The sprite images are unloaded from the asset manager after packing, as 
+	 * the atlas has its own copy of the pixels.  Deferred sprites that have not
+	 * arrived are packed later, by streamAssets.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 *
+	 * @return the sprite atlas, packing it if necessary.
+	 */
+	private TextureAtlas getAtlas(AssetManager manager) {
+		if (atlas != null) {
+			return atlas;
+		}
+		
+		packer = new PixmapPacker(ATLAS_PAGE_SIZE, ATLAS_PAGE_SIZE, Pixmap.Format.RGBA8888, ATLAS_PADDING, true);
+		for(String file : spriteFiles) {
+			if (manager.isLoaded(file)) {
+				packer.pack(file, manager.get(file, Pixmap.class));
+			}
+		}
+		if (packer.getPages().size > 1) {
+			Gdx.app.error("WorldController", "Sprites need "+packer.getPages().size+" atlas pages", new IllegalStateException());
+		}
+		atlas = packer.generateTextureAtlas(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear, false);
+		
+		// Deferred sprites are packed into the same atlas as they arrive
+		if (deferredSprites == 0) {
+			packer.dispose();
+			packer = null;
+		}
+		
+		for(String file : spriteFiles) {
+			if (manager.isLoaded(file)) {
+				manager.unload(file);
+			}
+		}
+		return atlas;
+	}
+	
 	/**
 	 * Returns a newly loaded texture region for the given file.
 	 *
 	 * This helper methods is used to set texture settings (such as scaling, and
-	 * whether or not the texture should repeat) after loading.
+	 * whether or not the texture should repeat) after loading.  Images queued
+	 * with loadSprite are taken from the sprite atlas instead.
 	 *
 	 * @param manager 	Reference to global asset manager.
 	 * @param file		The texture (region) file
@@ -150,7 +400,10 @@ public abstract class WorldController implements Screen {
 	 * @return a newly loaded texture region for the given file.
 	 */
 	protected TextureRegion createTexture(AssetManager manager, String file, boolean repeat) {
-		if (manager.isLoaded(file)) {
+		if (!repeat && spriteFiles.contains(file, false)) {
+			TextureRegion region = getAtlas(manager).findRegion(file);
+			return (region == null ? null : new TextureRegion(region));
+		} else if (manager.isLoaded(file)) {
 			TextureRegion region = new TextureRegion(manager.get(file, Texture.class));
 			region.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
 			if (repeat) {
@@ -165,7 +418,8 @@ public abstract class WorldController implements Screen {
 	 * Returns a newly loaded filmstrip for the given file.
 	 *
 	 * This helper methods is used to set texture settings (such as scaling, and
-	 * the number of animation frames) after loading.
+	 * the number of animation frames) after loading.  Images queued with 
+	 * loadSprite are taken from the sprite atlas instead.
 	 *
 	 * @param manager 	Reference to global asset manager.
 	 * @param file		The texture (region) file
@@ -176,7 +430,10 @@ public abstract class WorldController implements Screen {
 	 * @return a newly loaded texture region for the given file.
 	 */
 	protected FilmStrip createFilmStrip(AssetManager manager, String file, int rows, int cols, int size) {
-		if (manager.isLoaded(file)) {
+		if (spriteFiles.contains(file, false)) {
+			TextureRegion region = getAtlas(manager).findRegion(file);
+			return (region == null ? null : new FilmStrip(region,rows,cols,size));
+		} else if (manager.isLoaded(file)) {
 			FilmStrip strip = new FilmStrip(manager.get(file, Texture.class),rows,cols,size);
 			strip.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
 			return strip;
@@ -184,6 +441,27 @@ public abstract class WorldController implements Screen {
 		return null;
 	}
 	
+	/**
+	 * Returns a newly loaded sprite sheet for the given file.
+	 *
+	 * Unlike a filmstrip, a sprite sheet can be shared by every object that plays
+	 * it (see SimpleObstacle.setSheet).  Images queued with loadSprite are taken 
+	 * from the sprite atlas instead.
+	 *
+	 * @param manager 	Reference to global asset manager.
+	 * @param file		The texture (region) file
+	 * @param rows 		The number of rows in the sheet
+	 * @param cols 		The number of columns in the sheet
+	 * @param size 		The number of frames in the sheet
+	 * @param frameTime	The seconds to show each frame
+	 *
+	 * @return a newly loaded sprite sheet for the given file (null if not loaded)
+	 */
+	protected SpriteSheet createSpriteSheet(AssetManager manager, String file, int rows, int cols, int size, float frameTime) {
+		TextureRegion region = createTexture(manager, file, false);
+		return (region == null ? null : new SpriteSheet(region,rows,cols,size,frameTime));
+	}
+	
 	/** 
 	 * Unloads the assets for this game.
 	 * 
@@ -198,6 +476,19 @@ public abstract class WorldController implements Screen {
     			manager.unload(s);
     		}
     	}
+    	if (atlas != null) {
+    		atlas.dispose();
+    		atlas = null;
+    	}
+    	if (packer != null) {
+    		packer.dispose();
+    		packer = null;
+    	}
+    	if (placeholder != null) {
+    		placeholder.dispose();
+    		placeholder = null;
+    	}
+    	pendingAssets = null;
 	}
 	
 	/** Exit code for quitting the game */
@@ -215,6 +506,29 @@ public abstract class WorldController implements Screen {
 	public static final int WORLD_VELOC = 6;
 	/** Number of position iterations for the constrain solvers */
 	public static final int WORLD_POSIT = 2;
+	/** The default maximum number of physics steps in a single animation frame */
+	public static final int MAX_STEPS = 5;
+	
+	/** Timing phase for reading input (preUpdate) */
+	public static final int PHASE_PRE_UPDATE = 0;
+	/** Timing phase for the game logic (update) */
+	public static final int PHASE_UPDATE = 1;
+	/** Timing phase for the Box2D world step */
+	public static final int PHASE_STEP = 2;
+	/** Timing phase for the obstacle updates after the world step */
+	public static final int PHASE_OBJECTS = 3;
+	/** Timing phase for drawing (the only phase of the draw timer) */
+	public static final int PHASE_DRAW = 0;
+	/** The names of the simulation timing phases (for the overlay and CSV file) */
+	private static final String[] PHASE_NAMES = {"preUpdate", "update", "step", "objects"};
+	/** The names of the drawing timing phases (for the overlay and CSV file) */
+	private static final String[] DRAW_PHASE_NAMES = {"draw"};
+	/** The number of frames of timing to keep (a minute at 60 fps) */
+	private static final int TIMING_FRAMES = 3600;
+	/** The number of frames between refreshes of the timing overlay */
+	private static final int TIMING_REFRESH = 30;
+	/** The file to dump the frame timings to on exit */
+	private static final String TIMING_FILE = "timing.csv";
 	
 	/** Width of the game world in Box2d units */
 	protected static final float DEFAULT_WIDTH  = 32.0f;
@@ -222,6 +536,12 @@ public abstract class WorldController implements Screen {
 	protected static final float DEFAULT_HEIGHT = 18.0f;
 	/** The default value of gravity (going down) */
 	protected static final float DEFAULT_GRAVITY = -4.9f;
+	/** The slack around the view when culling, in Box2d units */
+	private static final float CULL_MARGIN = 1.0f;
+	/** The seconds of play that can be rewound (at the default step size) */
+	private static final float REWIND_SECONDS = 5.0f;
+	/** The number of objects the rewind buffer starts with room for */
+	private static final int REWIND_OBJECTS = 256;
 	
 	/** Reference to the game canvas */
 	protected GameCanvas canvas;
@@ -229,6 +549,8 @@ public abstract class WorldController implements Screen {
 	protected PooledList<Obstacle> objects  = new PooledList<Obstacle>();
 	/** Queue for adding objects */
 	protected PooledList<Obstacle> addQueue = new PooledList<Obstacle>();
+	/** The state of the objects over the last few seconds (cleared when they change) */
+	protected RewindBuffer rewind = new RewindBuffer((int)(REWIND_SECONDS/WORLD_STEP), REWIND_OBJECTS);
 	/** Listener that will update the player mode when we are done */
 	private ScreenListener listener;
 
@@ -238,6 +560,18 @@ public abstract class WorldController implements Screen {
 	protected Rectangle bounds;
 	/** The world scale */
 	protected Vector2 scale;
+	/** The visible part of the world this frame (reused for pixels and Box2d units) */
+	private Rectangle viewCache = new Rectangle();
+	/** The repeating background layers, drawn back to front */
+	protected Array<BackgroundLayer> backgroundLayers = new Array<BackgroundLayer>();
+	/** The immobile objects, as of the last snapshot (owned by the simulation) */
+	private Array<Obstacle> staticObjects = new Array<Obstacle>();
+	/** The version of the immobile objects (incremented whenever they change) */
+	private int staticVersion;
+	/** The immobile objects, prebuilt for drawing */
+	private StaticLayer staticLayer = new StaticLayer();
+	/** The version of the immobile objects in the static layer */
+	private int staticLayerVersion = -1;
 	
 	/** Whether or not this is an active controller */
 	private boolean active;
@@ -249,6 +583,53 @@ public abstract class WorldController implements Screen {
 	private boolean debug;
 	/** Countdown active for winning or losing */
 	private int countdown;
+	/** Whether this step plays the rewind buffer back instead of stepping the world */
+	private boolean rewinding;
+	
+	/** The amount of time simulated by a single physics step */
+	private float stepSize;
+	/** The maximum number of physics steps to take in a single animation frame */
+	private int maxSteps;
+	/** The amount of animation time not yet consumed by a physics step */
+	private float accumulator;
+	/** The fraction of a physics step to interpolate when drawing */
+	private float alpha;
+	/** The camera x-coordinate at the end of the previous physics step */
+	private float prevCameraX;
+	/** The camera y-coordinate at the end of the previous physics step */
+	private float prevCameraY;
+	/** The camera zoom at the end of the previous physics step */
+	private float prevCameraZoom;
+	/** The camera x-coordinate at the end of the current physics step */
+	private float currCameraX;
+	/** The camera y-coordinate at the end of the current physics step */
+	private float currCameraY;
+	/** The camera zoom at the end of the current physics step */
+	private float currCameraZoom;
+	
+	/** The visual state of the last two frames (one being drawn, one being written) */
+	private RenderSnapshot[] snapshots;
+	/** The index of the snapshot being drawn */
+	private int front;
+	/** The thread simulating the world (null unless running threaded) */
+	private SimulationThread simulation;
+	/** A screen exit requested by the simulation thread (-1 if none) */
+	private int pendingExit;
+	/** Whether the simulation thread asked for the level to be rebuilt */
+	private boolean pendingReset;
+	
+	/** The per-phase timing of the simulation of each animation frame */
+	private PhaseTimer timer;
+	/** The timing of the drawing of each animation frame (owned by the GL thread) */
+	private PhaseTimer drawTimer;
+	/** Whether or not to show the timing overlay */
+	private boolean showTiming;
+	/** The font for the timing overlay (created when first shown) */
+	private BitmapFont timingFont;
+	/** The text of the timing overlay */
+	private String timingText;
+	/** The number of frames until the timing overlay is refreshed */
+	private int timingCountdown;
 
 	/**
 	 * Returns true if debug mode is active.
@@ -272,6 +653,168 @@ public abstract class WorldController implements Screen {
 		debug = value;
 	}
 
+	/**
+	 * Returns the amount of time simulated by a single physics step.
+	 *
+	 * Physics is always advanced in steps of this size, no matter the animation
+	 * frame rate.  Rendering interpolates between steps to stay smooth.
+	 *
+	 * @return the amount of time simulated by a single physics step.
+	 */
+	public float getStepSize() {
+		return stepSize;
+	}
+	
+	/**
+	 * Sets the amount of time simulated by a single physics step.
+	 *
+	 * Physics is always advanced in steps of this size, no matter the animation
+	 * frame rate.  Rendering interpolates between steps to stay smooth.  A larger
+	 * step is cheaper, but less accurate.
+	 *
+	 * @param value the amount of time simulated by a single physics step.
+	 */
+	public void setStepSize(float value) {
+		assert value > 0 : "Step size must be positive";
+		stepSize = value;
+	}
+	
+	/**
+	 * Returns the maximum number of physics steps in a single animation frame.
+	 *
+	 * If an animation frame takes too long, the physics will only catch up this
+	 * many steps, and the remaining time is dropped.  This keeps a slow frame 
+	 * from making the next frame slower still.
+	 *
+	 * @return the maximum number of physics steps in a single animation frame.
+	 */
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+	
+	/**
+	 * Sets the maximum number of physics steps in a single animation frame.
+	 *
+	 * If an animation frame takes too long, the physics will only catch up this
+	 * many steps, and the remaining time is dropped.  This keeps a slow frame 
+	 * from making the next frame slower still.
+	 *
+	 * @param value the maximum number of physics steps in a single animation frame.
+	 */
+	public void setMaxSteps(int value) {
+		assert value > 0 : "Must allow at least one step per frame";
+		maxSteps = value;
+	}
+	
+	/**
+	 * Returns the fraction of a physics step to interpolate when drawing.
+	 *
+	 * This value is 0 right after a physics step, and approaches 1 just before
+	 * the next one.
+	 *
+	 * @return the fraction of a physics step to interpolate when drawing.
+	 */
+	public float getInterpolation() {
+		return alpha;
+	}
+
+	/**
+	 * Returns true if the simulation runs on its own thread.
+	 *
+	 * In threaded mode, the physics steps and game logic of a frame run on a
+	 * separate thread while the previous frame is drawn.  Drawing then only uses
+	 * the RenderSnapshot published by the simulation.
+	 *
+	 * @return true if the simulation runs on its own thread.
+	 */
+	public boolean isThreaded() {
+		return simulation != null;
+	}
+	
+	/**
+	 * Sets whether the simulation runs on its own thread.
+	 *
+	 * In threaded mode, the physics steps and game logic of a frame run on a
+	 * separate thread while the previous frame is drawn.  This adds a frame of
+	 * latency, but on a multi-core machine the physics and the drawing overlap
+	 * instead of adding up.  This method must be called from the GL thread.
+	 *
+	 * @param value whether the simulation runs on its own thread.
+	 */
+	public void setThreaded(boolean value) {
+		if (value && simulation == null) {
+			simulation = new SimulationThread(this);
+		} else if (!value && simulation != null) {
+			simulation.stop();
+			simulation = null;
+		}
+	}
+	
+	/**
+	 * Returns the visual state being drawn this frame.
+	 *
+	 * Subclasses that override draw() should draw from this snapshot instead of
+	 * the live objects, as the live objects may be changing on another thread.
+	 *
+	 * @return the visual state being drawn this frame.
+	 */
+	protected RenderSnapshot getSnapshot() {
+		return snapshots[front];
+	}
+
+	/**
+	 * Returns the per-phase timing of the simulation of the animation frames.
+	 *
+	 * The phases are the PHASE constants in this class, except for PHASE_DRAW.
+	 * In threaded mode, this timer belongs to the simulation thread.
+	 *
+	 * @return the per-phase timing of the simulation of the animation frames.
+	 */
+	public PhaseTimer getTimer() {
+		return timer;
+	}
+
+	/**
+	 * Returns the timing of the drawing of the animation frames.
+	 *
+	 * The only phase is PHASE_DRAW.  This timer belongs to the GL thread.
+	 *
+	 * @return the timing of the drawing of the animation frames.
+	 */
+	public PhaseTimer getDrawTimer() {
+		return drawTimer;
+	}
+	
+	/**
+	 * Returns true if the frame timing overlay is shown.
+	 *
+	 * @return true if the frame timing overlay is shown.
+	 */
+	public boolean isShowTiming() {
+		return showTiming;
+	}
+	
+	/**
+	 * Sets whether the frame timing overlay is shown.
+	 *
+	 * @param value whether the frame timing overlay is shown.
+	 */
+	public void setShowTiming(boolean value) {
+		showTiming = value;
+	}
+
+	/**
+	 * Returns true if this step rewinds the world instead of advancing it.
+	 *
+	 * While rewinding, the world is not stepped, so the update should not apply
+	 * any forces.
+	 *
+	 * @return true if this step rewinds the world instead of advancing it.
+	 */
+	public boolean isRewinding() {
+		return rewinding;
+	}
+
 	/**
 	 * Returns true if the level is completed.
 	 *
@@ -342,6 +885,17 @@ public abstract class WorldController implements Screen {
 		return canvas;
 	}
 	
+	/**
+	 * Returns the Box2D world of this controller
+	 *
+	 * The world is replaced whenever the level is reset, so do not keep it.
+	 *
+	 * @return the Box2D world of this controller
+	 */
+	public World getWorld() {
+		return world;
+	}
+	
 	/**
 	 * Sets the canvas associated with this controller
 	 *
@@ -354,6 +908,40 @@ public abstract class WorldController implements Screen {
 		this.canvas = canvas;
 		this.scale.x = canvas.getWidth()/bounds.getWidth();
 		this.scale.y = canvas.getHeight()/bounds.getHeight();
+		resetCamera();
+	}
+	
+	/**
+	 * Discards the camera history, snapping to the current camera.
+	 *
+	 * The camera is interpolated between physics steps like the objects.  This
+	 * method should be called whenever the camera jumps (e.g. when the level is
+	 * reset), so that the view does not appear to slide from the old position.
+	 */
+	protected void resetCamera() {
+		storeCamera();
+		prevCameraX = currCameraX;
+		prevCameraY = currCameraY;
+		prevCameraZoom = currCameraZoom;
+	}
+	
+	/**
+	 * Records the camera at the end of a physics step.
+	 *
+	 * The previous camera is kept for interpolation.  This does nothing if there
+	 * is no canvas (e.g. when running headless).
+	 */
+	private void storeCamera() {
+		if (canvas == null) {
+			return;
+		}
+		OrthographicCamera camera = canvas.getCamera();
+		prevCameraX = currCameraX;
+		prevCameraY = currCameraY;
+		prevCameraZoom = currCameraZoom;
+		currCameraX = camera.position.x;
+		currCameraY = camera.position.y;
+		currCameraZoom = camera.zoom;
 	}
 	
 	/**
@@ -395,6 +983,8 @@ public abstract class WorldController implements Screen {
 	 */
 	protected WorldController(Rectangle bounds, Vector2 gravity) {
 		assets = new Array<String>();
+		spriteFiles = new Array<String>();
+		deferredAssets = new Array<AssetDescriptor<?>>();
 		world = new World(gravity,false);
 		this.bounds = new Rectangle(bounds);
 		this.scale = new Vector2(1,1);
@@ -403,12 +993,32 @@ public abstract class WorldController implements Screen {
 		debug  = false;
 		active = false;
 		countdown = -1;
+		stepSize = WORLD_STEP;
+		maxSteps = MAX_STEPS;
+		accumulator = 0;
+		alpha = 0;
+		timer = new PhaseTimer(PHASE_NAMES, TIMING_FRAMES);
+		drawTimer = new PhaseTimer(DRAW_PHASE_NAMES, TIMING_FRAMES);
+		showTiming = false;
+		snapshots = new RenderSnapshot[] {new RenderSnapshot(), new RenderSnapshot()};
+		front = 0;
+		pendingExit = -1;
+		pendingReset = false;
 	}
 	
 	/**
 	 * Dispose of all (non-static) resources allocated to this mode.
 	 */
 	public void dispose() {
+		setThreaded(false);
+		if (timer.getFrameCount() > 0) {
+			PhaseTimer.writeCSV(Gdx.files.local(TIMING_FILE), new PhaseTimer[] {timer, drawTimer});
+		}
+		if (timingFont != null) {
+			timingFont.dispose();
+			timingFont = null;
+		}
+		staticLayer.dispose();
 		for(Obstacle obj : objects) {
 			obj.deactivatePhysics(world);
 		}
@@ -446,6 +1056,23 @@ public abstract class WorldController implements Screen {
 		assert inBounds(obj) : "Object is not in bounds";
 		objects.add(obj);
 		obj.activatePhysics(world);
+		obj.resetTransform();
+		rewind.clear();
+	}
+
+	/**
+	 * Adds the object to the game without creating its physics body.
+	 *
+	 * Use this for objects whose bodies are managed by a PhysicsStreamer.  The
+	 * object is still updated and drawn like any other object.
+	 *
+	 * param obj The object to add
+	 */
+	protected void addInactiveObject(Obstacle obj) {
+		assert inBounds(obj) : "Object is not in bounds";
+		objects.add(obj);
+		obj.resetTransform();
+		rewind.clear();
 	}
 
 	/**
@@ -483,7 +1110,7 @@ public abstract class WorldController implements Screen {
 	 */
 	public boolean preUpdate(float dt) {
 		InputController input = InputController.getInstance();
-		input.readInput(bounds, scale);
+		input.readInput();
 		if (listener == null) {
 			return true;
 		}
@@ -492,35 +1119,75 @@ public abstract class WorldController implements Screen {
 		if (input.didDebug()) {
 			debug = !debug;
 		}
+		if (input.didTiming()) {
+			setShowTiming(!showTiming);
+		}
 		
 		// Handle resets
 		if (input.didReset()) {
-			reset();
+			resetWorld();
+			if (pendingReset) {
+				return false;
+			}
 		}
+		rewinding = input.isRewinding() && rewind.getSize() > 0;
 		
 		// Now it is time to maybe switch screens.
 		if (input.didExit()) {
-			listener.exitScreen(this, EXIT_QUIT);
+			exitScreen(EXIT_QUIT);
 			return false;
 		} else if (input.didAdvance()) {
-			listener.exitScreen(this, EXIT_NEXT);
+			exitScreen(EXIT_NEXT);
 			return false;
 		} else if (input.didRetreat()) {
-			listener.exitScreen(this, EXIT_PREV);
+			exitScreen(EXIT_PREV);
 			return false;
 		} else if (countdown > 0) {
 			countdown--;
 		} else if (countdown == 0) {
 			if (failed) {
-				reset();
+				resetWorld();
+				return !pendingReset;
 			} else if (complete) {
-				listener.exitScreen(this, EXIT_NEXT);
+				exitScreen(EXIT_NEXT);
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	/**
+	 * Asks the screen listener to exit this mode.
+	 *
+	 * On the simulation thread, the request is passed to the GL thread, which
+	 * makes it once the frame is done.  Screen changes touch the graphics, so
+	 * they must not be made from another thread.
+	 *
+	 * @param code	The exit code
+	 */
+	private void exitScreen(int code) {
+		if (simulation != null) {
+			pendingExit = code;
+		} else {
+			listener.exitScreen(this, code);
+		}
+	}
+	
+	/**
+	 * Rebuilds the level.
+	 *
+	 * On the simulation thread, the request is passed to the GL thread, which
+	 * makes it once the frame is done.  A reset disposes of the objects, and the
+	 * GL thread may still be drawing them.
+	 */
+	private void resetWorld() {
+		if (simulation != null) {
+			pendingReset = true;
+		} else {
+			reset();
+		}
+	}
+	
 	/**
 	 * The core gameplay loop of this world.
 	 *
@@ -529,7 +1196,9 @@ public abstract class WorldController implements Screen {
 	 * This method is called after input is read, but before collisions are resolved.
 	 * The very last thing that it should do is apply forces to the appropriate objects.
 	 *
-	 * @param delta Number of seconds since last animation frame
+	 * This method is called once per physics step, not once per animation frame.
+	 *
+	 * @param delta Number of seconds in a physics step
 	 */
 	public abstract void update(float dt);
 	
@@ -540,20 +1209,38 @@ public abstract class WorldController implements Screen {
 	 * physics.  The primary method is the step() method in world.  This implementation
 	 * works for all applications and should not need to be overwritten.
 	 *
-	 * @param delta Number of seconds since last animation frame
+	 * The state of every mobile object and of the camera is recorded after each step.
+	 * While the player holds the rewind button, the world is not stepped, and the
+	 * recorded steps are played back instead.
+	 *
+	 * @param delta Number of seconds in a physics step
 	 */
 	public void postUpdate(float dt) {
+		// The camera only moves in update, so this is where it ends the step
+		storeCamera();
+		
 		// Add any objects created by actions
 		while (!addQueue.isEmpty()) {
 			addObject(addQueue.poll());
 		}
 		
+		// Play the last few seconds backwards instead
+		if (rewinding && rewind.rewind()) {
+			for(Obstacle obj : objects) {
+				obj.storeTransform();
+			}
+			return;
+		}
+		
 		// Turn the physics engine crank.
-		world.step(WORLD_STEP,WORLD_VELOC,WORLD_POSIT);
+		timer.start(PHASE_STEP);
+		world.step(dt,WORLD_VELOC,WORLD_POSIT);
+		timer.stop(PHASE_STEP);
 
 		// Garbage collect the deleted objects.
 		// Note how we use the linked list nodes to delete O(1) in place.
 		// This is O(n) without copying.
+		timer.start(PHASE_OBJECTS);
 		Iterator<PooledList<Obstacle>.Entry> iterator = objects.entryIterator();
 		while (iterator.hasNext()) {
 			PooledList<Obstacle>.Entry entry = iterator.next();
@@ -561,11 +1248,33 @@ public abstract class WorldController implements Screen {
 			if (obj.isRemoved()) {
 				obj.deactivatePhysics(world);
 				entry.remove();
+				rewind.clear();
 			} else {
 				// Note that update is called last!
 				obj.update(dt);
+				obj.storeTransform();
 			}
 		}
+		rewind.record(objects);
+		timer.stop(PHASE_OBJECTS);
+	}
+	
+	/**
+	 * Returns the part of the world visible on the canvas, in Box2d units.
+	 *
+	 * The rectangle is the camera view (including zoom), grown by a small margin.
+	 * Objects whose bounds do not overlap it are not drawn.  This method returns
+	 * the same rectangle each time, so do not modify it.
+	 *
+	 * @return the part of the world visible on the canvas, in Box2d units.
+	 */
+	protected Rectangle getCullBounds() {
+		canvas.getRenderBounds(viewCache);
+		viewCache.x = viewCache.x/scale.x-CULL_MARGIN;
+		viewCache.y = viewCache.y/scale.y-CULL_MARGIN;
+		viewCache.width  = viewCache.width/scale.x+2*CULL_MARGIN;
+		viewCache.height = viewCache.height/scale.y+2*CULL_MARGIN;
+		return viewCache;
 	}
 	
 	/**
@@ -574,42 +1283,55 @@ public abstract class WorldController implements Screen {
 	 * For simple worlds, this method is enough by itself.  It will need
 	 * to be overriden if the world needs fancy backgrounds or the like.
 	 *
-	 * The method draws all objects in the order that they were added.
+	 * The method draws all objects in the order that they were added, except that
+	 * immobile objects are drawn first (from the static layer).  Everything that
+	 * changes during play is read from the snapshot, never from the live objects.
 	 *
 	 * @param canvas The drawing context
 	 */
 	public void draw(float delta) {
+		RenderSnapshot snapshot = getSnapshot();
+		canvas.setRenderView(snapshot.getCameraX(), snapshot.getCameraY(), snapshot.getCameraZoom());
+		if (snapshot.getStaticVersion() != staticLayerVersion) {
+			canvas.beginCache(staticLayer);
+			snapshot.drawStatics(canvas);
+			canvas.endCache();
+			staticLayerVersion = snapshot.getStaticVersion();
+		}
+		
 		canvas.clear();
 		canvas.begin();
-		for (int i = -5; i < 5; i++) {
-			for (int j = -5; j < 5; j++) {
-				canvas.draw(getBackground(), Color.WHITE, canvas.getWidth()*i, canvas.getHeight()*j, 
-													 canvas.getWidth(),   canvas.getHeight());
-			}
+		canvas.getRenderBounds(viewCache);
+		for(int ii = 0; ii < backgroundLayers.size; ii++) {
+			backgroundLayers.get(ii).draw(canvas, viewCache, scale);
 		}
-//		canvas.draw(background, Color.WHITE, 0, 0, canvas.getWidth(), canvas.getHeight());
-		//canvas.draw(rocks, Color.WHITE, 0, 0, canvas.getWidth(), canvas.getHeight());
-		for(Obstacle obj : objects) {
-			obj.draw(canvas);
+		if (!staticLayer.isEmpty()) {
+			canvas.end();
+			canvas.drawCache(staticLayer);
+			canvas.begin();
 		}
+		Rectangle view = getCullBounds();
+		snapshot.draw(canvas, view);
 		
 		canvas.end();
 		
-		if (debug) {
+		if (snapshot.isDebug()) {
 			canvas.beginDebug();
-			for(Obstacle obj : objects) {
-				obj.drawDebug(canvas);
-			}
+			snapshot.drawDebug(canvas, view);
 			canvas.endDebug();
 		}
+		// One pass for the shapes of the snapshot and those queued on the canvas
+		canvas.drawOverlayShapes(snapshot.getOverlay());
 		
-		// Final message
-		if (complete && !failed) {
+		// Final message (once the font has streamed in)
+		if (displayFont == null) {
+			return;
+		} else if (snapshot.isComplete() && !snapshot.isFailure()) {
 			displayFont.setColor(Color.YELLOW);
 			canvas.begin(); // DO NOT SCALE
 			canvas.drawTextCentered("VICTORY!", displayFont, 0.0f);
 			canvas.end();
-		} else if (failed) {
+		} else if (snapshot.isFailure()) {
 			displayFont.setColor(Color.RED);
 			canvas.begin(); // DO NOT SCALE
 			canvas.drawTextCentered("FAILURE!", displayFont, 0.0f);
@@ -636,17 +1358,236 @@ public abstract class WorldController implements Screen {
 	 * We defer to the other methods update() and draw().  However, it is VERY important
 	 * that we only quit AFTER a draw.
 	 *
+	 * The physics is advanced in fixed steps, no matter the frame rate.  The animation
+	 * time is added to an accumulator, and we take as many steps as fit in it (up to
+	 * the maximum).  Whatever is left over is used to interpolate the drawing between
+	 * the last two steps.
+	 *
 	 * @param delta Number of seconds since last animation frame
 	 */
 	public void render(float delta) {
-		if (active) {
-			if (preUpdate(delta)) {
-				update(delta); // This is the one that must be defined.
-				postUpdate(delta);
+		if (!active) {
+			return;
+		}
+		
+		boolean simulated = false;
+		if (simulation != null && simulation.isBusy()) {
+			// Collect the frame simulated while the last one was drawn
+			simulation.finish();
+			simulated = true;
+			if (pendingExit >= 0) {
+				int code = pendingExit;
+				pendingExit = -1;
+				listener.exitScreen(this, code);
+			}
+			if (pendingReset) {
+				// The frame just simulated holds the old objects, so do not draw it
+				pendingReset = false;
+				reset();
+				simulated = false;
+			}
+		}
+		
+		// The simulation is idle, so arriving assets can be given to the objects
+		streamAssets();
+		refreshTiming();
+		
+		// The devices belong to the GL thread, so poll them for the steps of this frame
+		InputController.getInstance().pollDevices(bounds, scale);
+		
+		if (simulation == null) {
+			simulate(delta);
+			front = 1-front;
+		} else {
+			if (!simulated) {
+				// Nothing simulated yet, so show the world as it is
+				publish(snapshots[1-front]);
+			}
+			front = 1-front;
+			if (active) {
+				simulation.start(delta);
+			}
+		}
+		
+		drawTimer.start(PHASE_DRAW);
+		draw(delta);
+		drawTimer.stop(PHASE_DRAW);
+		drawTimer.endFrame();
+		
+		if (getSnapshot().isShowTiming()) {
+			drawTiming();
+		}
+	}
+	
+	/**
+	 * Advances the simulation by one animation frame, and publishes the result.
+	 *
+	 * The physics is advanced in fixed steps, no matter the frame rate.  The animation
+	 * time is added to an accumulator, and we take as many steps as fit in it (up to
+	 * the maximum).  Whatever is left over is used to interpolate the drawing between
+	 * the last two steps.  The visual state is then copied into the back snapshot,
+	 * which is drawn next frame.
+	 *
+	 * In threaded mode this runs on the simulation thread.
+	 *
+	 * @param delta Number of seconds since last animation frame
+	 */
+	void simulate(float delta) {
+		accumulator += delta;
+		int steps = 0;
+		while (accumulator >= stepSize && steps < maxSteps) {
+			accumulator -= stepSize;
+			steps++;
+			timer.start(PHASE_PRE_UPDATE);
+			boolean proceed = preUpdate(stepSize);
+			timer.stop(PHASE_PRE_UPDATE);
+			if (!proceed) {
+				accumulator = 0;
+				break;
+			}
+			timer.start(PHASE_UPDATE);
+			update(stepSize); // This is the one that must be defined.
+			timer.stop(PHASE_UPDATE);
+			postUpdate(stepSize);
+		}
+		
+		// Drop the time we could not catch up on
+		if (accumulator >= stepSize) {
+			accumulator %= stepSize;
+		}
+		alpha = accumulator/stepSize;
+		publish(snapshots[1-front]);
+		timer.endFrame();
+	}
+	
+	/**
+	 * Publishes the state of the world, as at the end of an animation frame.
+	 *
+	 * This is for tools that step the world by hand instead of calling render()
+	 * (such as the headless simulation), so that they still do the per-frame work
+	 * of the simulation thread.  It must not be called in threaded mode.
+	 */
+	public void publishFrame() {
+		assert simulation == null : "The simulation thread publishes its own frames";
+		publish(snapshots[1-front]);
+		front = 1-front;
+	}
+	
+	/**
+	 * Copies the visual state of the world into a snapshot.
+	 *
+	 * The mobile objects are interpolated here, on the thread that simulates them,
+	 * and only the result is copied.  Immobile objects are not copied every frame.
+	 * Instead, we compare them to the last snapshot, and only pass them on (with a
+	 * new version) if they changed.
+	 *
+	 * @param snapshot	The snapshot to write
+	 */
+	private void publish(RenderSnapshot snapshot) {
+		snapshot.clear();
+		boolean changed = false;
+		int count = 0;
+		for(Obstacle obj : objects) {
+			if (!obj.isImmobile()) {
+				obj.interpolate(alpha);
+				snapshot.add(obj);
+			} else {
+				if (count >= staticObjects.size || staticObjects.get(count) != obj) {
+					staticObjects.truncate(count);
+					staticObjects.add(obj);
+					changed = true;
+				}
+				count++;
 			}
-			draw(delta);
+		}
+		if (count < staticObjects.size) {
+			staticObjects.truncate(count);
+			changed = true;
+		}
+		if (changed) {
+			staticVersion++;
+		}
+		snapshot.setStatics(staticObjects, staticVersion);
+		snapshot.setComplete(complete);
+		snapshot.setFailure(failed);
+		snapshot.setDebug(debug);
+		snapshot.setShowTiming(showTiming);
+		if (canvas != null) {
+			snapshot.setCamera(prevCameraX+(currCameraX-prevCameraX)*alpha,
+							   prevCameraY+(currCameraY-prevCameraY)*alpha,
+							   prevCameraZoom+(currCameraZoom-prevCameraZoom)*alpha);
+		}
+		queueOverlay(snapshot.getOverlay());
+	}
+	
+	/**
+	 * Queues the overlay shapes (lines, circles, arcs) for the frame.
+	 *
+	 * This is called once per animation frame, after the physics steps.  In threaded
+	 * mode it runs on the simulation thread, so it may read the game state.  The
+	 * mobile objects are already interpolated, so shapes that follow an object
+	 * should use getDrawX() and getDrawY(), not its physics position.  The shapes
+	 * are in screen coordinates, and are drawn on top of the sprites.
+	 *
+	 * @param overlay	The overlay shapes of the frame
+	 */
+	protected void queueOverlay(OverlayBatch overlay) {
+	}
+	
+	/**
+	 * Refreshes the text of the frame timing overlay.
+	 *
+	 * The overlay shows the 50th, 95th and 99th percentile of each phase over
+	 * the stored frames, in milliseconds.  Computing the percentiles is not
+	 * free, so the text is only refreshed every few frames.  The simulation
+	 * timer belongs to the simulation thread, so this must only be called while
+	 * the simulation is idle.
+	 */
+	private void refreshTiming() {
+		if (!showTiming) {
+			timingCountdown = 0;
+			return;
+		}
+		if (timingCountdown <= 0) {
+			java.lang.StringBuilder text = new java.lang.StringBuilder();
+			text.append(String.format("%-10s %6s %6s %6s\n", "ms", "p50", "p95", "p99"));
+			appendTiming(text, timer);
+			appendTiming(text, drawTimer);
+			timingText = text.toString();
+			timingCountdown = TIMING_REFRESH;
+		}
+		timingCountdown--;
+	}
+	
+	/**
+	 * Appends the percentiles of each phase of a timer to the timing overlay.
+	 *
+	 * @param text	The text of the timing overlay
+	 * @param phases	The timer to append
+	 */
+	private static void appendTiming(java.lang.StringBuilder text, PhaseTimer phases) {
+		for(int ii = 0; ii < phases.getPhaseCount(); ii++) {
+			text.append(String.format("%-10s %6.2f %6.2f %6.2f\n", phases.getName(ii),
+									  phases.getPercentile(ii, 50), phases.getPercentile(ii, 95), 
+									  phases.getPercentile(ii, 99)));
 		}
 	}
+	
+	/**
+	 * Draws the frame timing overlay in the top left corner of the screen.
+	 */
+	private void drawTiming() {
+		if (timingText == null) {
+			return;
+		}
+		if (timingFont == null) {
+			timingFont = new BitmapFont();
+		}
+		timingFont.setColor(Color.WHITE);
+		canvas.beginOverlay();
+		canvas.drawText(timingText, timingFont, 10, canvas.getHeight()-10);
+		canvas.end();
+	}
 
 	/**
 	 * Called when the Screen is paused.
@@ -677,10 +1618,19 @@ public abstract class WorldController implements Screen {
 
 	/**
 	 * Called when this screen is no longer the current screen for a Game.
+	 *
+	 * This waits for the frame being simulated, and drops any exit or reset that
+	 * it requested.  The screen is already leaving, and the listener resets it
+	 * before showing it again.
 	 */
 	public void hide() {
 		// Useless if called in outside animation loop
 		active = false;
+		if (simulation != null) {
+			simulation.finish();
+			pendingExit = -1;
+			pendingReset = false;
+		}
 	}
 
 	/**
@@ -0,0 +1,209 @@
+/*
+ * LevelCompiler.java
+ *
+ * Levels are written by hand as JSON, because that is easy to read and to diff.
+ * But parsing JSON for a large level at startup is slow, and the game has no use
+ * for the text.  So this tool compiles each level into the binary form read by
+ * LevelData.  Run it whenever a level changes (gradlew core:compileLevels).
+ *
+ * A level source file looks like this (all positions in physics units):
+ *
+ *     {
+ *         koi:     [ 24, 4 ],
+ *         tethers: [ { x: 12, y: 2, type: Lilipad }, ... ],
+ *         enemies: [ { x: 20, y: 0, patrol: [ 20, 0, 20, 18 ] }, ... ],
+ *         walls:   [ [ 0, 18, 16, 18, 16, 17, ... ], ... ]
+ *     }
+ *
+ * The tether type is optional (the default is Lilipad), as is the enemy patrol.
+ * A patrol and a wall are flat lists of x, y pairs.
+ */
+package edu.cornell.gdiac.downstream.levels;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.downstream.models.TetherModel;
+
+/**
+ * Compiler from level source files (JSON) to compiled level files.
+ *
+ * This class does not need a running application, so it can be used from the
+ * command line or a build script.
+ */
+public class LevelCompiler {
+	/** The file extension of level source files */
+	public static final String SOURCE_EXTENSION = "json";
+	/** The file extension of compiled level files */
+	public static final String COMPILED_EXTENSION = "lvl";
+
+	/**
+	 * Returns the level described by a level source file.
+	 *
+	 * @param file	The level source file
+	 *
+	 * @return the level described by a level source file.
+	 */
+	public static LevelData parse(FileHandle file) {
+		try {
+			return parse(new JsonReader().parse(file));
+		} catch (SerializationException e) {
+			throw new GdxRuntimeException("Could not parse level "+file.path(), e);
+		} catch (GdxRuntimeException e) {
+			throw new GdxRuntimeException("Invalid level "+file.path(), e);
+		}
+	}
+
+	/**
+	 * Returns the level described by a parsed level source.
+	 *
+	 * @param json	The root of the level source
+	 *
+	 * @return the level described by a parsed level source.
+	 */
+	public static LevelData parse(JsonValue json) {
+		float[] koi = readPoints(json.get("koi"), "koi");
+		if (koi.length != 2) {
+			throw new GdxRuntimeException("koi must be a single x, y pair");
+		}
+
+		JsonValue list = json.get("tethers");
+		int count = (list == null ? 0 : list.size);
+		float[] tethers = new float[2*count];
+		int[] types = new int[count];
+		for(int ii = 0; ii < count; ii++) {
+			JsonValue tether = list.get(ii);
+			tethers[2*ii  ] = readFloat(tether, "x", "tether "+ii);
+			tethers[2*ii+1] = readFloat(tether, "y", "tether "+ii);
+			String type = tether.getString("type", TetherModel.TetherType.Lilipad.name());
+			try {
+				types[ii] = TetherModel.TetherType.valueOf(type).ordinal();
+			} catch (IllegalArgumentException e) {
+				throw new GdxRuntimeException("tether "+ii+" has unknown type "+type);
+			}
+		}
+
+		list = json.get("enemies");
+		count = (list == null ? 0 : list.size);
+		float[] enemies = new float[2*count];
+		int[] routeStart = new int[count+1];
+		FloatArray waypoints = new FloatArray();
+		for(int ii = 0; ii < count; ii++) {
+			JsonValue enemy = list.get(ii);
+			enemies[2*ii  ] = readFloat(enemy, "x", "enemy "+ii);
+			enemies[2*ii+1] = readFloat(enemy, "y", "enemy "+ii);
+			float[] route = (enemy.has("patrol") ? readPoints(enemy.get("patrol"), "enemy "+ii+" patrol") : new float[0]);
+			waypoints.addAll(route);
+			routeStart[ii+1] = routeStart[ii]+route.length/2;
+		}
+
+		list = json.get("walls");
+		count = (list == null ? 0 : list.size);
+		float[][] walls = new float[count][];
+		for(int ii = 0; ii < count; ii++) {
+			walls[ii] = readPoints(list.get(ii), "wall "+ii);
+			if (walls[ii].length < 6) {
+				throw new GdxRuntimeException("wall "+ii+" needs at least three points");
+			}
+		}
+
+		return new LevelData(koi, tethers, types, enemies, routeStart, waypoints.toArray(), walls);
+	}
+
+	/**
+	 * Returns the named number of a JSON object.
+	 *
+	 * @param json	The JSON object
+	 * @param name	The name of the number
+	 * @param owner	A description of the object (for error messages)
+	 *
+	 * @return the named number of a JSON object.
+	 */
+	private static float readFloat(JsonValue json, String name, String owner) {
+		JsonValue value = json.get(name);
+		if (value == null || !value.isNumber()) {
+			throw new GdxRuntimeException(owner+" needs a number "+name);
+		}
+		return value.asFloat();
+	}
+
+	/**
+	 * Returns a JSON array of x, y pairs as a flat array.
+	 *
+	 * @param json	The JSON array
+	 * @param owner	A description of the array (for error messages)
+	 *
+	 * @return a JSON array of x, y pairs as a flat array.
+	 */
+	private static float[] readPoints(JsonValue json, String owner) {
+		if (json == null || !json.isArray()) {
+			throw new GdxRuntimeException(owner+" must be a list of x, y pairs");
+		} else if (json.size % 2 != 0) {
+			throw new GdxRuntimeException(owner+" has an odd number of coordinates");
+		}
+		try {
+			return json.asFloatArray();
+		} catch (IllegalStateException e) {
+			throw new GdxRuntimeException(owner+" must only contain numbers", e);
+		}
+	}
+
+	/**
+	 * Writes the compiled form of a level to a file.
+	 *
+	 * @param level	The level to compile
+	 * @param file	The compiled level file
+	 */
+	public static void write(LevelData level, FileHandle file) {
+		ByteBuffer buffer = ByteBuffer.allocate(level.getCompiledSize());
+		level.write(buffer);
+		file.writeBytes(buffer.array(), false);
+	}
+
+	/**
+	 * Compiles a level source file to a compiled level file next to it.
+	 *
+	 * @param source	The level source file
+	 *
+	 * @return the compiled level file
+	 */
+	public static FileHandle compile(FileHandle source) {
+		FileHandle target = source.sibling(source.nameWithoutExtension()+"."+COMPILED_EXTENSION);
+		write(parse(source), target);
+		return target;
+	}
+
+	/**
+	 * Compiles the level source files given on the command line.
+	 *
+	 * Each argument is either a level source file, or a directory of them.  The
+	 * compiled files are written next to the sources.
+	 *
+	 * @param args	The level source files or directories
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: LevelCompiler <level.json | directory> ...");
+			System.exit(2);
+		}
+
+		int failures = 0;
+		for(int ii = 0; ii < args.length; ii++) {
+			FileHandle file = new FileHandle(new File(args[ii]));
+			FileHandle[] sources = (file.isDirectory() ? file.list("."+SOURCE_EXTENSION) : new FileHandle[] {file});
+			for(int jj = 0; jj < sources.length; jj++) {
+				try {
+					FileHandle target = compile(sources[jj]);
+					System.out.println("Compiled "+sources[jj].path()+" -> "+target.name()+" ("+target.length()+" bytes)");
+				} catch (GdxRuntimeException e) {
+					System.err.println(e.getMessage()+(e.getCause() != null ? ": "+e.getCause().getMessage() : ""));
+					failures++;
+				}
+			}
+		}
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,408 @@
+/*
+ * LevelData.java
+ *
+ * The layout of a single level: where the koi starts, where the tethers are, the
+ * enemies and their patrol routes, and the shape of the walls.  Levels are written
+ * by hand as JSON (see LevelCompiler), but the game never reads the JSON.  It reads
+ * the compiled binary form instead, which is just the numbers in the order that we
+ * need them.  On the desktop, that file is memory mapped, so loading a level is a
+ * handful of bulk copies with no parsing at all.
+ *
+ * The binary format is big-endian:
+ *
+ *     int    MAGIC ('DSLV')
+ *     int    VERSION
+ *     float  koi x, koi y
+ *     int    tether count, then for each tether: float x, float y, int type
+ *     int    enemy count, then for each enemy: float x, float y,
+ *            int waypoint count, then for each waypoint: float x, float y
+ *     int    wall count, then for each wall: int vertex count,
+ *            then for each vertex: float x, float y
+ */
+package edu.cornell.gdiac.downstream.levels;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.downstream.models.TetherModel;
+
+/**
+ * The static layout of a level, in physics coordinates.
+ *
+ * All of the data is stored in flat arrays, so that it can be copied to and from
+ * the binary form in bulk.  This class is immutable once loaded.
+ */
+public class LevelData {
+	/** The first four bytes of a compiled level ('DSLV') */
+	public static final int MAGIC = 0x44534C56;
+	/** The version of the compiled level format */
+	public static final int VERSION = 1;
+
+	/** The starting position of the koi (x, y) */
+	private float[] koi;
+	/** The tether positions (x, y pairs) */
+	private float[] tethers;
+	/** The tether types (ordinals of TetherModel.TetherType) */
+	private int[] tetherTypes;
+	/** The enemy positions (x, y pairs) */
+	private float[] enemies;
+	/** The start of each enemy route in the waypoints (with one extra at the end) */
+	private int[] routeStart;
+	/** The enemy patrol waypoints (x, y pairs), enemy by enemy */
+	private float[] waypoints;
+	/** The wall outlines (x, y pairs), one array per wall */
+	private float[][] walls;
+
+	/**
+	 * Creates a new level from the given arrays.
+	 *
+	 * The arrays are not copied.  Enemy i patrols the waypoints from pair
+	 * routeStart[i] up to (but not including) pair routeStart[i+1].
+	 *
+	 * @param koi			The starting position of the koi (x, y)
+	 * @param tethers		The tether positions (x, y pairs)
+	 * @param tetherTypes	The tether types (ordinals of TetherModel.TetherType)
+	 * @param enemies		The enemy positions (x, y pairs)
+	 * @param routeStart	The first waypoint of each enemy (with one extra at the end)
+	 * @param waypoints		The enemy patrol waypoints (x, y pairs)
+	 * @param walls			The wall outlines (x, y pairs), one array per wall
+	 */
+	public LevelData(float[] koi, float[] tethers, int[] tetherTypes, float[] enemies,
+					 int[] routeStart, float[] waypoints, float[][] walls) {
+		assert koi.length == 2 : "Koi position must be a single point";
+		assert tethers.length == 2*tetherTypes.length : "Every tether needs a type";
+		assert routeStart.length == enemies.length/2+1 : "Every enemy needs a route";
+		this.koi = koi;
+		this.tethers = tethers;
+		this.tetherTypes = tetherTypes;
+		this.enemies = enemies;
+		this.routeStart = routeStart;
+		this.waypoints = waypoints;
+		this.walls = walls;
+	}
+
+	/**
+	 * Returns the x-coordinate of the koi starting position.
+	 *
+	 * @return the x-coordinate of the koi starting position.
+	 */
+	public float getKoiX() {
+		return koi[0];
+	}
+
+	/**
+	 * Returns the y-coordinate of the koi starting position.
+	 *
+	 * @return the y-coordinate of the koi starting position.
+	 */
+	public float getKoiY() {
+		return koi[1];
+	}
+
+	/**
+	 * Returns the number of tethers in this level.
+	 *
+	 * @return the number of tethers in this level.
+	 */
+	public int getTetherCount() {
+		return tetherTypes.length;
+	}
+
+	/**
+	 * Returns the x-coordinate of the given tether.
+	 *
+	 * @param index	The tether index
+	 *
+	 * @return the x-coordinate of the given tether.
+	 */
+	public float getTetherX(int index) {
+		return tethers[2*index];
+	}
+
+	/**
+	 * Returns the y-coordinate of the given tether.
+	 *
+	 * @param index	The tether index
+	 *
+	 * @return the y-coordinate of the given tether.
+	 */
+	public float getTetherY(int index) {
+		return tethers[2*index+1];
+	}
+
+	/**
+	 * Returns the type of the given tether.
+	 *
+	 * @param index	The tether index
+	 *
+	 * @return the type of the given tether.
+	 */
+	public TetherModel.TetherType getTetherType(int index) {
+		return TetherModel.TetherType.values()[tetherTypes[index]];
+	}
+
+	/**
+	 * Returns the number of enemies in this level.
+	 *
+	 * @return the number of enemies in this level.
+	 */
+	public int getEnemyCount() {
+		return enemies.length/2;
+	}
+
+	/**
+	 * Returns the x-coordinate of the given enemy.
+	 *
+	 * @param index	The enemy index
+	 *
+	 * @return the x-coordinate of the given enemy.
+	 */
+	public float getEnemyX(int index) {
+		return enemies[2*index];
+	}
+
+	/**
+	 * Returns the y-coordinate of the given enemy.
+	 *
+	 * @param index	The enemy index
+	 *
+	 * @return the y-coordinate of the given enemy.
+	 */
+	public float getEnemyY(int index) {
+		return enemies[2*index+1];
+	}
+
+	/**
+	 * Returns the number of waypoints in the patrol route of the given enemy.
+	 *
+	 * @param index	The enemy index
+	 *
+	 * @return the number of waypoints in the patrol route of the given enemy.
+	 */
+	public int getWaypointCount(int index) {
+		return routeStart[index+1]-routeStart[index];
+	}
+
+	/**
+	 * Returns the x-coordinate of a waypoint of the given enemy.
+	 *
+	 * @param index		The enemy index
+	 * @param waypoint	The waypoint index in the enemy route
+	 *
+	 * @return the x-coordinate of a waypoint of the given enemy.
+	 */
+	public float getWaypointX(int index, int waypoint) {
+		return waypoints[2*(routeStart[index]+waypoint)];
+	}
+
+	/**
+	 * Returns the y-coordinate of a waypoint of the given enemy.
+	 *
+	 * @param index		The enemy index
+	 * @param waypoint	The waypoint index in the enemy route
+	 *
+	 * @return the y-coordinate of a waypoint of the given enemy.
+	 */
+	public float getWaypointY(int index, int waypoint) {
+		return waypoints[2*(routeStart[index]+waypoint)+1];
+	}
+
+	/**
+	 * Returns the number of walls in this level.
+	 *
+	 * @return the number of walls in this level.
+	 */
+	public int getWallCount() {
+		return walls.length;
+	}
+
+	/**
+	 * Returns the outline of the given wall (x, y pairs).
+	 *
+	 * This is the array owned by the level, so do not modify it.
+	 *
+	 * @param index	The wall index
+	 *
+	 * @return the outline of the given wall (x, y pairs).
+	 */
+	public float[] getWall(int index) {
+		return walls[index];
+	}
+
+	/**
+	 * Returns the number of bytes in the compiled form of this level.
+	 *
+	 * @return the number of bytes in the compiled form of this level.
+	 */
+	public int getCompiledSize() {
+		int size = 4*(2+2+1+3*tetherTypes.length+1+3*getEnemyCount()+waypoints.length+1);
+		for(int ii = 0; ii < walls.length; ii++) {
+			size += 4*(1+walls[ii].length);
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the compiled form of this level to a buffer.
+	 *
+	 * The buffer must have at least getCompiledSize() bytes remaining.
+	 *
+	 * @param buffer	The buffer to write to
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putFloat(koi[0]);
+		buffer.putFloat(koi[1]);
+
+		buffer.putInt(tetherTypes.length);
+		for(int ii = 0; ii < tetherTypes.length; ii++) {
+			buffer.putFloat(tethers[2*ii]);
+			buffer.putFloat(tethers[2*ii+1]);
+			buffer.putInt(tetherTypes[ii]);
+		}
+
+		buffer.putInt(getEnemyCount());
+		for(int ii = 0; ii < getEnemyCount(); ii++) {
+			buffer.putFloat(enemies[2*ii]);
+			buffer.putFloat(enemies[2*ii+1]);
+			buffer.putInt(getWaypointCount(ii));
+			for(int jj = 2*routeStart[ii]; jj < 2*routeStart[ii+1]; jj++) {
+				buffer.putFloat(waypoints[jj]);
+			}
+		}
+
+		buffer.putInt(walls.length);
+		for(int ii = 0; ii < walls.length; ii++) {
+			buffer.putInt(walls[ii].length/2);
+			buffer.asFloatBuffer().put(walls[ii]);
+			buffer.position(buffer.position()+4*walls[ii].length);
+		}
+	}
+
+	/**
+	 * Returns the level read from the compiled form in a buffer.
+	 *
+	 * @param buffer	The buffer to read from
+	 *
+	 * @return the level read from the compiled form in a buffer.
+	 */
+	public static LevelData read(ByteBuffer buffer) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new GdxRuntimeException("Not a compiled level");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new GdxRuntimeException("Compiled level has version "+version+" (expected "+VERSION+")");
+			}
+			float[] koi = new float[2];
+			koi[0] = buffer.getFloat();
+			koi[1] = buffer.getFloat();
+
+			int count = buffer.getInt();
+			float[] tethers = new float[2*count];
+			int[] types = new int[count];
+			int ntypes = TetherModel.TetherType.values().length;
+			for(int ii = 0; ii < count; ii++) {
+				tethers[2*ii  ] = buffer.getFloat();
+				tethers[2*ii+1] = buffer.getFloat();
+				types[ii] = buffer.getInt();
+				if (types[ii] < 0 || types[ii] >= ntypes) {
+					throw new GdxRuntimeException("Tether "+ii+" has unknown type "+types[ii]);
+				}
+			}
+
+			// Enemy routes vary in length, so we do not know the total in advance
+			count = buffer.getInt();
+			float[] enemies = new float[2*count];
+			int[] routeStart = new int[count+1];
+			FloatArray waypoints = new FloatArray();
+			for(int ii = 0; ii < count; ii++) {
+				enemies[2*ii  ] = buffer.getFloat();
+				enemies[2*ii+1] = buffer.getFloat();
+				int length = buffer.getInt();
+				routeStart[ii+1] = routeStart[ii]+length;
+				float[] items = waypoints.ensureCapacity(2*length);
+				buffer.asFloatBuffer().get(items, waypoints.size, 2*length);
+				buffer.position(buffer.position()+8*length);
+				waypoints.size += 2*length;
+			}
+
+			count = buffer.getInt();
+			float[][] walls = new float[count][];
+			for(int ii = 0; ii < count; ii++) {
+				walls[ii] = new float[2*buffer.getInt()];
+				buffer.asFloatBuffer().get(walls[ii]);
+				buffer.position(buffer.position()+4*walls[ii].length);
+			}
+			return new LevelData(koi, tethers, types, enemies, routeStart, waypoints.toArray(), walls);
+		} catch (BufferUnderflowException e) {
+			throw new GdxRuntimeException("Compiled level is truncated", e);
+		} catch (NegativeArraySizeException e) {
+			throw new GdxRuntimeException("Compiled level is corrupt", e);
+		} catch (IllegalArgumentException e) {
+			throw new GdxRuntimeException("Compiled level is corrupt", e);
+		}
+	}
+
+	/**
+	 * Returns the level read from a compiled level file.
+	 *
+	 * If the file is on the file system (as on the desktop), it is memory mapped.
+	 * Otherwise (e.g. inside a jar or an Android APK) it is read into memory first.
+	 *
+	 * @param file	The compiled level file
+	 *
+	 * @return the level read from a compiled level file.
+	 */
+	public static LevelData load(FileHandle file) {
+		ByteBuffer buffer = null;
+		File source = file.file();
+		if (source.isFile()) {
+			buffer = map(source);
+		}
+		if (buffer == null) {
+			buffer = ByteBuffer.wrap(file.readBytes());
+		}
+		try {
+			return read(buffer);
+		} catch (GdxRuntimeException e) {
+			throw new GdxRuntimeException("Could not load level "+file.path(), e);
+		}
+	}
+
+	/**
+	 * Returns a read-only memory map of the given file, or null if it cannot be mapped.
+	 *
+	 * The map stays valid after the channel is closed.
+	 *
+	 * @param file	The file to map
+	 *
+	 * @return a read-only memory map of the given file, or null if it cannot be mapped.
+	 */
+	private static ByteBuffer map(File file) {
+		RandomAccessFile input = null;
+		try {
+			input = new RandomAccessFile(file, "r");
+			FileChannel channel = input.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// The map does not need the file to stay open
+				}
+			}
+		}
+	}
+}
@@ -14,8 +14,10 @@ package edu.cornell.gdiac.downstream.models;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.FloatArray;
 
 import edu.cornell.gdiac.downstream.*;  // For GameCanvas
+import edu.cornell.gdiac.downstream.obstacle.DebugOutline;
 import edu.cornell.gdiac.downstream.obstacle.SimpleObstacle;
 //Downstream-core refactor
 /**
@@ -35,7 +37,25 @@ public class EnemyModel extends SimpleObstacle {
 	/** Cache of the polygon vertices (for resizing) */
 	private float[] vertices;
 	
+	/** The speed of an enemy along its route (0.1 units per step at 60 steps a second) */
+	private static final float DEFAULT_SPEED = 6.0f;
+	/** How close an enemy must be to a waypoint to have reached it */
+	private static final float ARRIVAL_RADIUS = 0.01f;
+	/** How far the angle can be from the heading before the fish turns */
+	private static final float TURN_EPSILON = 0.001f;
+
+	/** The point the fish is swimming towards */
 	private Vector2 goal = new Vector2(0, 0);
+	/** The patrol route, as x, y pairs (empty if the fish only has a goal) */
+	private FloatArray route = new FloatArray();
+	/** The index of the waypoint the fish is swimming towards */
+	private int waypoint;
+	/** The direction along the route (1 or -1) */
+	private int direction = 1;
+	/** The speed of the fish along its route */
+	private float speed = DEFAULT_SPEED;
+	/** Cache object for the velocity towards the goal */
+	private Vector2 velocityCache = new Vector2();
 	
 	/** 
 	 * Returns the dimensions of this box
@@ -147,6 +167,7 @@ public class EnemyModel extends SimpleObstacle {
 		
 		// Initialize
 		resize(width, height);	
+		CollisionLayer.setCategory(this, CollisionLayer.ENEMY);
 	}
 	
 	/**
@@ -196,68 +217,189 @@ public class EnemyModel extends SimpleObstacle {
 	}
 
 	
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * This is the extent of the texture and the box.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		super.computeLocalBounds(result);
+		result.merge(-dimension.x/2.0f, -dimension.y/2.0f);
+		result.merge( dimension.x/2.0f,  dimension.y/2.0f);
+	}
+
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+		outline.addPolygon(shape);
+	}
+
 	/**
 	 * Draws the outline of the physics body.
 	 *
 	 * This method can be helpful for understanding issues with collisions.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void drawDebug(GameCanvas canvas) {
-		canvas.drawPhysics(shape,Color.YELLOW,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
+	public void drawDebug(GameCanvas canvas, float[] state, int offset) {
+		outline.draw(canvas,Color.YELLOW,state[offset],state[offset+1],state[offset+2],drawScale.x,drawScale.y);
 	}
 	
+	/**
+	 * Returns the point the fish is swimming towards
+	 *
+	 * This method returns a reference to the goal, so changes to it will affect
+	 * the fish (until it reaches its next waypoint).
+	 *
+	 * @return the point the fish is swimming towards
+	 */
 	public Vector2 getGoal() {
 		return this.goal;
 	}
 	
 	/** 
 	 * Sets the goal state to where the fish wants to go
-	 * @param x
-	 * @param y
+	 *
+	 * A fish with a patrol route replaces its goal when it reaches it.
+	 *
+	 * @param x  the x-coordinate of the goal
+	 * @param y  the y-coordinate of the goal
 	 */
 	public void setGoal(float x, float y){
 		this.goal.set(x, y);
 	}
 	
 	/**
-	 * Makes the goal state of the fish alternate between two points
-	 * @param x1
-	 * @param y1
-	 * @param x2
-	 * @param y2
+	 * Returns the speed of the fish along its route (in physics units per second)
+	 *
+	 * @return the speed of the fish along its route
 	 */
-	public void patrol(float x1, float y1, float x2, float y2){
-		boolean turnAround = (getX() > (x1 - 1) && getX() < (x1 + 1)) && (getY() > (y1 - 1) && getY() < (y1 + 1));
-		boolean turnAround2 = (getX() > (x2 - 1) && getX() < (x2 + 1)) && (getY() > (y2 - 1) && getY() < (y2 + 1));
-		
-		if (turnAround){
-			this.goal.set(x2, y2);
-			setAngle((float) (getAngle() + Math.PI));
-		}
-		if (turnAround2){
-			this.goal.set(x1, y1);
-			setAngle((float) (getAngle() + Math.PI));
+	public float getSpeed() {
+		return speed;
+	}
+	
+	/**
+	 * Sets the speed of the fish along its route (in physics units per second)
+	 *
+	 * @param value  the speed of the fish along its route
+	 */
+	public void setSpeed(float value) {
+		speed = value;
+	}
+	
+	/**
+	 * Adds a waypoint to the end of the patrol route
+	 *
+	 * The fish swims from one waypoint to the next, and then back again along the
+	 * same route.  Call restartRoute() once the route is complete.
+	 *
+	 * @param x  the x-coordinate of the waypoint
+	 * @param y  the y-coordinate of the waypoint
+	 */
+	public void addWaypoint(float x, float y) {
+		route.add(x);
+		route.add(y);
+	}
+	
+	/**
+	 * Returns the number of waypoints in the patrol route
+	 *
+	 * @return the number of waypoints in the patrol route
+	 */
+	public int getWaypointCount() {
+		return route.size/2;
+	}
+	
+	/**
+	 * Sends the fish back to the first waypoint of its route
+	 *
+	 * This does nothing if the fish has no route.
+	 */
+	public void restartRoute() {
+		if (route.size == 0) {
+			return;
 		}
+		waypoint = 0;
+		direction = 1;
+		goal.set(route.get(0), route.get(1));
 	}
+	
 	/**
 	 * Call during update, will move the fish towards the goal state
+	 *
+	 * The fish is a kinematic body, so this does not move it.  It sets the velocity
+	 * that takes it towards the goal, and the next world step does the moving.  On
+	 * arrival at a waypoint, the goal becomes the next one on the route.  The fish
+	 * turns to face the way it is swimming in the same way, with an angular velocity.
+	 * Box2D limits how far a body turns in one step, so turning around takes a few
+	 * steps.
+	 *
+	 * @param dt  the length of the next world step (in seconds)
 	 */
-	public void moveTowardsGoal(){
-		if (getX() < goal.x){
-			setX((float) (getX() + .1));
+	public void moveTowardsGoal(float dt) {
+		Vector2 position = getPosition();
+		float dx = goal.x-position.x;
+		float dy = goal.y-position.y;
+		float distance = (float)Math.sqrt(dx*dx+dy*dy);
+		if (distance <= ARRIVAL_RADIUS && route.size >= 4) {
+			nextWaypoint();
+			dx = goal.x-position.x;
+			dy = goal.y-position.y;
+			distance = (float)Math.sqrt(dx*dx+dy*dy);
 		}
-		else if (getX() > goal.x){
-			setX((float) (getX() - .1));
+		
+		if (distance <= ARRIVAL_RADIUS) {
+			velocityCache.set(0, 0);
+		} else {
+			// Do not overshoot the goal on the last step
+			float step = Math.min(speed, distance/dt);
+			velocityCache.set(dx*step/distance, dy*step/distance);
 		}
 		
-		if (getY() < goal.y){
-			setY((float) (getY() + .1));
+		// Every body call is native, and the velocity only changes at a waypoint
+		Vector2 velocity = getLinearVelocity();
+		boolean moved = (velocity.x != velocityCache.x || velocity.y != velocityCache.y);
+		if (!moved && getAngularVelocity() == 0) {
+			return;
 		}
-		else if (getY() > goal.y){
-			setY((float) (getY() - .1));
+		if (moved) {
+			setLinearVelocity(velocityCache);
 		}
-
+		
+		// Setting the angle would move the body in the broadphase, so let the solver turn it
+		float spin = 0;
+		if (distance > ARRIVAL_RADIUS) {
+			float turn = (float)Math.atan2(dy, dx)-getAngle();
+			while (turn > MathUtils.PI) {
+				turn -= MathUtils.PI2;
+			}
+			while (turn < -MathUtils.PI) {
+				turn += MathUtils.PI2;
+			}
+			if (Math.abs(turn) > TURN_EPSILON) {
+				spin = turn/dt;
+			}
+		}
+		setAngularVelocity(spin);
+	}
+	
+	/**
+	 * Makes the next waypoint on the route the goal, turning back at either end
+	 */
+	private void nextWaypoint() {
+		int count = route.size/2;
+		if (waypoint+direction < 0 || waypoint+direction >= count) {
+			direction = -direction;
+		}
+		waypoint += direction;
+		goal.set(route.get(2*waypoint), route.get(2*waypoint+1));
 	}
 
 }
@@ -43,6 +43,8 @@ public class PlayerModel extends BoxObstacle {
 	private int health;
 
 	private Vector2 force;
+	/** Cache for the tangent point (so we do not allocate every frame) */
+	private Vector2 tangentCache;
 
 	/** Create a new player at x,y. */
 	public PlayerModel(float x, float y, float width, float height) {
@@ -54,7 +56,9 @@ public class PlayerModel extends BoxObstacle {
 		setRestitution(DEFAULT_RESTITUTION);
 		setGravityScale(0);
 		setName("player");
+		CollisionLayer.setCategory(this, CollisionLayer.KOI);
 		force = new Vector2();
+		tangentCache = new Vector2();
 		health = 1;
 	}
 
@@ -70,13 +74,41 @@ public class PlayerModel extends BoxObstacle {
 		applyTetherForce(tether.calculateAttractiveForce(this));
 	}
 
+	/**
+	 * Returns the point where the current heading is tangent to an orbit of the tether.
+	 *
+	 * This method does NOT allocate a new vector.  It returns the same vector each
+	 * time it is called, and so cannot be used as an allocator.
+	 *
+	 * @param tether	The tether position
+	 *
+	 * @return the point where the current heading is tangent to an orbit of the tether.
+	 */
 	public Vector2 getInitialTangentPoint(Vector2 tether) {
+		return getInitialTangentPoint(tether, getX(), getY());
+	}
+
+	/**
+	 * Returns the point where the heading from the given position is tangent to an 
+	 * orbit of the tether.
+	 *
+	 * This is for positions other than the current one, such as the interpolated
+	 * drawing position.  This method does NOT allocate a new vector.  It returns the 
+	 * same vector each time it is called, and so cannot be used as an allocator.
+	 *
+	 * @param tether	The tether position
+	 * @param x			The x-coordinate of the koi
+	 * @param y			The y-coordinate of the koi
+	 *
+	 * @return the point where the heading from the given position is tangent to an orbit.
+	 */
+	public Vector2 getInitialTangentPoint(Vector2 tether, float x, float y) {
 		if (getVX() == 0) setVX(.00001f);
 		if (getVY() == 0) setVY(.00001f);
 		float slope = getVY() / getVX();
-		float xtan = (slope * getX() - getY() + tether.x / slope + tether.y) / (slope + 1 / slope);
-		float ytan = slope * xtan - slope * getX() + getY();
-		return new Vector2(xtan, ytan);
+		float xtan = (slope * x - y + tether.x / slope + tether.y) / (slope + 1 / slope);
+		float ytan = slope * xtan - slope * x + y;
+		return tangentCache.set(xtan, ytan);
 	}
 	
 	public Vector2 timeToIntersect(Vector2 target) {
@@ -94,9 +126,11 @@ public class PlayerModel extends BoxObstacle {
 	 * Draws the physics object.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void draw(GameCanvas canvas) {
-		super.draw(canvas);  
+	public void draw(GameCanvas canvas, float[] state, int offset) {
+		super.draw(canvas, state, offset);  
 //		canvas.drawLeadingLine(body.getPosition(), new Vector2(0,0));
 
 	}
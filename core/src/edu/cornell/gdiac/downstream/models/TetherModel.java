@@ -13,6 +13,7 @@ import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.physics.box2d.*;
 
 import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.*;
 import edu.cornell.gdiac.downstream.obstacle.*;
 
 public class TetherModel extends WheelObstacle {
@@ -34,6 +35,9 @@ public class TetherModel extends WheelObstacle {
   /** The type of this tether */
   private TetherType type;
 
+  /** Cache for the attractive force (so we do not allocate every frame) */
+  private Vector2 forceCache = new Vector2();
+
   /** Tethers can be lilipads, lanterns, or lotus flowers */
   public enum TetherType {
     Lilipad,
@@ -46,6 +50,7 @@ public class TetherModel extends WheelObstacle {
 	  super(x,y,TETHER_DEFAULT_RADIUS);
 	  setType(type);
     setBodyType(TETHER_BODY_TYPE);
+    CollisionLayer.setCategory(this, CollisionLayer.TETHER);
   }
   
   public TetherModel(float x, float y, float w, float h) {
@@ -53,14 +58,25 @@ public class TetherModel extends WheelObstacle {
 	  super(x,y,TETHER_DEFAULT_RADIUS);
 	 setType(TetherType.Lilipad);
     setBodyType(TETHER_BODY_TYPE);
+    CollisionLayer.setCategory(this, CollisionLayer.TETHER);
   }
 
   public void setType(TetherType newType) {
     type = newType;
   }
 
+  /**
+   * Returns the force pulling the player into orbit around this tether.
+   *
+   * This method does NOT allocate a new vector.  It returns the same vector each
+   * time it is called, and so cannot be used as an allocator.
+   *
+   * @param player The object in orbit
+   *
+   * @return the force pulling the player into orbit around this tether.
+   */
   public Vector2 calculateAttractiveForce(Obstacle player) {
-    Vector2 direction = this.getPosition().sub(player.getPosition());
+    Vector2 direction = forceCache.set(getPosition()).sub(player.getPosition());
     float radius = direction.len();
     float forceMagnitude = (float) (player.getMass() * player.getLinearVelocity().len2() / radius);
     return direction.setLength(forceMagnitude);
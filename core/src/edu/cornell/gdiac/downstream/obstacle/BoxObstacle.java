@@ -193,15 +193,39 @@ public class BoxObstacle extends SimpleObstacle {
 	}
 
 	
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * This is the extent of the texture and the box.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		super.computeLocalBounds(result);
+		result.merge(-dimension.x/2.0f, -dimension.y/2.0f);
+		result.merge( dimension.x/2.0f,  dimension.y/2.0f);
+	}
+
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+		outline.addPolygon(shape);
+	}
+
 	/**
 	 * Draws the outline of the physics body.
 	 *
 	 * This method can be helpful for understanding issues with collisions.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void drawDebug(GameCanvas canvas) {
-		canvas.drawPhysics(shape,Color.YELLOW,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
+	public void drawDebug(GameCanvas canvas, float[] state, int offset) {
+		outline.draw(canvas,Color.YELLOW,state[offset],state[offset+1],state[offset+2],drawScale.x,drawScale.y);
 	}
 
 
@@ -477,42 +477,54 @@ public class CapsuleObstacle extends SimpleObstacle {
 	}
 	
 	/**
-	 * Draws the outline of the physics body.
+	 * Computes the extent of this object around its position, ignoring rotation.
 	 *
-	 * This method can be helpful for understanding issues with collisions.
+	 * This is the extent of the texture and the capsule.
 	 *
-	 * @param canvas Drawing context
+	 * @param result	The rectangle to store the extent
 	 */
-	public void drawDebug(GameCanvas canvas) {
-		canvas.drawPhysics(shape,Color.YELLOW,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
-		if (cap1 != null) {
-			// Need to manually rotate caps off axis
-			float dx; float dy;
-			if (isHorizontal(orient)) {
-				float r = -center.x;
-				dx = (float)(r*Math.cos(Math.PI+getAngle()));
-				dy = (float)(r*Math.sin(Math.PI+getAngle()));
+	protected void computeLocalBounds(Rectangle result) {
+		super.computeLocalBounds(result);
+		result.merge(-dimension.x/2.0f, -dimension.y/2.0f);
+		result.merge( dimension.x/2.0f,  dimension.y/2.0f);
+	}
+
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+		outline.addPolygon(shape);
+		// The caps sit on the ends of the core, in body coordinates
+		boolean horizontal = isHorizontal(orient);
+		if (orient != Orientation.BOTTOM && orient != Orientation.RIGHT) {
+			if (horizontal) {
+				outline.addCircle(center.x,0,end1.getRadius());
 			} else {
-				float r = center.y+center.height;
-				dx = (float)(r*Math.cos(Math.PI/2.0f+getAngle()));
-				dy = (float)(r*Math.sin(Math.PI/2.0f+getAngle()));
+				outline.addCircle(0,center.y+center.height,end1.getRadius());
 			}
-			canvas.drawPhysics(end1,Color.YELLOW,getX()+dx,getY()+dy,drawScale.x,drawScale.y);			
 		}
-		if (cap2 != null) {
-			// Need to manually rotate caps off axis
-			float dx; float dy;
-			if (isHorizontal(orient)) {
-				float r = center.x+center.width;
-				dx = (float)(r*Math.cos(getAngle()));
-				dy = (float)(r*Math.sin(getAngle()));
+		if (orient != Orientation.TOP && orient != Orientation.LEFT) {
+			if (horizontal) {
+				outline.addCircle(center.x+center.width,0,end2.getRadius());
 			} else {
-				float r = -center.y;
-				dx = (float)(r*Math.cos(-Math.PI/2.0f+getAngle()));
-				dy = (float)(r*Math.sin(-Math.PI/2.0f+getAngle()));
+				outline.addCircle(0,center.y,end2.getRadius());
 			}
-			canvas.drawPhysics(end2,Color.YELLOW,getX()+dx,getY()+dy,drawScale.x,drawScale.y);			
 		}
 	}
 
+	/**
+	 * Draws the outline of the physics body.
+	 *
+	 * This method can be helpful for understanding issues with collisions.
+	 *
+	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
+	 */
+	public void drawDebug(GameCanvas canvas, float[] state, int offset) {
+		outline.draw(canvas,Color.YELLOW,state[offset],state[offset+1],state[offset+2],drawScale.x,drawScale.y);
+	}
+
 }
\ No newline at end of file
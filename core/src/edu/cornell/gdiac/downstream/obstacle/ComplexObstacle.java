@@ -45,6 +45,8 @@ public abstract class ComplexObstacle extends Obstacle {
 	protected Array<Obstacle> bodies;
 	/** Potential joints for connecting the multiple bodies */
 	protected Array<Joint> joints;
+	/** The combined bounding box of the components */
+	private Rectangle boundsCache = new Rectangle();
 	
 	/// BodyDef Methods
 	/**
@@ -1028,7 +1030,72 @@ public abstract class ComplexObstacle extends Obstacle {
 			obj.update(delta);
 		}
 	}
-	
+
+	/**
+	 * Discards the interpolation history, snapping to the current transform.
+	 *
+	 * This method resets the root and all of the components.
+	 */
+	public void resetTransform() {
+		super.resetTransform();
+		for(Obstacle obj : bodies) {
+			obj.resetTransform();
+		}
+	}
+
+	/**
+	 * Records the transform at the end of a physics step.
+	 *
+	 * This method records the root and all of the components.
+	 */
+	public void storeTransform() {
+		super.storeTransform();
+		for(Obstacle obj : bodies) {
+			obj.storeTransform();
+		}
+	}
+
+	/**
+	 * Computes the drawing transform between the last two physics steps.
+	 *
+	 * This method interpolates the root and all of the components.
+	 *
+	 * @param alpha The fraction of a physics step to interpolate (0 to 1)
+	 */
+	public void interpolate(float alpha) {
+		super.interpolate(alpha);
+		for(Obstacle obj : bodies) {
+			obj.interpolate(alpha);
+		}
+	}
+
+	/**
+	 * Appends the drawing state of this object to a buffer.
+	 *
+	 * This method saves the root and then each of the components.
+	 *
+	 * @param buffer The buffer to append to
+	 */
+	public void saveDrawState(FloatArray buffer) {
+		super.saveDrawState(buffer);
+		for(int ii = 0; ii < bodies.size; ii++) {
+			bodies.get(ii).saveDrawState(buffer);
+		}
+	}
+
+	/**
+	 * Returns the number of floats appended by saveDrawState.
+	 *
+	 * @return the number of floats appended by saveDrawState.
+	 */
+	public int getDrawStateSize() {
+		int size = DRAW_STATE_SIZE;
+		for(int ii = 0; ii < bodies.size; ii++) {
+			size += bodies.get(ii).getDrawStateSize();
+		}
+		return size;
+	}
+
 	/**
      * Sets the drawing scale for this physics object
      *
@@ -1052,13 +1119,56 @@ public abstract class ComplexObstacle extends Obstacle {
 	/**
 	 * Draws the physics object.
 	 *
+	 * The components are drawn from their states, which follow the state of the
+	 * root.  The components must not change while the simulation is running.
+	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void draw(GameCanvas canvas) {
-		// Delegate to components
-		for(Obstacle obj : bodies) {
-			obj.draw(canvas);
+	public void draw(GameCanvas canvas, float[] state, int offset) {
+		// Delegate to components (by index, as the simulation may be iterating)
+		offset += DRAW_STATE_SIZE;
+		for(int ii = 0; ii < bodies.size; ii++) {
+			Obstacle obj = bodies.get(ii);
+			obj.draw(canvas, state, offset);
+			offset += obj.getDrawStateSize();
+		}
+	}
+
+	/**
+	 * Returns the axis-aligned bounding box of this object, in physics units.
+	 *
+	 * This is the union of the bounding boxes of the components.  The result is
+	 * not cached, as any of the components may have moved.
+	 *
+	 * This method does NOT return a copy of the bounding box.  However, it returns
+	 * the same rectangle each time it is called, and so cannot be used as an
+	 * allocator.  Do not modify it.
+	 *
+	 * @return the axis-aligned bounding box of this object, in physics units.
+	 */
+	public Rectangle getBounds() {
+		if (bodies.size == 0) {
+			return boundsCache.set(getDrawX(), getDrawY(), 0, 0);
+		}
+		boundsCache.set(bodies.get(0).getBounds());
+		for(int ii = 1; ii < bodies.size; ii++) {
+			boundsCache.merge(bodies.get(ii).getBounds());
 		}
+		return boundsCache;
+	}
+
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * A complex obstacle has no extent of its own, as getBounds() asks the
+	 * components directly.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		result.set(0, 0, 0, 0);
 	}
 
 	/**
@@ -1067,11 +1177,16 @@ public abstract class ComplexObstacle extends Obstacle {
 	 * This method can be helpful for understanding issues with collisions.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void drawDebug(GameCanvas canvas) {
+	public void drawDebug(GameCanvas canvas, float[] state, int offset) {
 		// Delegate to components
-		for(Obstacle obj : bodies) {
-			obj.drawDebug(canvas);
+		offset += DRAW_STATE_SIZE;
+		for(int ii = 0; ii < bodies.size; ii++) {
+			Obstacle obj = bodies.get(ii);
+			obj.drawDebug(canvas, state, offset);
+			offset += obj.getDrawStateSize();
 		}
 	}
 
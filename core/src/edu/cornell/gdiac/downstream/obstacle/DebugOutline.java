@@ -0,0 +1,206 @@
+/*
+ * DebugOutline.java
+ *
+ * Drawing the physics outlines used to read every vertex out of Box2D each frame.
+ * Each of those reads is a JNI call, so on a level with thousands of fixtures the
+ * debug view was unusable.  This class reads the shape vertices once, and keeps
+ * them as a flat list of loops.  It also keeps the transformed loops, and only
+ * recomputes them when the object moves.  So the outline of a static body is
+ * built exactly once, and that of a dynamic body is a little arithmetic per frame.
+ */
+package edu.cornell.gdiac.downstream.obstacle;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.downstream.*;
+
+/**
+ * The cached outline of a physics shape, for debug drawing.
+ *
+ * The outline is a list of closed loops in the coordinate space of the body.
+ * Circles are approximated by polygons.  The outline is built (with clear(), the
+ * add methods and publish()) on the thread that simulates the body, whenever the
+ * shape changes.  Drawing only reads the loops passed to publish(), so it is safe
+ * to draw an outline while it is being rebuilt.
+ */
+public class DebugOutline {
+	/** The number of segments used to approximate a circle */
+	private static final int CIRCLE_SEGMENTS = 12;
+
+	/**
+	 * The loops of an outline, as published for drawing.
+	 *
+	 * These are never changed once published.
+	 */
+	private static class Loops {
+		/** The vertices of all loops in body coordinates, as x, y pairs */
+		public final float[] points;
+		/** The start of each loop in the vertex list */
+		public final int[] starts;
+
+		/**
+		 * Creates the loops from copies of the given arrays.
+		 *
+		 * @param points	The vertices of all loops in body coordinates
+		 * @param starts	The start of each loop in the vertex list
+		 */
+		public Loops(FloatArray points, IntArray starts) {
+			this.points = points.toArray();
+			this.starts = starts.toArray();
+		}
+	}
+
+	/** The vertices of the loops being built, as x, y pairs */
+	private FloatArray local;
+	/** The start of each loop being built */
+	private IntArray starts;
+	/** The loops to draw (null until first published) */
+	private volatile Loops loops;
+
+	/** The loops used to compute the screen coordinates */
+	private Loops drawn;
+	/** The vertices of all loops in screen coordinates */
+	private float[] world;
+
+	/** The x-coordinate used to compute the screen coordinates */
+	private float lastX;
+	/** The y-coordinate used to compute the screen coordinates */
+	private float lastY;
+	/** The angle used to compute the screen coordinates */
+	private float lastAngle;
+	/** The x-axis scale used to compute the screen coordinates */
+	private float lastSX;
+	/** The y-axis scale used to compute the screen coordinates */
+	private float lastSY;
+
+	/** Cache for reading vertices from a shape */
+	private Vector2 vertex;
+
+	/**
+	 * Creates a new empty outline.
+	 */
+	public DebugOutline() {
+		local  = new FloatArray();
+		starts = new IntArray();
+		world  = new float[0];
+		vertex = new Vector2();
+	}
+
+	/**
+	 * Removes all loops from the outline being built.
+	 *
+	 * The loops being drawn are unaffected until the next call to publish().
+	 */
+	public void clear() {
+		local.clear();
+		starts.clear();
+	}
+
+	/**
+	 * Makes the loops built since the last clear() the ones that are drawn.
+	 *
+	 * This copies the loops, so it should only be done when the shape changes.
+	 */
+	public void publish() {
+		loops = new Loops(local, starts);
+	}
+
+	/**
+	 * Adds the outline of a polygon shape.
+	 *
+	 * This reads the vertices from Box2D, so it should only be done when the
+	 * shape changes.
+	 *
+	 * @param shape	The polygon shape
+	 */
+	public void addPolygon(PolygonShape shape) {
+		starts.add(local.size);
+		int count = shape.getVertexCount();
+		for(int ii = 0; ii < count; ii++) {
+			shape.getVertex(ii,vertex);
+			local.add(vertex.x);
+			local.add(vertex.y);
+		}
+	}
+
+	/**
+	 * Adds the outline of a circle.
+	 *
+	 * @param x			The x-coordinate of the center in body coordinates
+	 * @param y			The y-coordinate of the center in body coordinates
+	 * @param radius	The circle radius
+	 */
+	public void addCircle(float x, float y, float radius) {
+		starts.add(local.size);
+		for(int ii = 0; ii < CIRCLE_SEGMENTS; ii++) {
+			float angle = MathUtils.PI2*ii/CIRCLE_SEGMENTS;
+			local.add(x+radius*MathUtils.cos(angle));
+			local.add(y+radius*MathUtils.sin(angle));
+		}
+	}
+
+	/**
+	 * Draws this outline at the given transform.
+	 *
+	 * The loops are rotated by the angle, moved to the position, and then scaled
+	 * to screen coordinates (in that order).  The result is only recomputed when
+	 * the transform (or the published loops) differs from the previous call.  Only
+	 * one thread may draw an outline.
+	 *
+	 * @param canvas	The drawing context
+	 * @param color		The outline color
+	 * @param x			The x-coordinate of the body position
+	 * @param y			The y-coordinate of the body position
+	 * @param angle		The body angle of rotation
+	 * @param sx		The amount to scale the x-axis
+	 * @param sy		The amount to scale the y-axis
+	 */
+	public void draw(GameCanvas canvas, Color color, float x, float y, float angle, float sx, float sy) {
+		Loops current = loops;
+		if (current == null) {
+			return;
+		}
+		if (current != drawn || x != lastX || y != lastY || angle != lastAngle || sx != lastSX || sy != lastSY) {
+			transform(current, x, y, angle, sx, sy);
+		}
+		int[] first = current.starts;
+		for(int ii = 0; ii < first.length; ii++) {
+			int end = (ii+1 < first.length ? first[ii+1] : current.points.length);
+			canvas.drawOutline(world, first[ii], end-first[ii], color);
+		}
+	}
+
+	/**
+	 * Recomputes the screen coordinates of the loops.
+	 *
+	 * @param current	The loops to transform
+	 * @param x			The x-coordinate of the body position
+	 * @param y			The y-coordinate of the body position
+	 * @param angle		The body angle of rotation
+	 * @param sx		The amount to scale the x-axis
+	 * @param sy		The amount to scale the y-axis
+	 */
+	private void transform(Loops current, float x, float y, float angle, float sx, float sy) {
+		float[] points = current.points;
+		if (world.length < points.length) {
+			world = new float[points.length];
+		}
+		float cos = (float)Math.cos(angle);
+		float sin = (float)Math.sin(angle);
+		for(int ii = 0; ii < points.length; ii += 2) {
+			float px = points[ii];
+			float py = points[ii+1];
+			world[ii  ] = sx*(x+cos*px-sin*py);
+			world[ii+1] = sy*(y+sin*px+cos*py);
+		}
+		lastX = x;
+		lastY = y;
+		lastAngle = angle;
+		lastSX = sx;
+		lastSY = sy;
+		drawn = current;
+	}
+}
@@ -20,6 +20,7 @@ package edu.cornell.gdiac.downstream.obstacle;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.FloatArray;
 
 import edu.cornell.gdiac.downstream.*;  // For GameCanvas
 
@@ -37,6 +38,9 @@ import edu.cornell.gdiac.downstream.*;  // For GameCanvas
  * and fixture information into a single interface.
  */
 public abstract class Obstacle {
+	/** The number of floats saved by saveDrawState */
+	public static final int DRAW_STATE_SIZE = 3;
+
 	/// Initialization structures to store body information
 	/** Stores the body information for this shape */
 	protected BodyDef bodyinfo;
@@ -56,6 +60,8 @@ public abstract class Obstacle {
 	private boolean toRemove;
 	/** Whether the object has changed shape and needs a new fixture */
 	private boolean isDirty;
+	/** Whether the object never moves (and so may be drawn from a prebuilt cache) */
+	private boolean immobile;
 	
 	/// Caching objects
 	/** A cache value for when the user wants to access the body position */
@@ -67,6 +73,39 @@ public abstract class Obstacle {
 	/** A cache value for when the user wants to access the drawing scale */
 	protected Vector2 scaleCache = new Vector2();
 
+	/// Interpolation state
+	/** The x-coordinate at the end of the previous physics step */
+	private float prevX;
+	/** The y-coordinate at the end of the previous physics step */
+	private float prevY;
+	/** The angle at the end of the previous physics step */
+	private float prevAngle;
+	/** The x-coordinate at the end of the current physics step */
+	private float currX;
+	/** The y-coordinate at the end of the current physics step */
+	private float currY;
+	/** The angle at the end of the current physics step */
+	private float currAngle;
+	/** The interpolated x-coordinate to use when drawing */
+	protected float drawX;
+	/** The interpolated y-coordinate to use when drawing */
+	protected float drawY;
+	/** The interpolated angle to use when drawing */
+	protected float drawAngle;
+
+	/// Culling state
+	/** The extent of this object around its position (unrotated, in physics units) */
+	private Rectangle localBounds = new Rectangle();
+	/** Whether the local extent must be recomputed (e.g. after a resize) */
+	private boolean boundsDirty = true;
+	/** The bounding box of this object where it was last drawn */
+	private Rectangle bounds = new Rectangle();
+	/** The drawing x-coordinate when the bounding box was computed */
+	private float boundsX;
+	/** The drawing y-coordinate when the bounding box was computed */
+	private float boundsY;
+	/** The drawing angle when the bounding box was computed */
+	private float boundsAngle;
 
 	/// BodyDef Methods
 	/**
@@ -795,6 +834,33 @@ public abstract class Obstacle {
 		toRemove = value;
 	}
 	
+	/**
+	 * Returns true if this object never moves once added to the world.
+	 *
+	 * Immobile objects are drawn from a cache that is built when they are added,
+	 * instead of being drawn one at a time every frame.  So their position, angle
+	 * and texture must not change while they are in the world.
+	 *
+	 * @return true if this object never moves once added to the world.
+	 */
+	public boolean isImmobile() {
+		return immobile;
+	}
+	
+	/**
+	 * Sets whether this object never moves once added to the world.
+	 *
+	 * Immobile objects are drawn from a cache that is built when they are added,
+	 * instead of being drawn one at a time every frame.  So their position, angle
+	 * and texture must not change while they are in the world.  This should be 
+	 * set before the object is added.
+	 *
+	 * @param value  whether this object never moves once added to the world.
+	 */
+	public void setImmobile(boolean value) {
+		immobile = value;
+	}
+	
 	/**
 	 * Returns true if the shape information must be updated.
 	 *
@@ -819,6 +885,9 @@ public abstract class Obstacle {
 	 */
 	public void markDirty(boolean value) {
 		isDirty = value;
+		if (value) {
+			boundsDirty = true;
+		}
 	}
 		
 	/**
@@ -885,8 +954,206 @@ public abstract class Obstacle {
      */
     public void setDrawScale(float x, float y) {
     	drawScale.set(x,y);
+    	boundsDirty = true;
     }
     	
+	/// INTERPOLATION METHODS
+	/**
+	 * Returns the x-coordinate to use when drawing this object
+	 *
+	 * This value is interpolated between the last two physics steps, so that
+	 * the object moves smoothly even when the animation frame rate does not
+	 * match the physics step rate.
+	 *
+	 * @return the x-coordinate to use when drawing this object
+	 */
+	public float getDrawX() {
+		return drawX;
+	}
+	
+	/**
+	 * Returns the y-coordinate to use when drawing this object
+	 *
+	 * This value is interpolated between the last two physics steps, so that
+	 * the object moves smoothly even when the animation frame rate does not
+	 * match the physics step rate.
+	 *
+	 * @return the y-coordinate to use when drawing this object
+	 */
+	public float getDrawY() {
+		return drawY;
+	}
+	
+	/**
+	 * Returns the angle to use when drawing this object
+	 *
+	 * This value is interpolated between the last two physics steps, so that
+	 * the object moves smoothly even when the animation frame rate does not
+	 * match the physics step rate.
+	 *
+	 * @return the angle to use when drawing this object
+	 */
+	public float getDrawAngle() {
+		return drawAngle;
+	}
+	
+	/**
+	 * Discards the interpolation history, snapping to the current transform.
+	 *
+	 * This method should be called whenever the object is placed in the world,
+	 * or is teleported, so that it does not appear to slide from its old position.
+	 */
+	public void resetTransform() {
+		currX = prevX = drawX = getX();
+		currY = prevY = drawY = getY();
+		currAngle = prevAngle = drawAngle = getAngle();
+	}
+	
+	/**
+	 * Records the transform at the end of a physics step.
+	 *
+	 * The previous transform is kept for interpolation.  This method should be
+	 * called once per physics step, after the world has been stepped.
+	 */
+	public void storeTransform() {
+		prevX = currX;
+		prevY = currY;
+		prevAngle = currAngle;
+		currX = getX();
+		currY = getY();
+		currAngle = getAngle();
+	}
+	
+	/**
+	 * Computes the drawing transform between the last two physics steps.
+	 *
+	 * The value alpha is the fraction of a physics step that has elapsed since
+	 * the last step was taken.  A value of 0 draws the object at the previous
+	 * step and 1 draws it at the current step.  Angles are interpolated along
+	 * the shortest arc, so objects that wrap around from PI to -PI do not spin.
+	 *
+	 * @param alpha The fraction of a physics step to interpolate (0 to 1)
+	 */
+	public void interpolate(float alpha) {
+		interpolate(prevX, prevY, prevAngle, currX, currY, currAngle, alpha);
+	}
+
+	/**
+	 * Appends the drawing state of this object to a buffer.
+	 *
+	 * The state is the transform computed by the last call to interpolate.  The
+	 * draw methods take their transform from a saved state, and not from the live
+	 * object, so the simulation may continue while the copy is drawn.
+	 *
+	 * @param buffer The buffer to append to
+	 */
+	public void saveDrawState(FloatArray buffer) {
+		float[] items = buffer.ensureCapacity(DRAW_STATE_SIZE);
+		int pos = buffer.size;
+		items[pos  ] = drawX;
+		items[pos+1] = drawY;
+		items[pos+2] = drawAngle;
+		buffer.size += DRAW_STATE_SIZE;
+	}
+
+	/**
+	 * Returns the number of floats appended by saveDrawState.
+	 *
+	 * @return the number of floats appended by saveDrawState.
+	 */
+	public int getDrawStateSize() {
+		return DRAW_STATE_SIZE;
+	}
+
+	/**
+	 * Computes the drawing transform between two transforms.
+	 *
+	 * @param x0	 The previous x-coordinate
+	 * @param y0	 The previous y-coordinate
+	 * @param angle0 The previous angle
+	 * @param x1	 The current x-coordinate
+	 * @param y1	 The current y-coordinate
+	 * @param angle1 The current angle
+	 * @param alpha  The fraction of a physics step to interpolate (0 to 1)
+	 */
+	private void interpolate(float x0, float y0, float angle0, float x1, float y1, float angle1, float alpha) {
+		drawX = x0 + (x1-x0)*alpha;
+		drawY = y0 + (y1-y0)*alpha;
+		float turn = angle1-angle0;
+		if (turn > MathUtils.PI) {
+			turn -= MathUtils.PI2;
+		} else if (turn < -MathUtils.PI) {
+			turn += MathUtils.PI2;
+		}
+		drawAngle = angle0 + turn*alpha;
+	}
+
+	/// CULLING METHODS
+	/**
+	 * Returns the axis-aligned bounding box of this object, in physics units.
+	 *
+	 * The box covers both the physics shape and the texture, at the interpolated
+	 * drawing transform.  It is cached, and only recomputed when the object has
+	 * moved, turned or changed shape since the last call.
+	 *
+	 * This method does NOT return a copy of the bounding box.  However, it returns
+	 * the same rectangle each time it is called, and so cannot be used as an
+	 * allocator.  Do not modify it.
+	 *
+	 * @return the axis-aligned bounding box of this object, in physics units.
+	 */
+	public Rectangle getBounds() {
+		if (boundsDirty) {
+			computeLocalBounds(localBounds);
+			boundsDirty = false;
+		} else if (drawX == boundsX && drawY == boundsY && drawAngle == boundsAngle) {
+			return bounds;
+		}
+		boundsX = drawX;
+		boundsY = drawY;
+		boundsAngle = drawAngle;
+
+		if (drawAngle == 0) {
+			bounds.set(drawX+localBounds.x, drawY+localBounds.y, localBounds.width, localBounds.height);
+			return bounds;
+		}
+
+		// Bound the rotated corners of the local box
+		float cos = (float)Math.cos(drawAngle);
+		float sin = (float)Math.sin(drawAngle);
+		float x0 = localBounds.x;
+		float y0 = localBounds.y;
+		float x1 = x0+localBounds.width;
+		float y1 = y0+localBounds.height;
+		float minX = Math.min(Math.min(cos*x0-sin*y0, cos*x1-sin*y0), Math.min(cos*x1-sin*y1, cos*x0-sin*y1));
+		float maxX = Math.max(Math.max(cos*x0-sin*y0, cos*x1-sin*y0), Math.max(cos*x1-sin*y1, cos*x0-sin*y1));
+		float minY = Math.min(Math.min(sin*x0+cos*y0, sin*x1+cos*y0), Math.min(sin*x1+cos*y1, sin*x0+cos*y1));
+		float maxY = Math.max(Math.max(sin*x0+cos*y0, sin*x1+cos*y0), Math.max(sin*x1+cos*y1, sin*x0+cos*y1));
+		bounds.set(drawX+minX, drawY+minY, maxX-minX, maxY-minY);
+		return bounds;
+	}
+
+	/**
+	 * Marks the bounding box for recomputation.
+	 *
+	 * Call this whenever the extent of the object changes without changing the
+	 * physics shape (e.g. a new texture).  Changes to the shape already call it
+	 * through markDirty.
+	 */
+	protected void markBoundsDirty() {
+		boundsDirty = true;
+	}
+
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * The extent is in physics units, relative to the object position.  It should
+	 * cover everything drawn by draw() and drawDebug().
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected abstract void computeLocalBounds(Rectangle result);
+
 	/// DEBUG METHODS
 	/**
      * Returns the physics object tag.
@@ -947,6 +1214,10 @@ public abstract class Obstacle {
 		
 		// Set the default drawing scale
 		drawScale = new Vector2(1,1);
+		
+		// Start with no interpolation history
+		currX = prevX = drawX = x;
+		currY = prevY = drawY = y;
 	}
 
 	/// Abstract Methods
@@ -986,17 +1257,26 @@ public abstract class Obstacle {
 	/**
 	 * Draws the texture physics object.
 	 *
+	 * The object is drawn at the transform in the saved state: x, y and angle, in
+	 * that order, starting at offset.  This may run on a different thread than
+	 * the simulation, so it must not read the transform of the live object.
+	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public abstract void draw(GameCanvas canvas);
+	public abstract void draw(GameCanvas canvas, float[] state, int offset);
 
 	/**
 	 * Draws the outline of the physics body.
 	 *
-	 * This method can be helpful for understanding issues with collisions.
+	 * This method can be helpful for understanding issues with collisions.  Like
+	 * draw, it takes the transform from the saved state.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public abstract void drawDebug(GameCanvas canvas);
+	public abstract void drawDebug(GameCanvas canvas, float[] state, int offset);
 
 }
\ No newline at end of file
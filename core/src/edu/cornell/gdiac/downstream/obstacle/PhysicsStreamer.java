@@ -0,0 +1,340 @@
+/*
+ * PhysicsStreamer.java
+ *
+ * Box2D gets slower with every body in the world, even the ones that are asleep.
+ * In a long river, almost all of the lilypads and banks are far away from the koi,
+ * so there is no point in simulating them.  This class divides the level into
+ * square regions, and only keeps bodies for the regions near the action.  As the
+ * koi swims along, regions ahead of it are activated and regions behind it are
+ * deactivated (which snapshots their state, so nothing is lost).
+ *
+ * Regions are activated at a smaller distance than they are deactivated.  That
+ * way a koi swimming back and forth over a region boundary does not make bodies
+ * flicker in and out of existence.
+ */
+package edu.cornell.gdiac.downstream.obstacle;
+
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * Streams the physics bodies of obstacles in and out by distance.
+ *
+ * Obstacles are added with their bounding boxes, and then the regions are built
+ * with build().  An obstacle may span several regions; it has a body as long as
+ * any of those regions is active.  Only add obstacles that do not move (such as
+ * walls and tethers), as each obstacle stays in the regions it was added to.
+ */
+public class PhysicsStreamer {
+	/** The width and height of a single region */
+	private float regionSize;
+	/** The distance from the focus at which regions are activated */
+	private float activeMargin;
+	/** The distance from the focus at which regions are deactivated */
+	private float inactiveMargin;
+
+	/** The obstacles streamed by this object */
+	private Array<Obstacle> items;
+	/** The bounding box of each obstacle (left, bottom, right, top) */
+	private FloatArray bounds;
+	/** The number of active regions containing each obstacle */
+	private int[] refs;
+
+	/** The left edge of the regions */
+	private float left;
+	/** The bottom edge of the regions */
+	private float bottom;
+	/** The number of region columns */
+	private int cols;
+	/** The number of region rows */
+	private int rows;
+	/** The start of each region in regionItems (with one extra at the end) */
+	private int[] regionStart;
+	/** The obstacle indices, sorted by region */
+	private int[] regionItems;
+	/** Whether each region is active */
+	private boolean[] active;
+	/** The active regions */
+	private IntArray activeRegions;
+
+	/**
+	 * Creates a new empty physics streamer.
+	 *
+	 * The inactive margin should be larger than the active margin, so that there
+	 * is some slack before a region is deactivated again.
+	 *
+	 * @param regionSize		The width and height of a single region
+	 * @param activeMargin		The distance from the focus at which regions are activated
+	 * @param inactiveMargin	The distance from the focus at which regions are deactivated
+	 */
+	public PhysicsStreamer(float regionSize, float activeMargin, float inactiveMargin) {
+		assert regionSize > 0 : "Region size must be positive";
+		assert inactiveMargin >= activeMargin : "Regions must be deactivated further away than they are activated";
+		this.regionSize = regionSize;
+		this.activeMargin = activeMargin;
+		this.inactiveMargin = inactiveMargin;
+		items  = new Array<Obstacle>();
+		bounds = new FloatArray();
+		refs   = new int[0];
+		regionStart = new int[1];
+		regionItems = new int[0];
+		active = new boolean[0];
+		activeRegions = new IntArray();
+	}
+
+	/**
+	 * Returns the number of obstacles streamed by this object.
+	 *
+	 * @return the number of obstacles streamed by this object.
+	 */
+	public int size() {
+		return items.size;
+	}
+
+	/**
+	 * Returns the number of regions.
+	 *
+	 * @return the number of regions.
+	 */
+	public int getRegionCount() {
+		return cols*rows;
+	}
+
+	/**
+	 * Returns the number of active regions.
+	 *
+	 * @return the number of active regions.
+	 */
+	public int getActiveRegionCount() {
+		return activeRegions.size;
+	}
+
+	/**
+	 * Adds an obstacle at its current position.
+	 *
+	 * The obstacle should not have a body yet.  It gets one the first time one of
+	 * its regions is activated.
+	 *
+	 * @param obj	The obstacle to add
+	 */
+	public void add(Obstacle obj) {
+		add(obj, obj.getX(), obj.getY(), obj.getX(), obj.getY());
+	}
+
+	/**
+	 * Adds an obstacle with the given bounding box.
+	 *
+	 * The obstacle should not have a body yet.  It gets one the first time one of
+	 * its regions is activated.
+	 *
+	 * @param obj		The obstacle to add
+	 * @param left		The left edge of the obstacle
+	 * @param bottom	The bottom edge of the obstacle
+	 * @param right		The right edge of the obstacle
+	 * @param top		The top edge of the obstacle
+	 */
+	public void add(Obstacle obj, float left, float bottom, float right, float top) {
+		items.add(obj);
+		bounds.add(left);
+		bounds.add(bottom);
+		bounds.add(right);
+		bounds.add(top);
+	}
+
+	/**
+	 * Removes all obstacles from this streamer.
+	 *
+	 * This does not touch the bodies of the obstacles.  When resetting a level,
+	 * deactivate the obstacles first.
+	 */
+	public void clear() {
+		items.clear();
+		bounds.clear();
+		activeRegions.clear();
+		cols = 0;
+		rows = 0;
+	}
+
+	/**
+	 * Builds the regions from the obstacles added so far.
+	 *
+	 * All regions start inactive.  Call update() afterwards to activate the
+	 * regions near the focus.
+	 */
+	public void build() {
+		int count = items.size;
+		activeRegions.clear();
+		if (count == 0) {
+			cols = 0;
+			rows = 0;
+			return;
+		}
+
+		float[] box = bounds.items;
+		left = box[0];
+		bottom = box[1];
+		float right = box[2];
+		float top = box[3];
+		for(int ii = 1; ii < count; ii++) {
+			left   = Math.min(left,  box[4*ii  ]);
+			bottom = Math.min(bottom,box[4*ii+1]);
+			right  = Math.max(right, box[4*ii+2]);
+			top    = Math.max(top,   box[4*ii+3]);
+		}
+		cols = (int)((right-left)/regionSize)+1;
+		rows = (int)((top-bottom)/regionSize)+1;
+
+		regionStart = new int[cols*rows+1];
+		active = new boolean[cols*rows];
+		refs = new int[count];
+
+		// Count the obstacles in each region, then convert to start positions
+		for(int ii = 0; ii < count; ii++) {
+			for(int jj = row(box[4*ii+1]); jj <= row(box[4*ii+3]); jj++) {
+				for(int kk = column(box[4*ii]); kk <= column(box[4*ii+2]); kk++) {
+					regionStart[jj*cols+kk+1]++;
+				}
+			}
+		}
+		for(int ii = 1; ii <= cols*rows; ii++) {
+			regionStart[ii] += regionStart[ii-1];
+		}
+		regionItems = new int[regionStart[cols*rows]];
+
+		// Placing each obstacle advances the region start, so shift back after
+		for(int ii = 0; ii < count; ii++) {
+			for(int jj = row(box[4*ii+1]); jj <= row(box[4*ii+3]); jj++) {
+				for(int kk = column(box[4*ii]); kk <= column(box[4*ii+2]); kk++) {
+					regionItems[regionStart[jj*cols+kk]++] = ii;
+				}
+			}
+		}
+		for(int ii = cols*rows; ii > 0; ii--) {
+			regionStart[ii] = regionStart[ii-1];
+		}
+		regionStart[0] = 0;
+	}
+
+	/**
+	 * Activates and deactivates regions around the focus.
+	 *
+	 * The focus is a rectangle, such as the camera view or the koi position.
+	 * Regions within the active margin of it are activated, and regions beyond
+	 * the inactive margin are deactivated.  This allocates nothing unless the
+	 * set of active regions grows beyond its previous size.
+	 *
+	 * This method must not be called during a world step.
+	 *
+	 * @param world		The Box2D world for the bodies
+	 * @param fLeft		The left edge of the focus
+	 * @param fBottom	The bottom edge of the focus
+	 * @param fRight	The right edge of the focus
+	 * @param fTop		The top edge of the focus
+	 */
+	public void update(World world, float fLeft, float fBottom, float fRight, float fTop) {
+		if (cols == 0) {
+			return;
+		}
+
+		// Deactivate the far away regions first, so bodies are not created needlessly
+		for(int ii = activeRegions.size-1; ii >= 0; ii--) {
+			int region = activeRegions.get(ii);
+			if (distance(region, fLeft, fBottom, fRight, fTop) > inactiveMargin) {
+				deactivate(world, region);
+				activeRegions.removeIndex(ii);
+			}
+		}
+
+		int minCol = column(fLeft-activeMargin);
+		int maxCol = column(fRight+activeMargin);
+		int minRow = row(fBottom-activeMargin);
+		int maxRow = row(fTop+activeMargin);
+		for(int jj = minRow; jj <= maxRow; jj++) {
+			for(int ii = minCol; ii <= maxCol; ii++) {
+				int region = jj*cols+ii;
+				if (!active[region] && distance(region, fLeft, fBottom, fRight, fTop) <= activeMargin) {
+					activate(world, region);
+					activeRegions.add(region);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Activates a region, creating bodies for any obstacles that need them.
+	 *
+	 * @param world		The Box2D world for the bodies
+	 * @param region	The region to activate
+	 */
+	private void activate(World world, int region) {
+		active[region] = true;
+		for(int ii = regionStart[region]; ii < regionStart[region+1]; ii++) {
+			int item = regionItems[ii];
+			if (refs[item]++ == 0) {
+				Obstacle obj = items.get(item);
+				if (!obj.isRemoved()) {
+					obj.activatePhysics(world);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deactivates a region, destroying the bodies of obstacles no longer needed.
+	 *
+	 * @param world		The Box2D world for the bodies
+	 * @param region	The region to deactivate
+	 */
+	private void deactivate(World world, int region) {
+		active[region] = false;
+		for(int ii = regionStart[region]; ii < regionStart[region+1]; ii++) {
+			int item = regionItems[ii];
+			if (--refs[item] == 0) {
+				items.get(item).deactivatePhysics(world);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distance from a region to a rectangle (0 if they overlap).
+	 *
+	 * @param region	The region
+	 * @param fLeft		The left edge of the rectangle
+	 * @param fBottom	The bottom edge of the rectangle
+	 * @param fRight	The right edge of the rectangle
+	 * @param fTop		The top edge of the rectangle
+	 *
+	 * @return the distance from a region to a rectangle (0 if they overlap).
+	 */
+	private float distance(int region, float fLeft, float fBottom, float fRight, float fTop) {
+		float x0 = left+(region % cols)*regionSize;
+		float y0 = bottom+(region / cols)*regionSize;
+		float dx = Math.max(0, Math.max(x0-fRight, fLeft-(x0+regionSize)));
+		float dy = Math.max(0, Math.max(y0-fTop, fBottom-(y0+regionSize)));
+		return (float)Math.sqrt(dx*dx+dy*dy);
+	}
+
+	/**
+	 * Returns the region column for the x-coordinate, clamped to the regions.
+	 *
+	 * @param x	The x-coordinate
+	 *
+	 * @return the region column for the x-coordinate, clamped to the regions.
+	 */
+	private int column(float x) {
+		int col = (int)Math.floor((x-left)/regionSize);
+		return Math.max(0, Math.min(cols-1, col));
+	}
+
+	/**
+	 * Returns the region row for the y-coordinate, clamped to the regions.
+	 *
+	 * @param y	The y-coordinate
+	 *
+	 * @return the region row for the y-coordinate, clamped to the regions.
+	 */
+	private int row(float y) {
+		int row = (int)Math.floor((y-bottom)/regionSize);
+		return Math.max(0, Math.min(rows-1, row));
+	}
+}
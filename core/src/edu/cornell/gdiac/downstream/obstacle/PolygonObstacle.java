@@ -311,8 +311,9 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	protected void releaseFixtures() {
 		if (geoms[0] != null) {
-			for(Fixture fix : geoms) {
-				body.destroyFixture(fix);
+			for(int ii = 0; ii < geoms.length; ii++) {
+				body.destroyFixture(geoms[ii]);
+				geoms[ii] = null;
 			}
 		}
 	}
@@ -327,7 +328,21 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	public void setTexture(TextureRegion value) {
 		texture = value;
-		region = new PolygonRegion(texture,scaled,tridx);
+		region = (texture == null ? null : new PolygonRegion(texture,scaled,tridx));
+	}
+	
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * The texture is drawn on the polygon itself, so this is just the polygon.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		result.set(vertices[0], vertices[1], 0, 0);
+		for(int ii = 2; ii < vertices.length; ii += 2) {
+			result.merge(vertices[ii], vertices[ii+1]);
+		}
 	}
 	
     /**
@@ -362,10 +377,23 @@ public class PolygonObstacle extends SimpleObstacle {
 	 * Draws the physics object.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void draw(GameCanvas canvas) {
+	public void draw(GameCanvas canvas, float[] state, int offset) {
 		if (region != null) {
-			canvas.draw(region,Color.WHITE,0,0,getX()*drawScale.x,getY()*drawScale.y,getAngle(),1,1);
+			canvas.draw(region,Color.WHITE,0,0,state[offset]*drawScale.x,state[offset+1]*drawScale.y,state[offset+2],1,1);
+		}
+	}
+
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+		for(PolygonShape tri : shapes) {
+			outline.addPolygon(tri);
 		}
 	}
 
@@ -375,11 +403,11 @@ public class PolygonObstacle extends SimpleObstacle {
 	 * This method can be helpful for understanding issues with collisions.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void drawDebug(GameCanvas canvas) {
-		for(PolygonShape tri : shapes) {
-			canvas.drawPhysics(tri,Color.YELLOW,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
-		}
+	public void drawDebug(GameCanvas canvas, float[] state, int offset) {
+		outline.draw(canvas,Color.YELLOW,state[offset],state[offset+1],state[offset+2],drawScale.x,drawScale.y);
 	}
 	
 }
\ No newline at end of file
@@ -21,8 +21,10 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.FloatArray;
 
 import edu.cornell.gdiac.downstream.GameCanvas;
+import edu.cornell.gdiac.util.*;
 
 /**
  * Base model class to support collisions.
@@ -42,6 +44,18 @@ public abstract class SimpleObstacle extends Obstacle {
 	/** The texture origin for drawing */
 	protected Vector2 origin;
 	
+	/** The animation frames (shared with other objects), or null if not animated */
+	protected SpriteSheet sheet;
+	/** The animation playback state of this object */
+	protected Animator animator = new Animator();
+	/** The animation frame to draw (copied with the transform) */
+	private int drawFrame;
+	
+	/** The cached outline of the shape (rebuilt by the simulation, read by drawDebug) */
+	protected DebugOutline outline = new DebugOutline();
+	/** Whether the outline must be rebuilt from the shape */
+	private boolean outlineDirty = true;
+	
 	/// BodyDef Methods
 	/**
 	 * Returns the body type for Box2D physics
@@ -766,17 +780,117 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	public void setTexture(TextureRegion value) {
 		texture = value;
-		origin.set(texture.getRegionWidth()/2.0f, texture.getRegionHeight()/2.0f);
+		if (texture != null) {
+			origin.set(texture.getRegionWidth()/2.0f, texture.getRegionHeight()/2.0f);
+		}
+		markBoundsDirty();
+	}
+	
+	/**
+	 * Returns the animation frames of this object, or null if not animated.
+	 *
+	 * @return the animation frames of this object, or null if not animated.
+	 */
+	public SpriteSheet getSheet() {
+		return sheet;
+	}
+	
+	/**
+	 * Sets the animation frames of this object.
+	 *
+	 * The sheet is drawn instead of the texture (if any), and is played back 
+	 * as the physics advances.  The sheet is not modified, so many objects can
+	 * share the same one.  A null sheet stops the animation.
+	 * 
+	 * @param value  the animation frames of this object.
+	 */
+	public void setSheet(SpriteSheet value) {
+		sheet = value;
+		animator.setFrame(0);
+		if (sheet != null) {
+			origin.set(sheet.getFrameWidth()/2.0f, sheet.getFrameHeight()/2.0f);
+		} else if (texture != null) {
+			origin.set(texture.getRegionWidth()/2.0f, texture.getRegionHeight()/2.0f);
+		}
+		markBoundsDirty();
+	}
+	
+	/**
+	 * Returns the animation playback state of this object.
+	 *
+	 * Use this to jump to a particular frame.
+	 *
+	 * @return the animation playback state of this object.
+	 */
+	public Animator getAnimator() {
+		return animator;
+	}
+	
+	/**
+	 * Appends the drawing state of this object to a buffer.
+	 *
+	 * This adds the animation frame to the transform.
+	 *
+	 * @param buffer The buffer to append to
+	 */
+	public void saveDrawState(FloatArray buffer) {
+		super.saveDrawState(buffer);
+		buffer.add(drawFrame);
+	}
+	
+	/**
+	 * Returns the number of floats appended by saveDrawState.
+	 *
+	 * @return the number of floats appended by saveDrawState.
+	 */
+	public int getDrawStateSize() {
+		return DRAW_STATE_SIZE+1;
+	}
+	
+	/**
+	 * Computes the drawing transform between the last two physics steps.
+	 *
+	 * @param alpha The fraction of a physics step to interpolate (0 to 1)
+	 */
+	public void interpolate(float alpha) {
+		super.interpolate(alpha);
+		drawFrame = animator.getFrame();
+	}
+	
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * This is the extent of the texture.  Subclasses should add their shape.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		if (sheet != null) {
+			result.set(-origin.x/drawScale.x, -origin.y/drawScale.y,
+					   sheet.getFrameWidth()/drawScale.x, sheet.getFrameHeight()/drawScale.y);
+		} else if (texture != null) {
+			result.set(-origin.x/drawScale.x, -origin.y/drawScale.y,
+					   texture.getRegionWidth()/drawScale.x, texture.getRegionHeight()/drawScale.y);
+		} else {
+			result.set(0, 0, 0, 0);
+		}
 	}
 	
 	/**
 	 * Draws the physics object.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	public void draw(GameCanvas canvas) {
-		if (texture != null) {
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),1,1);
+	public void draw(GameCanvas canvas, float[] state, int offset) {
+		float x = state[offset]*drawScale.x;
+		float y = state[offset+1]*drawScale.x;
+		if (sheet != null) {
+			int frame = (int)state[offset+DRAW_STATE_SIZE];
+			canvas.draw(sheet,frame,Color.WHITE,origin.x,origin.y,x,y,state[offset+2],1,1);
+		} else if (texture != null) {
+			canvas.draw(texture,Color.WHITE,origin.x,origin.y,x,y,state[offset+2],1,1);
 		}
 	}
 	
@@ -831,6 +945,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		// Only initialize if a body was created.
 		if (body != null) {
 			createFixtures();
+			refreshOutline();
 			return true;
 		} 
 		
@@ -849,6 +964,8 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (body != null) {
 			// Snapshot the values
 			setBodyState(body);
+			// Forget the fixtures, or we cannot activate again
+			releaseFixtures();
 			world.destroyBody(body);
 			body = null;
 			bodyinfo.active = false;
@@ -868,6 +985,45 @@ public abstract class SimpleObstacle extends Obstacle {
      * This is the primary method to override for custom physics objects.
      */
 	protected abstract void releaseFixtures();
+	
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * This is the method to override for custom physics objects.  It is called
+	 * on the thread that simulates the object, and only when the shape changed,
+	 * so it may read the Box2D shapes.  By default an object has no outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+	}
+	
+	/**
+	 * Rebuilds the debug outline if the shape changed since it was last built.
+	 */
+	private void refreshOutline() {
+		if (outlineDirty) {
+			outline.clear();
+			buildOutline(outline);
+			outline.publish();
+			outlineDirty = false;
+		}
+	}
+	
+	/**
+	 * Sets whether the object has been modified.
+	 *
+	 * A modified object also has its debug outline rebuilt at the next update,
+	 * as the shape may have changed.
+	 *
+	 * @param value  whether the object has been modified.
+	 */
+	public void markDirty(boolean value) {
+		super.markDirty(value);
+		if (value) {
+			outlineDirty = true;
+		}
+	}
     
 	/**
 	 * Updates the object's physics state (NOT GAME LOGIC).
@@ -884,5 +1040,9 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (isDirty()) {
 			createFixtures();
 		}
+		refreshOutline();
+		if (sheet != null) {
+			animator.update(sheet, delta);
+		}
 	}
 }
\ No newline at end of file
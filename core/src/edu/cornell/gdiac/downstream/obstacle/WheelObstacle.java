@@ -11,6 +11,7 @@
  */
 package edu.cornell.gdiac.downstream.obstacle;
 
+import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.physics.box2d.*;
 
@@ -106,15 +107,40 @@ public class WheelObstacle extends SimpleObstacle {
 	    }
 	}
 	
+	/**
+	 * Computes the extent of this object around its position, ignoring rotation.
+	 *
+	 * This is the extent of the texture and the wheel.
+	 *
+	 * @param result	The rectangle to store the extent
+	 */
+	protected void computeLocalBounds(Rectangle result) {
+		super.computeLocalBounds(result);
+		float radius = shape.getRadius();
+		result.merge(-radius, -radius);
+		result.merge( radius,  radius);
+	}
+
+	/**
+	 * Adds the loops of the shape to the debug outline.
+	 *
+	 * @param outline	The debug outline to build (already cleared)
+	 */
+	protected void buildOutline(DebugOutline outline) {
+		outline.addCircle(0,0,shape.getRadius());
+	}
+
 	/**
 	 * Draws the outline of the physics body.
 	 *
 	 * This method can be helpful for understanding issues with collisions.
 	 *
 	 * @param canvas Drawing context
+	 * @param state  The drawing states saved by saveDrawState
+	 * @param offset The position of the state of this object
 	 */
-	 public void drawDebug(GameCanvas canvas) {
-		canvas.drawPhysics(shape,Color.YELLOW,getX(),getY(),drawScale.x,drawScale.y);
+	 public void drawDebug(GameCanvas canvas, float[] state, int offset) {
+		outline.draw(canvas,Color.YELLOW,state[offset],state[offset+1],state[offset+2],drawScale.x,drawScale.y);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+/*
+ * Animator.java
+ *
+ * The per-object half of an animation.  The frames themselves are in a shared
+ * SpriteSheet; each animated object only needs to know which frame it is on, and
+ * how long it has been on it.
+ */
+package edu.cornell.gdiac.util;
+
+/**
+ * The playback state of an animation: a frame index and a timer.
+ *
+ * The animation loops.  The sheet is passed to update() rather than stored, so
+ * that this class stays as small as possible.
+ */
+public class Animator {
+	/** The current frame */
+	private int frame;
+	/** The seconds spent on the current frame */
+	private float time;
+
+	/**
+	 * Creates a new animator at the first frame.
+	 */
+	public Animator() {
+		frame = 0;
+		time = 0;
+	}
+
+	/**
+	 * Returns the current frame.
+	 *
+	 * @return the current frame.
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Sets the current frame, and restarts its timer.
+	 *
+	 * @param frame	The frame index
+	 */
+	public void setFrame(int frame) {
+		this.frame = frame;
+		time = 0;
+	}
+
+	/**
+	 * Advances the animation by the given time.
+	 *
+	 * Several frames may be skipped if the time is long.  A sheet with a frame time
+	 * of 0 (or less) does not animate.
+	 *
+	 * @param sheet	The sheet being played
+	 * @param delta	The seconds since the last update
+	 */
+	public void update(SpriteSheet sheet, float delta) {
+		float frameTime = sheet.getFrameTime();
+		if (frameTime <= 0 || sheet.getSize() <= 1) {
+			return;
+		}
+		time += delta;
+		if (time >= frameTime) {
+			int steps = (int)(time/frameTime);
+			time -= steps*frameTime;
+			frame = (frame+steps) % sheet.getSize();
+		}
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * CachedFontLoader.java
+ *
+ * FreetypeFontLoader rasterizes the TrueType font every time the game starts.
+ * At display sizes that takes a noticeable part of the start-up time, and the
+ * result is the same on every launch.  This loader does the rasterizing once,
+ * and saves the glyph pages (PNG) and metrics (an AngelCode .fnt file) in local
+ * storage.  Later launches load the baked font directly, without FreeType.
+ *
+ * The baked files are named after the font, its size, a checksum of the font file,
+ * and a hash of the character set and other raster settings.  Changing any of
+ * those makes a new entry, so the cache never has to be invalidated by hand.
+ */
+package edu.cornell.gdiac.util;
+
+import java.util.zip.CRC32;
+
+import com.badlogic.gdx.*;
+import com.badlogic.gdx.assets.*;
+import com.badlogic.gdx.assets.loaders.*;
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.*;
+import com.badlogic.gdx.graphics.g2d.freetype.*;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.*;
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * Asset loader for TrueType fonts that caches the generated bitmap font on disk.
+ *
+ * This is a drop-in replacement for FreetypeFontLoader, and takes the same
+ * parameters.  If the cache cannot be written (e.g. read-only storage), the font
+ * is generated in memory as before.
+ */
+public class CachedFontLoader extends AsynchronousAssetLoader<BitmapFont, FreetypeFontLoader.FreeTypeFontLoaderParameter> {
+	/** The directory (in local storage) for the baked fonts */
+	public static final String CACHE_DIR = "fontcache";
+	/** The largest glyph page to bake */
+	private static final int MAX_PAGE_SIZE = 1024;
+	/** The padding between glyphs on a page */
+	private static final int GLYPH_PADDING = 1;
+	/** The version of the baked format (part of the file name) */
+	private static final int FORMAT_VERSION = 1;
+
+	/** The font metrics read by loadAsync */
+	private BitmapFontData data;
+	/** The glyph pages read by loadAsync */
+	private Array<Pixmap> pages;
+
+	/**
+	 * Creates a new loader that finds the font files with the given resolver.
+	 *
+	 * @param resolver	The resolver for the TrueType files
+	 */
+	public CachedFontLoader(FileHandleResolver resolver) {
+		super(resolver);
+	}
+
+	/**
+	 * Returns the assets this font depends on (none).
+	 *
+	 * Unlike FreetypeFontLoader, the FreeType generator is only created on a
+	 * cache miss, and it is created by this loader directly.
+	 */
+	@SuppressWarnings("rawtypes")
+	public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file,
+												   FreetypeFontLoader.FreeTypeFontLoaderParameter parameter) {
+		return null;
+	}
+
+	/**
+	 * Reads (or bakes, on a cache miss) the font metrics and glyph pages.
+	 *
+	 * This is run off the GL thread, so it only creates pixmaps.
+	 */
+	public void loadAsync(AssetManager manager, String fileName, FileHandle file,
+						  FreetypeFontLoader.FreeTypeFontLoaderParameter parameter) {
+		if (parameter == null) {
+			throw new GdxRuntimeException("FreeTypeFontParameter must be set in AssetManager#load to point at a TTF file!");
+		}
+		FileHandle source = resolve(parameter.fontFileName);
+		FreeTypeFontParameter settings = parameter.fontParameters;
+		pages = new Array<Pixmap>();
+
+		FileHandle baked = getCacheFile(source, settings);
+		if (!baked.exists()) {
+			try {
+				bake(source, settings, baked);
+			} catch (GdxRuntimeException e) {
+				Gdx.app.error("CachedFontLoader", "Cannot cache "+source.path()+", generating it instead", e);
+				PixmapPacker packer = createPacker(settings);
+				data = rasterize(source, settings, settings.flip, packer);
+				for(PixmapPacker.Page page : packer.getPages()) {
+					pages.add(page.getPixmap());
+				}
+				return;
+			}
+		}
+
+		data = new BitmapFontData(baked, settings.flip);
+		for(int ii = 0; ii < data.imagePaths.length; ii++) {
+			pages.add(new Pixmap(Gdx.files.getFileHandle(data.imagePaths[ii], baked.type())));
+		}
+	}
+
+	/**
+	 * Creates the font from the pages read by loadAsync.
+	 *
+	 * This is run on the GL thread, as it creates the page textures.
+	 */
+	public BitmapFont loadSync(AssetManager manager, String fileName, FileHandle file,
+							   FreetypeFontLoader.FreeTypeFontLoaderParameter parameter) {
+		FreeTypeFontParameter settings = parameter.fontParameters;
+		Array<TextureRegion> regions = new Array<TextureRegion>(pages.size);
+		for(int ii = 0; ii < pages.size; ii++) {
+			Texture texture = new Texture(pages.get(ii), settings.genMipMaps);
+			texture.setFilter(settings.minFilter, settings.magFilter);
+			regions.add(new TextureRegion(texture));
+			pages.get(ii).dispose();
+		}
+		BitmapFont font = new BitmapFont(data, regions, true);
+		font.setOwnsTexture(true);
+		data = null;
+		pages = null;
+		return font;
+	}
+
+	/**
+	 * Returns the baked metrics file for the given font and settings.
+	 *
+	 * The glyph pages are stored next to it, with the page number appended.
+	 *
+	 * @param source	The TrueType file
+	 * @param settings	The raster settings
+	 *
+	 * @return the baked metrics file for the given font and settings.
+	 */
+	public static FileHandle getCacheFile(FileHandle source, FreeTypeFontParameter settings) {
+		CRC32 checksum = new CRC32();
+		checksum.update(source.readBytes());
+		String key = source.nameWithoutExtension()+"-"+settings.size+"-"+Long.toHexString(checksum.getValue())+
+					 "-"+Integer.toHexString(describe(settings).hashCode());
+		return Gdx.files.local(CACHE_DIR).child(key+".fnt");
+	}
+
+	/**
+	 * Rasterizes the font and writes it to the cache.
+	 *
+	 * The pages are written before the metrics, so an interrupted bake leaves no
+	 * metrics file behind, and is simply redone next launch.
+	 *
+	 * @param source	The TrueType file
+	 * @param settings	The raster settings
+	 * @param baked		The metrics file to write
+	 */
+	private void bake(FileHandle source, FreeTypeFontParameter settings, FileHandle baked) {
+		PixmapPacker packer = createPacker(settings);
+		try {
+			BitmapFontData generated = rasterize(source, settings, false, packer);
+			Array<PixmapPacker.Page> packed = packer.getPages();
+			String[] names = new String[packed.size];
+			for(int ii = 0; ii < packed.size; ii++) {
+				names[ii] = baked.nameWithoutExtension()+"_"+ii+".png";
+				PixmapIO.writePNG(baked.sibling(names[ii]), packed.get(ii).getPixmap());
+			}
+			baked.writeString(format(generated, names, packed.get(0).getPixmap()), false, "UTF-8");
+		} finally {
+			packer.dispose();
+		}
+	}
+
+	/**
+	 * Returns a packer for the glyph pages of a font.
+	 *
+	 * The page size follows FreeTypeFontGenerator: large enough for all the glyphs
+	 * on one page if possible.
+	 *
+	 * @param settings	The raster settings
+	 *
+	 * @return a packer for the glyph pages of a font.
+	 */
+	private static PixmapPacker createPacker(FreeTypeFontParameter settings) {
+		int size = MathUtils.nextPowerOfTwo((int)Math.ceil(settings.size*Math.sqrt(settings.characters.length())));
+		size = Math.min(size, MAX_PAGE_SIZE);
+		return new PixmapPacker(size, size, Pixmap.Format.RGBA8888, GLYPH_PADDING, false);
+	}
+
+	/**
+	 * Rasterizes the font into the given packer with FreeType.
+	 *
+	 * @param source	The TrueType file
+	 * @param settings	The raster settings
+	 * @param flip		Whether to flip the font vertically
+	 * @param packer	The packer for the glyph pages
+	 *
+	 * @return the font metrics
+	 */
+	private static BitmapFontData rasterize(FileHandle source, FreeTypeFontParameter settings,
+											boolean flip, PixmapPacker packer) {
+		FreeTypeFontParameter raster = new FreeTypeFontParameter();
+		raster.size = settings.size;
+		raster.mono = settings.mono;
+		raster.color = settings.color;
+		raster.gamma = settings.gamma;
+		raster.renderCount = settings.renderCount;
+		raster.borderWidth = settings.borderWidth;
+		raster.borderColor = settings.borderColor;
+		raster.borderStraight = settings.borderStraight;
+		raster.borderGamma = settings.borderGamma;
+		raster.shadowOffsetX = settings.shadowOffsetX;
+		raster.shadowOffsetY = settings.shadowOffsetY;
+		raster.shadowColor = settings.shadowColor;
+		raster.spaceX = settings.spaceX;
+		raster.spaceY = settings.spaceY;
+		raster.characters = settings.characters;
+		raster.kerning = settings.kerning;
+		raster.flip = flip;
+		raster.packer = packer;
+
+		FreeTypeFontGenerator generator = new FreeTypeFontGenerator(source);
+		try {
+			return generator.generateData(raster);
+		} finally {
+			generator.dispose();
+		}
+	}
+
+	/**
+	 * Returns a description of every setting that changes the rasterized glyphs.
+	 *
+	 * The hash of this string is part of the cache key.
+	 *
+	 * @param settings	The raster settings
+	 *
+	 * @return a description of every setting that changes the rasterized glyphs.
+	 */
+	private static String describe(FreeTypeFontParameter settings) {
+		return FORMAT_VERSION+"|"+settings.characters+"|"+settings.mono+"|"+settings.color+"|"+
+			   settings.gamma+"|"+settings.renderCount+"|"+settings.borderWidth+"|"+settings.borderColor+"|"+
+			   settings.borderStraight+"|"+settings.borderGamma+"|"+settings.shadowOffsetX+"|"+
+			   settings.shadowOffsetY+"|"+settings.shadowColor+"|"+settings.spaceX+"|"+settings.spaceY+"|"+
+			   settings.kerning;
+	}
+
+	/**
+	 * Returns the metrics of an (unflipped) font in the AngelCode text format.
+	 *
+	 * This is the format read by BitmapFontData, so the order of the fields in
+	 * the header lines matters.
+	 *
+	 * @param font	The font metrics
+	 * @param names	The file names of the glyph pages
+	 * @param page	A glyph page (for the page size)
+	 *
+	 * @return the metrics of an (unflipped) font in the AngelCode text format.
+	 */
+	private static String format(BitmapFontData font, String[] names, Pixmap page) {
+		Array<Glyph> glyphs = new Array<Glyph>();
+		if (font.missingGlyph != null) {
+			glyphs.add(font.missingGlyph);
+		}
+		int kernings = 0;
+		for(Glyph[] range : font.glyphs) {
+			if (range != null) {
+				for(Glyph glyph : range) {
+					if (glyph != null && glyph != font.missingGlyph) {
+						glyphs.add(glyph);
+						kernings += countKernings(glyph);
+					}
+				}
+			}
+		}
+
+		// The base line is the ascent before FreeTypeFontGenerator removed the cap height
+		int base = Math.round(font.ascent+font.capHeight);
+		java.lang.StringBuilder text = new java.lang.StringBuilder();
+		text.append("info face=\"\" size=0 bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 ");
+		text.append("padding=").append((int)font.padTop).append(',').append((int)font.padRight).append(',');
+		text.append((int)font.padBottom).append(',').append((int)font.padLeft).append(" spacing=0,0\n");
+		text.append("common lineHeight=").append(Math.round(font.lineHeight)).append(" base=").append(base);
+		text.append(" scaleW=").append(page.getWidth()).append(" scaleH=").append(page.getHeight());
+		text.append(" pages=").append(names.length).append(" packed=0\n");
+		for(int ii = 0; ii < names.length; ii++) {
+			text.append("page id=").append(ii).append(" file=\"").append(names[ii]).append("\"\n");
+		}
+
+		text.append("chars count=").append(glyphs.size).append('\n');
+		for(Glyph glyph : glyphs) {
+			// AngelCode measures the offset down from the top of the line to the glyph top
+			int yoffset = -(glyph.yoffset+glyph.height);
+			int id = (glyph == font.missingGlyph ? 0 : glyph.id);
+			text.append("char id=").append(id).append(" x=").append(glyph.srcX).append(" y=").append(glyph.srcY);
+			text.append(" width=").append(glyph.width).append(" height=").append(glyph.height);
+			text.append(" xoffset=").append(glyph.xoffset).append(" yoffset=").append(yoffset);
+			text.append(" xadvance=").append(glyph.xadvance).append(" page=").append(glyph.page).append(" chnl=0\n");
+		}
+
+		text.append("kernings count=").append(kernings).append('\n');
+		for(Glyph glyph : glyphs) {
+			if (glyph.kerning == null || glyph == font.missingGlyph) {
+				continue;
+			}
+			for(int ii = 0; ii < glyph.kerning.length; ii++) {
+				byte[] range = glyph.kerning[ii];
+				if (range == null) {
+					continue;
+				}
+				for(int jj = 0; jj < range.length; jj++) {
+					if (range[jj] != 0) {
+						text.append("kerning first=").append(glyph.id).append(" second=").append(ii*range.length+jj);
+						text.append(" amount=").append(range[jj]).append('\n');
+					}
+				}
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns the number of kerning pairs that start with the given glyph.
+	 *
+	 * @param glyph	The first glyph of the pairs
+	 *
+	 * @return the number of kerning pairs that start with the given glyph.
+	 */
+	private static int countKernings(Glyph glyph) {
+		if (glyph.kerning == null) {
+			return 0;
+		}
+		int count = 0;
+		for(byte[] range : glyph.kerning) {
+			if (range != null) {
+				for(int ii = 0; ii < range.length; ii++) {
+					if (range[ii] != 0) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
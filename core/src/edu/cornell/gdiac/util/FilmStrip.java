@@ -33,6 +33,9 @@ import com.badlogic.gdx.graphics.*;
  * API for that class to understand how a TextureRegion.  The primary 
  * advantage of this class is that it can quickly compute the new region
  * from the frame number.
+ *
+ * As the frame is part of the region, a filmstrip cannot be shared by objects
+ * on different frames.  Use a SpriteSheet for that instead.
  */
 public class FilmStrip extends TextureRegion {
 	/** The number of columns in this filmstrip */
@@ -50,6 +53,12 @@ public class FilmStrip extends TextureRegion {
 	/** The active animation frame */
 	private int frame;
 	
+	/** The x-coordinate of the first frame in the texture */
+	private int left;
+	
+	/** The y-coordinate of the first frame in the texture */
+	private int top;
+	
 	/**
 	 * Creates a new filmstrip from the given texture.
 	 * 
@@ -74,15 +83,34 @@ public class FilmStrip extends TextureRegion {
 	 * @param size The number of frames in the filmstrip
 	 */
 	public FilmStrip(Texture texture, int rows, int cols, int size) {
-		super(texture);
+		this(new TextureRegion(texture),rows,cols,size);
+	}
+	
+	/**
+	 * Creates a new filmstrip from part of a texture.
+	 * 
+	 * The frames are taken from the given region only, so the filmstrip may
+	 * share its texture with other images (e.g. in a texture atlas).  The value
+	 * size must be less than or equal to rows*cols, or this constructor will 
+	 * raise an error.
+	 * 
+	 * @param region The texture region to use
+	 * @param rows The number of rows in the filmstrip
+	 * @param cols The number of columns in the filmstrip
+	 * @param size The number of frames in the filmstrip
+	 */
+	public FilmStrip(TextureRegion region, int rows, int cols, int size) {
+		super(region);
 		if (size > rows*cols) {
 			Gdx.app.error("FilmStrip", "Invalid strip size", new IllegalArgumentException());
 			return;
 		}
 		this.cols = cols;
 		this.size = size;
-		rwidth  = texture.getWidth()/cols;
-		rheight = texture.getHeight()/rows;
+		left = region.getRegionX();
+		top  = region.getRegionY();
+		rwidth  = region.getRegionWidth()/cols;
+		rheight = region.getRegionHeight()/rows;
 		setFrame(0);
 	}
 	
@@ -117,8 +145,8 @@ public class FilmStrip extends TextureRegion {
 			return;
 		}
 		this.frame = frame;
-		int x = (frame % cols)*rwidth;
-		int y = (frame / cols)*rheight;
+		int x = left+(frame % cols)*rwidth;
+		int y = top+(frame / cols)*rheight;
 		setRegion(x,y,rwidth,rheight);
 	}
 
@@ -0,0 +1,235 @@
+/*
+ * PhaseTimer.java
+ *
+ * When the game hitches, we want to know which part of the frame was slow.  This
+ * class times the named phases of each animation frame with System.nanoTime and
+ * keeps the last few thousand frames in a ring buffer.  From that we can get the
+ * percentiles of each phase, or dump the raw samples to a CSV file for a closer
+ * look in a spreadsheet.
+ *
+ * All of the storage is allocated up front, so timing a frame allocates nothing.
+ */
+package edu.cornell.gdiac.util;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * A ring buffer of per-phase frame timings.
+ *
+ * A phase may be started and stopped several times in a frame (e.g. once per
+ * physics step); the frame sample is the total.  Call endFrame() once the frame
+ * is done to store the sample and start the next frame.
+ *
+ * A timer is not synchronized, so only one thread may use it.  Threads that share
+ * a frame should each have their own timer (see writeCSV(FileHandle,PhaseTimer[])).
+ */
+public class PhaseTimer {
+	/** Number of nanoseconds in a millisecond */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/** The name of each phase */
+	private String[] names;
+	/** The samples of each phase, in nanoseconds (one row per phase) */
+	private long[][] samples;
+	/** The time each phase was last started */
+	private long[] started;
+	/** The running total of each phase in the current frame */
+	private long[] current;
+	/** Scratch space for computing percentiles */
+	private long[] sorted;
+
+	/** The position of the next frame in the ring buffer */
+	private int head;
+	/** The number of frames stored (at most the capacity) */
+	private int count;
+	/** The total number of frames recorded */
+	private long frames;
+
+	/**
+	 * Creates a new timer for the given phases.
+	 *
+	 * @param names		The name of each phase
+	 * @param capacity	The number of frames to keep
+	 */
+	public PhaseTimer(String[] names, int capacity) {
+		assert capacity > 0 : "Capacity must be positive";
+		this.names = names;
+		samples = new long[names.length][capacity];
+		started = new long[names.length];
+		current = new long[names.length];
+		sorted  = new long[capacity];
+		head  = 0;
+		count = 0;
+		frames = 0;
+	}
+
+	/**
+	 * Returns the number of phases timed.
+	 *
+	 * @return the number of phases timed.
+	 */
+	public int getPhaseCount() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of the given phase.
+	 *
+	 * @param phase	The phase index
+	 *
+	 * @return the name of the given phase.
+	 */
+	public String getName(int phase) {
+		return names[phase];
+	}
+
+	/**
+	 * Returns the number of frames stored in the buffer.
+	 *
+	 * @return the number of frames stored in the buffer.
+	 */
+	public int getFrameCount() {
+		return count;
+	}
+
+	/**
+	 * Starts timing the given phase.
+	 *
+	 * @param phase	The phase index
+	 */
+	public void start(int phase) {
+		started[phase] = System.nanoTime();
+	}
+
+	/**
+	 * Stops timing the given phase, adding the time to the current frame.
+	 *
+	 * @param phase	The phase index
+	 */
+	public void stop(int phase) {
+		current[phase] += System.nanoTime()-started[phase];
+	}
+
+	/**
+	 * Stores the current frame in the ring buffer and starts a new frame.
+	 */
+	public void endFrame() {
+		for(int ii = 0; ii < names.length; ii++) {
+			samples[ii][head] = current[ii];
+			current[ii] = 0;
+		}
+		head = (head+1) % sorted.length;
+		count = Math.min(count+1, sorted.length);
+		frames++;
+	}
+
+	/**
+	 * Removes all stored frames.
+	 */
+	public void clear() {
+		for(int ii = 0; ii < names.length; ii++) {
+			current[ii] = 0;
+		}
+		head  = 0;
+		count = 0;
+		frames = 0;
+	}
+
+	/**
+	 * Returns the given percentile of a phase over the stored frames, in milliseconds.
+	 *
+	 * This sorts the samples of the phase, so do not call it every frame.
+	 *
+	 * @param phase		The phase index
+	 * @param percent	The percentile (0 to 100)
+	 *
+	 * @return the given percentile of a phase over the stored frames, in milliseconds.
+	 */
+	public float getPercentile(int phase, float percent) {
+		if (count == 0) {
+			return 0;
+		}
+		System.arraycopy(samples[phase], 0, sorted, 0, count);
+		Arrays.sort(sorted, 0, count);
+		int index = (int)Math.ceil(percent/100.0f*count)-1;
+		index = Math.max(0, Math.min(count-1, index));
+		return (float)(sorted[index]/NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Writes the stored frames to a CSV file, oldest first.
+	 *
+	 * The file has a header row with the phase names, followed by one row per
+	 * frame.  The times are in milliseconds.  Errors are logged, not thrown.
+	 *
+	 * @param file	The file to write
+	 */
+	public void writeCSV(FileHandle file) {
+		writeCSV(file, new PhaseTimer[] {this});
+	}
+
+	/**
+	 * Writes the stored frames of several timers to a CSV file, oldest first.
+	 *
+	 * This is for timers that end their frames together, but are written by
+	 * different threads (and so cannot share a timer).  The phases of all the
+	 * timers are side by side, and the frame numbers are those of the first
+	 * timer.  If the timers have stored a different number of frames, only the
+	 * most recent frames common to all of them are written.
+	 *
+	 * @param file		The file to write
+	 * @param timers	The timers to write, in column order
+	 */
+	public static void writeCSV(FileHandle file, PhaseTimer[] timers) {
+		int count = timers[0].count;
+		for(int kk = 1; kk < timers.length; kk++) {
+			count = Math.min(count, timers[kk].count);
+		}
+
+		Writer out = null;
+		try {
+			out = new BufferedWriter(file.writer(false, "UTF-8"));
+			out.write("frame");
+			for(int kk = 0; kk < timers.length; kk++) {
+				for(int ii = 0; ii < timers[kk].names.length; ii++) {
+					out.write(",");
+					out.write(timers[kk].names[ii]);
+				}
+			}
+			out.write("\n");
+
+			long first = timers[0].frames-count;
+			for(int jj = 0; jj < count; jj++) {
+				out.write(Long.toString(first+jj));
+				for(int kk = 0; kk < timers.length; kk++) {
+					PhaseTimer timer = timers[kk];
+					int capacity = timer.sorted.length;
+					int pos = (timer.head-count+jj+capacity) % capacity;
+					for(int ii = 0; ii < timer.names.length; ii++) {
+						out.write(",");
+						out.write(String.format(Locale.US, "%.4f", timer.samples[ii][pos]/NANOS_PER_MILLI));
+					}
+				}
+				out.write("\n");
+			}
+		} catch (IOException e) {
+			Gdx.app.error("PhaseTimer", "Could not write "+file.path(), e);
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("PhaseTimer", "Could not open "+file.path(), e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					Gdx.app.error("PhaseTimer", "Could not close "+file.path(), e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * SpatialGrid.java
+ *
+ * Finding the closest object with a linear scan is fine when there are four of
+ * them.  It is not fine when a level has hundreds.  This class is a uniform grid
+ * over a set of objects that do not move (like tethers).  The grid is built once,
+ * and then answers nearest-neighbour and radius queries by only looking at the
+ * cells near the query point.
+ *
+ * The grid is stored in compressed form: the objects are sorted by cell, and each
+ * cell just records where its objects start.  So a query allocates nothing.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A uniform grid spatial index over a set of stationary objects.
+ *
+ * Objects are added with their positions, and then the grid is built with build().
+ * Adding an object after the grid is built requires another call to build().  The
+ * grid bounds are computed from the objects, so there is no need to know the level
+ * size in advance.
+ */
+public class SpatialGrid<T> {
+	/** The width and height of a single cell */
+	private float cellSize;
+
+	/** The objects in this index */
+	private Array<T> items;
+	/** The x-coordinate of each object */
+	private FloatArray xs;
+	/** The y-coordinate of each object */
+	private FloatArray ys;
+
+	/** The left edge of the grid */
+	private float left;
+	/** The bottom edge of the grid */
+	private float bottom;
+	/** The number of columns in the grid */
+	private int cols;
+	/** The number of rows in the grid */
+	private int rows;
+	/** The start of each cell in cellItems (with one extra at the end) */
+	private int[] cellStart;
+	/** The object indices, sorted by cell */
+	private int[] cellItems;
+	/** Whether the grid is up to date with the objects */
+	private boolean built;
+
+	/**
+	 * Creates a new empty spatial grid
+	 *
+	 * The cell size should be around the typical distance between objects.  Too small
+	 * and queries visit many empty cells.  Too large and queries test many objects.
+	 *
+	 * @param cellSize	The width and height of a single cell
+	 */
+	public SpatialGrid(float cellSize) {
+		assert cellSize > 0 : "Cell size must be positive";
+		this.cellSize = cellSize;
+		items = new Array<T>();
+		xs = new FloatArray();
+		ys = new FloatArray();
+		cellStart = new int[1];
+		cellItems = new int[0];
+		built = true;
+	}
+
+	/**
+	 * Returns the number of objects in this index.
+	 *
+	 * @return the number of objects in this index.
+	 */
+	public int size() {
+		return items.size;
+	}
+
+	/**
+	 * Adds an object to this index at the given position.
+	 *
+	 * The object will not be visible to queries until the grid is rebuilt.
+	 *
+	 * @param item	The object to add
+	 * @param x		The x-coordinate of the object
+	 * @param y		The y-coordinate of the object
+	 */
+	public void add(T item, float x, float y) {
+		items.add(item);
+		xs.add(x);
+		ys.add(y);
+		built = false;
+	}
+
+	/**
+	 * Removes all objects from this index.
+	 */
+	public void clear() {
+		items.clear();
+		xs.clear();
+		ys.clear();
+		cols = 0;
+		rows = 0;
+		built = true;
+	}
+
+	/**
+	 * Builds the grid from the objects added so far.
+	 *
+	 * This is a counting sort of the objects by cell, so it is linear in the number
+	 * of objects and cells.
+	 */
+	public void build() {
+		int count = items.size;
+		if (count == 0) {
+			cols = 0;
+			rows = 0;
+			built = true;
+			return;
+		}
+
+		float right = xs.get(0);
+		float top = ys.get(0);
+		left = right;
+		bottom = top;
+		for(int ii = 1; ii < count; ii++) {
+			left   = Math.min(left,  xs.get(ii));
+			right  = Math.max(right, xs.get(ii));
+			bottom = Math.min(bottom,ys.get(ii));
+			top    = Math.max(top,   ys.get(ii));
+		}
+		cols = (int)((right-left)/cellSize)+1;
+		rows = (int)((top-bottom)/cellSize)+1;
+
+		if (cellStart.length < cols*rows+1) {
+			cellStart = new int[cols*rows+1];
+		} else {
+			for(int ii = 0; ii <= cols*rows; ii++) {
+				cellStart[ii] = 0;
+			}
+		}
+		if (cellItems.length < count) {
+			cellItems = new int[count];
+		}
+
+		// Count each cell, then convert the counts to start positions
+		for(int ii = 0; ii < count; ii++) {
+			cellStart[cellOf(xs.get(ii),ys.get(ii))+1]++;
+		}
+		for(int ii = 1; ii <= cols*rows; ii++) {
+			cellStart[ii] += cellStart[ii-1];
+		}
+		// Placing each object advances its cell start to the next cell
+		for(int ii = 0; ii < count; ii++) {
+			int cell = cellOf(xs.get(ii),ys.get(ii));
+			cellItems[cellStart[cell]++] = ii;
+		}
+		// So shift the starts back by one cell
+		for(int ii = cols*rows; ii > 0; ii--) {
+			cellStart[ii] = cellStart[ii-1];
+		}
+		cellStart[0] = 0;
+		built = true;
+	}
+
+	/**
+	 * Returns the nearest object to the given position, or null if there are none.
+	 *
+	 * The search visits rings of cells around the query point, and stops as soon
+	 * as no unvisited cell can hold anything closer than the best found so far.
+	 *
+	 * @param x		The x-coordinate of the query point
+	 * @param y		The y-coordinate of the query point
+	 *
+	 * @return the nearest object to the given position, or null if there are none.
+	 */
+	public T nearest(float x, float y) {
+		assert built : "Spatial grid must be rebuilt after adding objects";
+		if (items.size == 0) {
+			return null;
+		}
+
+		int cx = column(x);
+		int cy = row(y);
+		int best = -1;
+		float bestDist = Float.MAX_VALUE;
+		int maxRing = Math.max(Math.max(cx, cols-1-cx), Math.max(cy, rows-1-cy));
+		for(int ring = 0; ring <= maxRing; ring++) {
+			for(int jj = cy-ring; jj <= cy+ring; jj++) {
+				if (jj < 0 || jj >= rows) {
+					continue;
+				}
+				boolean edge = (jj == cy-ring || jj == cy+ring);
+				int step = (edge || ring == 0 ? 1 : 2*ring);
+				for(int ii = cx-ring; ii <= cx+ring; ii += step) {
+					if (ii < 0 || ii >= cols) {
+						continue;
+					}
+					int cell = jj*cols+ii;
+					for(int kk = cellStart[cell]; kk < cellStart[cell+1]; kk++) {
+						int item = cellItems[kk];
+						float dx = xs.get(item)-x;
+						float dy = ys.get(item)-y;
+						float dist = dx*dx+dy*dy;
+						if (dist < bestDist) {
+							bestDist = dist;
+							best = item;
+						}
+					}
+				}
+			}
+
+			// Anything not yet visited is at least this far away
+			if (best != -1) {
+				float reach = Float.MAX_VALUE;
+				if (cx-ring > 0) {
+					reach = Math.min(reach, x-(left+(cx-ring)*cellSize));
+				}
+				if (cx+ring < cols-1) {
+					reach = Math.min(reach, left+(cx+ring+1)*cellSize-x);
+				}
+				if (cy-ring > 0) {
+					reach = Math.min(reach, y-(bottom+(cy-ring)*cellSize));
+				}
+				if (cy+ring < rows-1) {
+					reach = Math.min(reach, bottom+(cy+ring+1)*cellSize-y);
+				}
+				if (reach >= 0 && bestDist <= reach*reach) {
+					break;
+				}
+			}
+		}
+		return items.get(best);
+	}
+
+	/**
+	 * Adds all objects within the given radius of a position to the result.
+	 *
+	 * The result array is not cleared first.  Objects exactly on the radius are
+	 * included.
+	 *
+	 * @param x			The x-coordinate of the query point
+	 * @param y			The y-coordinate of the query point
+	 * @param radius	The search radius
+	 * @param result	The array to store the objects found
+	 *
+	 * @return the number of objects found
+	 */
+	public int within(float x, float y, float radius, Array<T> result) {
+		assert built : "Spatial grid must be rebuilt after adding objects";
+		if (items.size == 0) {
+			return 0;
+		}
+
+		int found = 0;
+		float radius2 = radius*radius;
+		int minCol = column(x-radius);
+		int maxCol = column(x+radius);
+		int minRow = row(y-radius);
+		int maxRow = row(y+radius);
+		for(int jj = minRow; jj <= maxRow; jj++) {
+			for(int ii = minCol; ii <= maxCol; ii++) {
+				int cell = jj*cols+ii;
+				for(int kk = cellStart[cell]; kk < cellStart[cell+1]; kk++) {
+					int item = cellItems[kk];
+					float dx = xs.get(item)-x;
+					float dy = ys.get(item)-y;
+					if (dx*dx+dy*dy <= radius2) {
+						result.add(items.get(item));
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the grid column for the x-coordinate, clamped to the grid.
+	 *
+	 * @param x	The x-coordinate
+	 *
+	 * @return the grid column for the x-coordinate, clamped to the grid.
+	 */
+	private int column(float x) {
+		int col = (int)Math.floor((x-left)/cellSize);
+		return Math.max(0, Math.min(cols-1, col));
+	}
+
+	/**
+	 * Returns the grid row for the y-coordinate, clamped to the grid.
+	 *
+	 * @param y	The y-coordinate
+	 *
+	 * @return the grid row for the y-coordinate, clamped to the grid.
+	 */
+	private int row(float y) {
+		int row = (int)Math.floor((y-bottom)/cellSize);
+		return Math.max(0, Math.min(rows-1, row));
+	}
+
+	/**
+	 * Returns the grid cell for a position, clamped to the grid.
+	 *
+	 * @param x	The x-coordinate
+	 * @param y	The y-coordinate
+	 *
+	 * @return the grid cell for a position, clamped to the grid.
+	 */
+	private int cellOf(float x, float y) {
+		return row(y)*cols+column(x);
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * SpriteSheet.java
+ *
+ * A FilmStrip stores its current frame in the region itself, so every animated
+ * object needs its own strip, and every frame change recomputes the texture
+ * coordinates.  A sprite sheet is the shared half of an animation instead: the
+ * texture coordinates of every frame are computed once, when the sheet is made,
+ * and never change.  Any number of objects can play the same sheet, each keeping
+ * only its own frame index and timer (see Animator).
+ *
+ * The frames are laid out like those of a FilmStrip: in rows and columns, starting
+ * at the top-left, with any blank frames at the end.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+
+/**
+ * An immutable table of animation frames on a texture.
+ *
+ * The sheet stores the texture coordinates of each frame, and how long each frame
+ * is shown.  It does not store a current frame, so it can be shared.
+ */
+public class SpriteSheet {
+	/** The number of texture coordinates per frame (u, v, u2, v2) */
+	private static final int COORDS_PER_FRAME = 4;
+
+	/** The texture holding the frames */
+	private Texture texture;
+	/** The texture coordinates of each frame (u, v, u2, v2, with v at the top) */
+	private float[] coords;
+	/** The number of frames in this sheet */
+	private int size;
+	/** The width of a single frame, in pixels */
+	private int width;
+	/** The height of a single frame, in pixels */
+	private int height;
+	/** The seconds to show each frame */
+	private float frameTime;
+
+	/**
+	 * Creates a new sprite sheet from part of a texture.
+	 *
+	 * The frames are taken from the given region only, so the sheet may share its
+	 * texture with other images (e.g. in a texture atlas).  The value size must be
+	 * less than or equal to rows*cols, or this constructor will raise an error.
+	 *
+	 * @param region	The texture region to use
+	 * @param rows		The number of rows in the sheet
+	 * @param cols		The number of columns in the sheet
+	 * @param size		The number of frames in the sheet
+	 * @param frameTime	The seconds to show each frame
+	 */
+	public SpriteSheet(TextureRegion region, int rows, int cols, int size, float frameTime) {
+		texture = region.getTexture();
+		this.frameTime = frameTime;
+		if (size > rows*cols) {
+			Gdx.app.error("SpriteSheet", "Invalid sheet size", new IllegalArgumentException());
+			size = rows*cols;
+		}
+		this.size = size;
+		width  = region.getRegionWidth()/cols;
+		height = region.getRegionHeight()/rows;
+
+		float invWidth  = 1.0f/texture.getWidth();
+		float invHeight = 1.0f/texture.getHeight();
+		int left = region.getRegionX();
+		int top  = region.getRegionY();
+		coords = new float[size*COORDS_PER_FRAME];
+		for(int ii = 0; ii < size; ii++) {
+			int x = left+(ii % cols)*width;
+			int y = top+(ii / cols)*height;
+			coords[COORDS_PER_FRAME*ii  ] = x*invWidth;
+			coords[COORDS_PER_FRAME*ii+1] = y*invHeight;
+			coords[COORDS_PER_FRAME*ii+2] = (x+width)*invWidth;
+			coords[COORDS_PER_FRAME*ii+3] = (y+height)*invHeight;
+		}
+	}
+
+	/**
+	 * Returns the texture holding the frames.
+	 *
+	 * @return the texture holding the frames.
+	 */
+	public Texture getTexture() {
+		return texture;
+	}
+
+	/**
+	 * Returns the number of frames in this sheet.
+	 *
+	 * @return the number of frames in this sheet.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the width of a single frame, in pixels.
+	 *
+	 * @return the width of a single frame, in pixels.
+	 */
+	public int getFrameWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of a single frame, in pixels.
+	 *
+	 * @return the height of a single frame, in pixels.
+	 */
+	public int getFrameHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the seconds to show each frame.
+	 *
+	 * @return the seconds to show each frame.
+	 */
+	public float getFrameTime() {
+		return frameTime;
+	}
+
+	/**
+	 * Returns the left texture coordinate of the given frame.
+	 *
+	 * @param frame	The frame index
+	 *
+	 * @return the left texture coordinate of the given frame.
+	 */
+	public float getU(int frame) {
+		return coords[COORDS_PER_FRAME*frame];
+	}
+
+	/**
+	 * Returns the top texture coordinate of the given frame.
+	 *
+	 * @param frame	The frame index
+	 *
+	 * @return the top texture coordinate of the given frame.
+	 */
+	public float getV(int frame) {
+		return coords[COORDS_PER_FRAME*frame+1];
+	}
+
+	/**
+	 * Returns the right texture coordinate of the given frame.
+	 *
+	 * @param frame	The frame index
+	 *
+	 * @return the right texture coordinate of the given frame.
+	 */
+	public float getU2(int frame) {
+		return coords[COORDS_PER_FRAME*frame+2];
+	}
+
+	/**
+	 * Returns the bottom texture coordinate of the given frame.
+	 *
+	 * @param frame	The frame index
+	 *
+	 * @return the bottom texture coordinate of the given frame.
+	 */
+	public float getV2(int frame) {
+		return coords[COORDS_PER_FRAME*frame+3];
+	}
+
+	/**
+	 * Sets a texture region to the given frame, and returns it.
+	 *
+	 * This is for code that needs a region (such as a static layer).  Drawing
+	 * an animated object does not need this.
+	 *
+	 * @param frame		The frame index
+	 * @param result	The region to set
+	 *
+	 * @return the given region, set to the frame.
+	 */
+	public TextureRegion getRegion(int frame, TextureRegion result) {
+		result.setTexture(texture);
+		result.setRegion(getU(frame), getV(frame), getU2(frame), getV2(frame));
+		return result;
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * StartupTrace.java
+ *
+ * We want to know where the time goes between launching the game and drawing the
+ * first frame of gameplay.  This class records named spans (with System.nanoTime)
+ * from the moment it is first used until the first frame, and writes them as a
+ * Chrome trace.  Open the file in chrome://tracing (or https://ui.perfetto.dev) to
+ * see the spans on a timeline, one row per thread.
+ *
+ * The asset manager does not tell us when each asset loads.  However, it logs the
+ * load time of each asset at the debug level, so we listen to its log instead.
+ */
+package edu.cornell.gdiac.util;
+
+import java.io.*;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * Singleton recorder of the spans of the game startup.
+ *
+ * Each span is started with begin(), which returns its index, and stopped with
+ * end().  Spans may nest, and may be on any thread.  Once finish() is called (on
+ * the first gameplay frame) nothing else is recorded, so the trace stays small.
+ */
+public class StartupTrace {
+	/** Number of nanoseconds in a millisecond */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	/** Number of nanoseconds in a microsecond (the unit of Chrome traces) */
+	private static final double NANOS_PER_MICRO = 1000.0;
+	/** The category of ordinary spans */
+	private static final String CATEGORY_STARTUP = "startup";
+	/** The category of asset loading spans */
+	private static final String CATEGORY_ASSET = "asset";
+	/** The prefix of the asset manager message for a loaded asset */
+	private static final String LOADED_PREFIX = "Loaded: ";
+	/** The separator between the load time and the asset in that message */
+	private static final String LOADED_UNITS = "ms ";
+
+	/** The singleton instance */
+	private static StartupTrace instance;
+
+	/**
+	 * Returns the singleton instance of the startup trace.
+	 *
+	 * The trace starts the first time this is called, so call it as early as
+	 * possible (e.g. at the top of the main method).
+	 *
+	 * @return the singleton instance of the startup trace.
+	 */
+	public static synchronized StartupTrace getInstance() {
+		if (instance == null) {
+			instance = new StartupTrace();
+		}
+		return instance;
+	}
+
+	/** The time the trace started */
+	private long origin;
+	/** The time of the first frame (valid once finished) */
+	private long firstFrame;
+	/** The thread that drew the first frame (valid once finished) */
+	private long firstFrameThread;
+	/** Whether the first frame has been drawn */
+	private boolean finished;
+
+	/** The name of each span */
+	private Array<String> names;
+	/** The category of each span */
+	private Array<String> categories;
+	/** The start time of each span */
+	private LongArray starts;
+	/** The end time of each span (-1 if still open) */
+	private LongArray ends;
+	/** The thread of each span */
+	private LongArray threads;
+	/** The names of the threads seen so far */
+	private LongMap<String> threadNames;
+
+	/**
+	 * Creates a new trace, starting now.
+	 */
+	private StartupTrace() {
+		origin = System.nanoTime();
+		names = new Array<String>();
+		categories = new Array<String>();
+		starts = new LongArray();
+		ends = new LongArray();
+		threads = new LongArray();
+		threadNames = new LongMap<String>();
+	}
+
+	/**
+	 * Returns true if the first frame has been drawn.
+	 *
+	 * @return true if the first frame has been drawn.
+	 */
+	public synchronized boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Returns the milliseconds from the start of the trace to the first frame.
+	 *
+	 * This is 0 if the first frame has not been drawn yet.
+	 *
+	 * @return the milliseconds from the start of the trace to the first frame.
+	 */
+	public synchronized float getTimeToFirstFrame() {
+		return finished ? (float)((firstFrame-origin)/NANOS_PER_MILLI) : 0;
+	}
+
+	/**
+	 * Starts a span with the given name, and returns its index.
+	 *
+	 * Once the trace is finished, this returns -1 and records nothing.
+	 *
+	 * @param name	The span name
+	 *
+	 * @return the index of the new span (-1 if the trace is finished)
+	 */
+	public synchronized int begin(String name) {
+		return record(name, CATEGORY_STARTUP, System.nanoTime(), -1);
+	}
+
+	/**
+	 * Stops the given span.
+	 *
+	 * @param span	The index returned by begin()
+	 */
+	public synchronized void end(int span) {
+		if (span >= 0 && !finished) {
+			ends.set(span, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Stops recording at the first frame of gameplay.
+	 *
+	 * Call this once the first frame is drawn.  Later calls do nothing.
+	 */
+	public synchronized void finish() {
+		if (!finished) {
+			firstFrame = System.nanoTime();
+			firstFrameThread = Thread.currentThread().getId();
+			finished = true;
+		}
+	}
+
+	/**
+	 * Returns a logger that records asset loads, for AssetManager.setLogger.
+	 *
+	 * Every asset (and dependency) loaded is recorded as a span, named after its
+	 * file.  The logger prints nothing, so restore the original logger once the
+	 * trace is finished.
+	 *
+	 * @return a logger that records asset loads.
+	 */
+	public Logger createAssetLogger() {
+		return new AssetLogger();
+	}
+
+	/**
+	 * Writes the trace to a file in the Chrome trace event format.
+	 *
+	 * The spans are "complete" events, with times in microseconds since the start
+	 * of the trace.  The first frame is marked with an instant event.  Spans that
+	 * never ended are left out.  Errors are logged, not thrown.
+	 *
+	 * @param file	The file to write
+	 */
+	public synchronized void write(FileHandle file) {
+		JsonWriter json = null;
+		try {
+			json = new JsonWriter(new BufferedWriter(file.writer(false, "UTF-8")));
+			json.setOutputType(JsonWriter.OutputType.json);
+			json.object();
+			json.set("displayTimeUnit", "ms");
+			json.array("traceEvents");
+
+			for(LongMap.Entry<String> entry : threadNames.entries()) {
+				json.object();
+				json.set("name", "thread_name");
+				json.set("ph", "M");
+				json.set("pid", 1);
+				json.set("tid", entry.key);
+				json.object("args");
+				json.set("name", entry.value);
+				json.pop();
+				json.pop();
+			}
+
+			for(int ii = 0; ii < names.size; ii++) {
+				if (ends.get(ii) < 0) {
+					continue;
+				}
+				json.object();
+				json.set("name", names.get(ii));
+				json.set("cat", categories.get(ii));
+				json.set("ph", "X");
+				json.set("ts", (starts.get(ii)-origin)/NANOS_PER_MICRO);
+				json.set("dur", (ends.get(ii)-starts.get(ii))/NANOS_PER_MICRO);
+				json.set("pid", 1);
+				json.set("tid", threads.get(ii));
+				json.pop();
+			}
+
+			if (finished) {
+				json.object();
+				json.set("name", "first frame");
+				json.set("cat", CATEGORY_STARTUP);
+				json.set("ph", "i");
+				json.set("s", "g");
+				json.set("ts", (firstFrame-origin)/NANOS_PER_MICRO);
+				json.set("pid", 1);
+				json.set("tid", firstFrameThread);
+				json.pop();
+			}
+
+			json.pop();
+			json.pop();
+		} catch (IOException e) {
+			Gdx.app.error("StartupTrace", "Could not write "+file.path(), e);
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("StartupTrace", "Could not open "+file.path(), e);
+		} finally {
+			if (json != null) {
+				try {
+					json.close();
+				} catch (IOException e) {
+					Gdx.app.error("StartupTrace", "Could not close "+file.path(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a span on the current thread, and returns its index.
+	 *
+	 * @param name		The span name
+	 * @param category	The span category
+	 * @param start		The start time of the span
+	 * @param end		The end time of the span (-1 if still open)
+	 *
+	 * @return the index of the new span (-1 if the trace is finished)
+	 */
+	private synchronized int record(String name, String category, long start, long end) {
+		if (finished) {
+			return -1;
+		}
+		Thread thread = Thread.currentThread();
+		if (!threadNames.containsKey(thread.getId())) {
+			threadNames.put(thread.getId(), thread.getName());
+		}
+		names.add(name);
+		categories.add(category);
+		starts.add(start);
+		ends.add(end);
+		threads.add(thread.getId());
+		return names.size-1;
+	}
+
+	/**
+	 * Logger that turns the asset manager load messages into spans.
+	 *
+	 * The asset manager only times its loads at the debug level.  The message has
+	 * the form "Loaded: 12.5ms file, class", and is logged on the thread that
+	 * finishes the load, right after it finishes.
+	 */
+	private class AssetLogger extends Logger {
+		/**
+		 * Creates a new asset logger at the debug level.
+		 */
+		public AssetLogger() {
+			super("AssetManager", Logger.DEBUG);
+		}
+
+		/**
+		 * Records a span for each loaded asset.
+		 *
+		 * @param message	The log message
+		 */
+		public void debug(String message) {
+			if (!message.startsWith(LOADED_PREFIX)) {
+				return;
+			}
+			long now = System.nanoTime();
+			int units = message.indexOf(LOADED_UNITS, LOADED_PREFIX.length());
+			if (units < 0) {
+				return;
+			}
+			try {
+				float millis = Float.parseFloat(message.substring(LOADED_PREFIX.length(), units));
+				String asset = message.substring(units+LOADED_UNITS.length());
+				int comma = asset.lastIndexOf(", ");
+				if (comma >= 0) {
+					asset = asset.substring(0, comma);
+				}
+				record(asset, CATEGORY_ASSET, now-(long)(millis*NANOS_PER_MILLI), now);
+			} catch (NumberFormatException e) {
+				// Not a message we understand
+			}
+		}
+
+		/**
+		 * Ignores other debug messages.
+		 *
+		 * @param message	The log message
+		 * @param exception	The associated exception
+		 */
+		public void debug(String message, Exception exception) {
+		}
+
+		/**
+		 * Ignores info messages (the asset manager is quiet by default).
+		 *
+		 * @param message	The log message
+		 */
+		public void info(String message) {
+		}
+
+		/**
+		 * Ignores info messages (the asset manager is quiet by default).
+		 *
+		 * @param message	The log message
+		 * @param exception	The associated exception
+		 */
+		public void info(String message, Exception exception) {
+		}
+	}
+}
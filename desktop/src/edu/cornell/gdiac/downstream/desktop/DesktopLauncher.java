@@ -12,9 +12,11 @@
  */
 package edu.cornell.gdiac.downstream.desktop;
 
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import edu.cornell.gdiac.downstream.GDXRoot;
+import edu.cornell.gdiac.util.StartupTrace;
 
 /**
  * The main class of the game.
@@ -30,15 +32,43 @@ public class DesktopLauncher {
 	 * This method simply exists to start a new LwjglApplication.  For desktop games,
 	 * LibGDX is built on top of LWJGL (this is not the case for Android).
 	 * 
+	 * The option --threaded runs the physics on a separate thread from the drawing.
+	 * The option --record FILE writes the input of every physics step to a log, and
+	 * --replay FILE plays such a log back instead of reading the keyboard and gamepad.
+	 * The startup (from here to the first frame of gameplay) is traced to the file
+	 * startup.json (see StartupTrace).
+	 * 
 	 * @param arg Command line arguments
 	 */
 	public static void main (String[] arg) {
+		int span = StartupTrace.getInstance().begin("DesktopLauncher.main");
+		boolean threaded = false;
+		String record = null;
+		String replay = null;
+		for(int ii = 0; ii < arg.length; ii++) {
+			if (arg[ii].equals("--threaded")) {
+				threaded = true;
+			} else if (arg[ii].equals("--record") && ii+1 < arg.length) {
+				record = arg[++ii];
+			} else if (arg[ii].equals("--replay") && ii+1 < arg.length) {
+				replay = arg[++ii];
+			}
+		}
+		
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 		config.width  = 1280;
 		config.height = 720;
 		config.resizable = false;
-		new LwjglApplication(new GDXRoot(), config);
+		GDXRoot root = new GDXRoot(threaded);
+		if (record != null) {
+			root.setRecordFile(new FileHandle(record));
+		}
+		if (replay != null) {
+			root.setReplayFile(new FileHandle(replay));
+		}
+		new LwjglApplication(root, config);
 		//1280x 800
 		//config.fullscreen = true;
+		StartupTrace.getInstance().end(span);
 	}
 }
\ No newline at end of file
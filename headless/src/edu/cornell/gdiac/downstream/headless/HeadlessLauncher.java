@@ -0,0 +1,234 @@
+/*
+ * HeadlessLauncher.java
+ *
+ * The desktop launcher needs a window and an OpenGL context.  Our build machines
+ * have neither.  This launcher runs the game simulation on the LibGDX headless
+ * backend instead, so that we can soak-test levels and measure how many physics
+ * steps per second the simulation can sustain.
+ *
+ * Usage:
+ *
+ *     HeadlessLauncher [--steps N] [--script FILE | --replay FILE] [--record FILE] [--level FILE]
+ *                      [--report SECONDS] [--check-alloc] [--trace FILE] [--startup-budget MILLIS]
+ *                      [--startup-baseline FILE [--startup-tolerance PERCENT]] [--save-startup FILE]
+ *
+ * A negative number of steps runs until the script presses EXIT.  Without a
+ * script file, the launcher uses a built-in script that swims around the level.
+ * With --replay, the input comes from a log recorded in the game (see InputRecorder)
+ * instead, and the run lasts as long as the log (unless --steps is given).  With
+ * --record, the input of every step is written to such a log.
+ * The level is a compiled level file (see LevelCompiler); the default is the
+ * first level of the game.
+ * With --check-alloc, the run fails if the game loop allocates any memory after
+ * the warmup, or if the JVM cannot count allocations.  The check covers the
+ * physics steps and the per-frame copy for drawing, but not the drawing itself.
+ * With --trace, the startup (from launch to the first step) is written to a
+ * Chrome trace file.  With --startup-budget, the run fails if the first step
+ * takes longer than that many milliseconds after launch.  With --startup-baseline,
+ * the budget is the median of the times in the file, plus the tolerance (25% by
+ * default).  With --save-startup, the time to the first step is appended to the
+ * file, so that several runs record such a baseline.
+ * The startup only covers the launch, the level build and the world setup.  The
+ * textures and fonts are not loaded, as there is no GL context.
+ */
+package edu.cornell.gdiac.downstream.headless;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import com.badlogic.gdx.*;
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.backends.headless.*;
+
+import edu.cornell.gdiac.util.StartupTrace;
+import edu.cornell.gdiac.downstream.*;
+
+/**
+ * The main class of the headless simulation.
+ *
+ * This class parses the command line and launches the simulation.  The process
+ * exit code is nonzero if the simulation fails.
+ */
+public class HeadlessLauncher {
+	/** The default number of steps to simulate (10 minutes of game time) */
+	private static final long DEFAULT_STEPS = 36000;
+	/** The default number of seconds between progress reports */
+	private static final float DEFAULT_REPORT = 1.0f;
+	/** The default slowdown allowed over the startup baseline, in percent */
+	private static final float DEFAULT_TOLERANCE = 25.0f;
+
+	/**
+	 * Classic main method that all Java programmers know.
+	 *
+	 * @param arg Command line arguments
+	 */
+	public static void main (String[] arg) {
+		int span = StartupTrace.getInstance().begin("HeadlessLauncher.main");
+		long steps = DEFAULT_STEPS;
+		boolean hasSteps = false;
+		float report = DEFAULT_REPORT;
+		String file = null;
+		String replay = null;
+		String record = null;
+		String level = null;
+		boolean checkAlloc = false;
+		String trace = null;
+		float budget = 0;
+		String baseline = null;
+		float tolerance = DEFAULT_TOLERANCE;
+		String saveStartup = null;
+		try {
+			for(int ii = 0; ii < arg.length; ii++) {
+				if (arg[ii].equals("--steps") && ii+1 < arg.length) {
+					steps = Long.parseLong(arg[++ii]);
+					hasSteps = true;
+				} else if (arg[ii].equals("--script") && ii+1 < arg.length) {
+					file = arg[++ii];
+				} else if (arg[ii].equals("--replay") && ii+1 < arg.length) {
+					replay = arg[++ii];
+				} else if (arg[ii].equals("--record") && ii+1 < arg.length) {
+					record = arg[++ii];
+				} else if (arg[ii].equals("--level") && ii+1 < arg.length) {
+					level = arg[++ii];
+				} else if (arg[ii].equals("--report") && ii+1 < arg.length) {
+					report = Float.parseFloat(arg[++ii]);
+				} else if (arg[ii].equals("--check-alloc")) {
+					checkAlloc = true;
+				} else if (arg[ii].equals("--trace") && ii+1 < arg.length) {
+					trace = arg[++ii];
+				} else if (arg[ii].equals("--startup-budget") && ii+1 < arg.length) {
+					budget = Float.parseFloat(arg[++ii]);
+				} else if (arg[ii].equals("--startup-baseline") && ii+1 < arg.length) {
+					baseline = arg[++ii];
+				} else if (arg[ii].equals("--startup-tolerance") && ii+1 < arg.length) {
+					tolerance = Float.parseFloat(arg[++ii]);
+				} else if (arg[ii].equals("--save-startup") && ii+1 < arg.length) {
+					saveStartup = arg[++ii];
+				} else {
+					usage("Unknown argument "+arg[ii]);
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage(e.getMessage());
+		}
+
+		if (file != null && replay != null) {
+			usage("Use either --script or --replay, not both");
+		} else if (baseline != null && budget > 0) {
+			usage("Use either --startup-budget or --startup-baseline, not both");
+		}
+		if (baseline != null) {
+			budget = readBaseline(baseline)*(1+tolerance/100.0f);
+		}
+		InputSource script;
+		if (replay != null) {
+			InputReplay log = null;
+			try {
+				log = new InputReplay(new FileHandle(replay));
+			} catch (GdxRuntimeException e) {
+				usage(e.getMessage());
+			}
+			if (!hasSteps) {
+				steps = log.getLength();
+			}
+			script = log;
+		} else if (file == null) {
+			script = new ScriptedInput();
+		} else {
+			script = new ScriptedInput(new FileHandle(file));
+		}
+
+		final CountDownLatch done = new CountDownLatch(1);
+		final HeadlessSimulation simulation = new HeadlessSimulation(script, steps, report);
+		if (level != null) {
+			simulation.setLevelFile(new FileHandle(level));
+		}
+		if (trace != null) {
+			simulation.setTraceFile(new FileHandle(trace));
+		}
+		if (record != null) {
+			simulation.setRecordFile(new FileHandle(record));
+		}
+		simulation.setStartupBudget(budget);
+		if (saveStartup != null) {
+			simulation.setStartupLog(new FileHandle(saveStartup));
+		}
+		final boolean checkAllocations = checkAlloc;
+		ApplicationListener listener = new ApplicationAdapter() {
+			public void create() {
+				try {
+					simulation.setCheckingAllocations(checkAllocations);
+					simulation.create();
+				} catch (RuntimeException e) {
+					// The application thread would die without disposing
+					Gdx.app.error("Headless", "Could not create the simulation", e);
+					System.exit(1);
+				}
+			}
+			public void render() {
+				simulation.render();
+			}
+			public void dispose() {
+				simulation.dispose();
+				done.countDown();
+			}
+		};
+
+		// The application thread may reach the first step before the constructor returns
+		StartupTrace.getInstance().end(span);
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.renderInterval = 0; // As fast as possible
+		new HeadlessApplication(listener, config);
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.exit(simulation.isFailure() ? 1 : 0);
+	}
+
+	/**
+	 * Returns the baseline startup time in a file, in milliseconds.
+	 *
+	 * The file has one time per line (see --save-startup), and the baseline is
+	 * their median, so that a single slow or fast run does not move it.
+	 *
+	 * @param path	The path to the baseline file
+	 *
+	 * @return the baseline startup time in a file, in milliseconds.
+	 */
+	private static float readBaseline(String path) {
+		String[] lines = null;
+		try {
+			lines = new FileHandle(path).readString().trim().split("\\s+");
+		} catch (GdxRuntimeException e) {
+			usage("Could not read the startup baseline "+path);
+		}
+		float[] times = new float[lines.length];
+		try {
+			for(int ii = 0; ii < lines.length; ii++) {
+				times[ii] = Float.parseFloat(lines[ii]);
+			}
+		} catch (NumberFormatException e) {
+			usage("The startup baseline "+path+" is not a list of times");
+		}
+		Arrays.sort(times);
+		int mid = times.length/2;
+		return times.length % 2 == 1 ? times[mid] : (times[mid-1]+times[mid])/2;
+	}
+
+	/**
+	 * Prints the usage message and quits.
+	 *
+	 * @param message The reason for the usage message
+	 */
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("Usage: HeadlessLauncher [--steps N] [--script FILE | --replay FILE] [--record FILE] [--level FILE]"+
+						   " [--report SECONDS] [--check-alloc] [--trace FILE] [--startup-budget MILLIS]"+
+						   " [--startup-baseline FILE [--startup-tolerance PERCENT]] [--save-startup FILE]");
+		System.exit(2);
+	}
+}
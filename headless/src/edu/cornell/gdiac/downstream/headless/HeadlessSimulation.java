@@ -0,0 +1,487 @@
+/*
+ * HeadlessSimulation.java
+ *
+ * This is the headless replacement for GDXRoot.  There is no canvas, no asset
+ * manager, and no loading screen.  We just build the level and crank the physics
+ * engine as fast as the CPU will let us, reporting the throughput as we go.
+ *
+ * Because there are no textures, the game objects fall back to their default
+ * physics sizes.  The simulation is otherwise identical to the real game.
+ *
+ * The simulation can also check that the steady-state game loop does not allocate
+ * any memory, as allocation churn is what causes our garbage collection hitches.
+ * This uses the per-thread allocation counters of the HotSpot JVM.  The check
+ * covers the physics step and the copy of each frame into a RenderSnapshot (the
+ * work of the simulation thread).  It does NOT cover WorldController.draw, as
+ * there is no GL context to draw with.
+ *
+ * Finally, the simulation can check the time from launch to the first physics
+ * step against a budget, so that startup regressions fail the build.  The time
+ * can also be appended to a file, to record the baseline that the budget is
+ * computed from.
+ */
+package edu.cornell.gdiac.downstream.headless;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import com.badlogic.gdx.*;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import edu.cornell.gdiac.util.*;
+import edu.cornell.gdiac.downstream.*;
+
+/**
+ * Application that steps a DownstreamController without a window.
+ *
+ * Each call to render() advances the game by a single physics step, using the
+ * fixed step size of the controller, and then publishes the frame as the game
+ * would.  The input comes from a ScriptedInput, or from an InputReplay of a
+ * recorded session.
+ */
+public class HeadlessSimulation extends ApplicationAdapter implements ScreenListener {
+	/** Number of nanoseconds in a second */
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+	/** Number of steps before the allocation check starts (to settle caches and the JIT) */
+	private static final int ALLOCATION_WARMUP = 600;
+	/** Number of calls used to measure the cost of reading the allocation counter */
+	private static final int ALLOCATION_CALIBRATION = 64;
+
+	/** The game world being simulated */
+	private DownstreamController controller;
+	/** The scripted (or replayed) input for the player */
+	private InputSource script;
+	/** The file to record the input to (null for none) */
+	private FileHandle recordFile;
+	/** The compiled level file to play (null for the default level) */
+	private FileHandle levelFile;
+
+	/** The total number of steps to simulate (negative for no limit) */
+	private long totalSteps;
+	/** The number of seconds between progress reports (0 for none) */
+	private float reportInterval;
+
+	/** The number of steps simulated so far */
+	private long steps;
+	/** The time spent simulating, in nanoseconds */
+	private long elapsed;
+	/** The number of steps at the last progress report */
+	private long reportSteps;
+	/** The simulation time at the last progress report, in nanoseconds */
+	private long reportTime;
+	/** The number of times the level was restarted by the script (NEXT or PREV) */
+	private int resets;
+	/** The most Box2D bodies in the world after any step */
+	private int peakBodies;
+	/** The most Box2D contacts in the world after any step */
+	private int peakContacts;
+	/** Whether the simulation stopped on an error */
+	private boolean failed;
+	
+	/** The startup trace (null once the first step is taken) */
+	private StartupTrace trace;
+	/** The file to write the startup trace to (null for none) */
+	private FileHandle traceFile;
+	/** The most milliseconds allowed before the first step (0 for no limit) */
+	private float startupBudget;
+	/** The file to append the milliseconds to the first step to (null for none) */
+	private FileHandle startupLog;
+	
+	/** The allocation counters (null if not checking allocations) */
+	private com.sun.management.ThreadMXBean allocations;
+	/** The bytes allocated by reading the allocation counter itself */
+	private long allocationOverhead;
+	/** The bytes allocated by the game loop after the warmup */
+	private long allocated;
+	/** The number of steps that allocated memory after the warmup */
+	private long allocatingSteps;
+	/** The first step that allocated memory after the warmup (-1 if none) */
+	private long firstAllocatingStep;
+
+	/**
+	 * Creates a new headless simulation.
+	 *
+	 * The simulation does not start until the application calls create().
+	 *
+	 * @param script	The scripted (or replayed) input for the player
+	 * @param steps		The number of steps to simulate (negative for no limit)
+	 * @param report	The number of seconds between progress reports (0 for none)
+	 */
+	public HeadlessSimulation(InputSource script, long steps, float report) {
+		this.script = script;
+		this.totalSteps = steps;
+		this.reportInterval = report;
+	}
+
+	/**
+	 * Returns the number of steps simulated so far.
+	 *
+	 * @return the number of steps simulated so far.
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Sets the file to record the input of every step to.
+	 *
+	 * This must be set before the application is created.  A null file does not
+	 * record.  Recording a script turns it into a log for InputReplay.
+	 *
+	 * @param file	The input log to write
+	 */
+	public void setRecordFile(FileHandle file) {
+		recordFile = file;
+	}
+
+	/**
+	 * Returns the average number of steps simulated per second.
+	 *
+	 * @return the average number of steps simulated per second.
+	 */
+	public double getStepsPerSecond() {
+		return elapsed == 0 ? 0 : steps*NANOS_PER_SECOND/elapsed;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the game loop after the warmup.
+	 *
+	 * This is always 0 if the allocation check is disabled.
+	 *
+	 * @return the number of bytes allocated by the game loop after the warmup.
+	 */
+	public long getAllocatedBytes() {
+		return allocated;
+	}
+	
+	/**
+	 * Returns true if the allocation check is enabled.
+	 *
+	 * @return true if the allocation check is enabled.
+	 */
+	public boolean isCheckingAllocations() {
+		return allocations != null;
+	}
+	
+	/**
+	 * Sets whether to check that the steady-state game loop allocates nothing.
+	 *
+	 * This only works on JVMs that support per-thread allocation counters (such
+	 * as HotSpot).  On any other JVM, turning on the check throws an exception,
+	 * rather than passing without checking anything.
+	 *
+	 * Some allocations only happen the first time a code path runs, such as
+	 * linking a native method on the first collision.  These must happen in the
+	 * warmup steps.  Any allocation after that fails the check.
+	 *
+	 * @param value whether to check that the game loop allocates nothing.
+	 *
+	 * @throws UnsupportedOperationException if this JVM cannot count allocations
+	 */
+	public void setCheckingAllocations(boolean value) {
+		allocations = null;
+		if (!value) {
+			return;
+		}
+		
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counters = (com.sun.management.ThreadMXBean)bean;
+			if (counters.isThreadAllocatedMemorySupported()) {
+				counters.setThreadAllocatedMemoryEnabled(true);
+				allocations = counters;
+				return;
+			}
+		}
+		throw new UnsupportedOperationException("This JVM cannot count allocations");
+	}
+
+	/**
+	 * Sets the compiled level file to play.
+	 *
+	 * This must be called before create().  A null file plays the default level.
+	 *
+	 * @param file	The compiled level file
+	 */
+	public void setLevelFile(FileHandle file) {
+		levelFile = file;
+	}
+
+	/**
+	 * Sets the file to write the startup trace to.
+	 *
+	 * The trace covers the time from launch to the first physics step, in the
+	 * Chrome trace format (see StartupTrace).  A null file writes no trace.
+	 *
+	 * @param file	The file to write the startup trace to
+	 */
+	public void setTraceFile(FileHandle file) {
+		traceFile = file;
+	}
+	
+	/**
+	 * Sets the most milliseconds allowed from launch to the first physics step.
+	 *
+	 * The simulation fails if the startup takes longer.  A budget of 0 disables
+	 * the check.
+	 *
+	 * @param millis	The startup budget in milliseconds
+	 */
+	public void setStartupBudget(float millis) {
+		startupBudget = millis;
+	}
+	
+	/**
+	 * Sets the file to append the milliseconds to the first physics step to.
+	 *
+	 * Each run adds a line with a single number.  Several runs make a baseline
+	 * for the startup budget (see HeadlessLauncher).  A null file records nothing.
+	 *
+	 * @param file	The file to append the startup time to
+	 */
+	public void setStartupLog(FileHandle file) {
+		startupLog = file;
+	}
+	
+	/**
+	 * Returns the milliseconds from launch to the first physics step.
+	 *
+	 * This is 0 if no step has been taken.
+	 *
+	 * @return the milliseconds from launch to the first physics step.
+	 */
+	public float getTimeToFirstStep() {
+		return StartupTrace.getInstance().getTimeToFirstFrame();
+	}
+
+	/**
+	 * Returns the most Box2D bodies in the world after any step.
+	 *
+	 * @return the most Box2D bodies in the world after any step.
+	 */
+	public int getPeakBodyCount() {
+		return peakBodies;
+	}
+
+	/**
+	 * Returns the most Box2D contacts in the world after any step.
+	 *
+	 * A contact is a pair of fixtures with overlapping bounding boxes that may
+	 * collide (according to their filters).
+	 *
+	 * @return the most Box2D contacts in the world after any step.
+	 */
+	public int getPeakContactCount() {
+		return peakContacts;
+	}
+
+	/**
+	 * Returns true if the simulation stopped on an error.
+	 *
+	 * @return true if the simulation stopped on an error.
+	 */
+	public boolean isFailure() {
+		return failed;
+	}
+
+	/**
+	 * Called when the Application is first created.
+	 *
+	 * This builds the level and attaches the scripted input (and the recorder).
+	 */
+	public void create() {
+		trace = StartupTrace.getInstance();
+		int span = trace.begin("HeadlessSimulation.create");
+		InputController.getInstance().setSource(script);
+		int step = trace.begin("DownstreamController()");
+		controller = new DownstreamController();
+		trace.end(step);
+		controller.setScreenListener(this);
+		controller.setLevelFile(levelFile);
+		if (script instanceof InputReplay && ((InputReplay)script).getStepSize() != controller.getStepSize()) {
+			Gdx.app.error("Headless", "The replay was recorded with a different step size, so it will not repeat",
+						  new IllegalArgumentException());
+		}
+		if (recordFile != null) {
+			InputController.getInstance().setRecorder(new InputRecorder(recordFile, controller.getStepSize()));
+		}
+		step = trace.begin("DownstreamController.reset");
+		controller.reset();
+		trace.end(step);
+		trace.end(span);
+		Gdx.app.log("Headless", "Simulating "+(totalSteps < 0 ? "forever" : totalSteps+" steps")+
+					" at "+Math.round(1/controller.getStepSize())+" steps per game second");
+	}
+
+	/**
+	 * Called when the Application should render itself.
+	 *
+	 * Here this means a single physics step.  The application quits once it has
+	 * taken the requested number of steps.
+	 */
+	public void render() {
+		if (controller == null || failed) {
+			return;
+		} else if (totalSteps >= 0 && steps >= totalSteps) {
+			Gdx.app.exit();
+			return;
+		}
+
+		float dt = controller.getStepSize();
+		boolean counting = allocations != null && steps >= ALLOCATION_WARMUP;
+		if (counting && steps == ALLOCATION_WARMUP) {
+			calibrateAllocations();
+		}
+		
+		long before = (counting ? allocatedBytes() : 0);
+		int span = (trace != null ? trace.begin("first step") : -1);
+		long start = System.nanoTime();
+		try {
+			if (controller.preUpdate(dt)) {
+				controller.update(dt);
+				controller.postUpdate(dt);
+			}
+			controller.publishFrame();
+		} catch (RuntimeException e) {
+			Gdx.app.error("Headless", "Simulation failed at step "+steps, e);
+			failed = true;
+			Gdx.app.exit();
+			return;
+		}
+		elapsed += System.nanoTime()-start;
+		if (trace != null) {
+			finishTrace(span);
+		}
+		if (counting) {
+			long bytes = allocatedBytes()-before-allocationOverhead;
+			if (bytes > 0) {
+				if (allocatingSteps == 0) {
+					firstAllocatingStep = steps;
+				}
+				allocated += bytes;
+				allocatingSteps++;
+			}
+		}
+		steps++;
+		peakBodies = Math.max(peakBodies, controller.getWorld().getBodyCount());
+		peakContacts = Math.max(peakContacts, controller.getWorld().getContactCount());
+
+		if (reportInterval > 0 && (elapsed-reportTime)/NANOS_PER_SECOND >= reportInterval) {
+			double rate = (steps-reportSteps)*NANOS_PER_SECOND/(elapsed-reportTime);
+			Gdx.app.log("Headless", String.format("%d steps, %.0f steps/sec", steps, rate));
+			reportSteps = steps;
+			reportTime  = elapsed;
+		}
+	}
+
+	/**
+	 * Ends the startup trace after the first step, and checks it against the budget.
+	 *
+	 * @param span	The span of the first step
+	 */
+	private void finishTrace(int span) {
+		trace.end(span);
+		trace.finish();
+		if (traceFile != null) {
+			trace.write(traceFile);
+		}
+		
+		float millis = trace.getTimeToFirstFrame();
+		if (startupLog != null) {
+			try {
+				startupLog.writeString(String.format(Locale.US, "%.1f\n", millis), true);
+			} catch (GdxRuntimeException e) {
+				Gdx.app.error("Headless", "Could not write "+startupLog.path(), e);
+			}
+		}
+		if (startupBudget > 0 && millis > startupBudget) {
+			Gdx.app.error("Headless", String.format("First step after %.1f ms (budget is %.1f ms)", millis, startupBudget),
+						  new IllegalStateException());
+			failed = true;
+			Gdx.app.exit();
+		} else {
+			Gdx.app.log("Headless", String.format("First step after %.1f ms", millis));
+		}
+		trace = null;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by this thread so far.
+	 *
+	 * @return the number of bytes allocated by this thread so far.
+	 */
+	private long allocatedBytes() {
+		return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Measures the bytes allocated by reading the allocation counter.
+	 *
+	 * Depending on the JVM, reading the counter may allocate a little itself.  We
+	 * take the smallest of several back-to-back readings, and subtract that from
+	 * every measurement.
+	 */
+	private void calibrateAllocations() {
+		allocationOverhead = Long.MAX_VALUE;
+		firstAllocatingStep = -1;
+		for(int ii = 0; ii < ALLOCATION_CALIBRATION; ii++) {
+			long first = allocatedBytes();
+			long second = allocatedBytes();
+			allocationOverhead = Math.min(allocationOverhead, second-first);
+		}
+	}
+
+	/**
+	 * Called when the Application is destroyed.
+	 *
+	 * This reports the final throughput of the simulation.
+	 */
+	public void dispose() {
+		if (controller != null) {
+			Gdx.app.log("Headless", String.format("Finished %d steps (%d restarts) in %.2f seconds: %.0f steps/sec, at most %d bodies and %d contacts",
+												 steps, resets, elapsed/NANOS_PER_SECOND, getStepsPerSecond(), peakBodies,
+												 peakContacts));
+			if (allocations != null) {
+				if (steps <= ALLOCATION_WARMUP) {
+					Gdx.app.error("Headless", "Too few steps to check allocations (need more than "+
+								  ALLOCATION_WARMUP+")", new IllegalStateException());
+					failed = true;
+				} else if (allocated > 0) {
+					Gdx.app.error("Headless", String.format("Allocated %d bytes in %d of %d steady-state steps (first at step %d)",
+								  allocated, allocatingSteps, steps-ALLOCATION_WARMUP, firstAllocatingStep),
+								  new IllegalStateException());
+					failed = true;
+				} else {
+					Gdx.app.log("Headless", "No allocations in "+(steps-ALLOCATION_WARMUP)+" steady-state steps");
+				}
+			}
+			InputController input = InputController.getInstance();
+			input.setSource(null);
+			if (input.getRecorder() != null) {
+				input.getRecorder().close();
+				input.setRecorder(null);
+			}
+			controller.dispose();
+			controller = null;
+		}
+	}
+
+	/**
+	 * The given screen has made a request to exit its player mode.
+	 *
+	 * There is only one level, so advancing or retreating just restarts it.
+	 *
+	 * @param screen   The screen requesting to exit
+	 * @param exitCode The state of the screen upon exit
+	 */
+	public void exitScreen(Screen screen, int exitCode) {
+		if (exitCode == WorldController.EXIT_QUIT) {
+			Gdx.app.exit();
+			totalSteps = steps;
+		} else {
+			controller.reset();
+			resets++;
+		}
+	}
+}
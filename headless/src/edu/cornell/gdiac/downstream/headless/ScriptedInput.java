@@ -0,0 +1,190 @@
+/*
+ * ScriptedInput.java
+ *
+ * There is no keyboard or gamepad on a build machine.  So when we run the game
+ * headless, the player is replaced by a script.  A script is a list of segments.
+ * Each segment holds a joystick direction and a set of buttons for some number
+ * of physics steps.  The script loops when it reaches the end, so a short script
+ * can drive an arbitrarily long soak test.
+ *
+ * Script files are plain text, with one segment per line:
+ *
+ *     <steps> <horizontal> <vertical> [BUTTON ...]
+ *
+ * where the buttons are the names of the BUTTON constants in InputController,
+ * without the prefix (e.g. TETHER, RESET).  Blank lines and lines starting with
+ * # are ignored.
+ */
+package edu.cornell.gdiac.downstream.headless;
+
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.downstream.*;
+
+/**
+ * An input source that replays a looping script of joystick and button states.
+ */
+public class ScriptedInput implements InputSource {
+	/** The script used when none is specified: swim a loop, tethering on the way */
+	private static final String DEFAULT_SCRIPT =
+		"# steps  horizontal  vertical  buttons\n" +
+		"60    1.0   0.0\n"  +
+		"1     1.0   0.0  TETHER\n" +
+		"120   0.0   1.0\n"  +
+		"1     0.0   1.0  TETHER\n" +
+		"60   -1.0   0.0\n"  +
+		"90    0.0  -1.0  SPACE\n" +
+		"30   -0.7   0.7  SLOW\n";
+
+	/** The number of steps for each segment */
+	private IntArray steps;
+	/** The horizontal movement for each segment */
+	private FloatArray horizontal;
+	/** The vertical movement for each segment */
+	private FloatArray vertical;
+	/** The button mask for each segment */
+	private IntArray buttons;
+
+	/** The current segment of the script */
+	private int segment;
+	/** The number of steps taken in the current segment */
+	private int counter;
+
+	/**
+	 * Creates a new input source from the default script.
+	 */
+	public ScriptedInput() {
+		this(DEFAULT_SCRIPT);
+	}
+
+	/**
+	 * Creates a new input source from the given script file.
+	 *
+	 * @param file The script file
+	 */
+	public ScriptedInput(FileHandle file) {
+		this(file.readString());
+	}
+
+	/**
+	 * Creates a new input source from the given script text.
+	 *
+	 * @param script The script text
+	 */
+	public ScriptedInput(String script) {
+		steps = new IntArray();
+		horizontal = new FloatArray();
+		vertical = new FloatArray();
+		buttons  = new IntArray();
+		parse(script);
+		if (steps.size == 0) {
+			throw new GdxRuntimeException("Input script has no segments");
+		}
+		segment = 0;
+		counter = 0;
+	}
+
+	/**
+	 * Parses the segments of a script.
+	 *
+	 * @param script The script text
+	 */
+	private void parse(String script) {
+		String[] lines = script.split("\n");
+		for(int ii = 0; ii < lines.length; ii++) {
+			String line = lines[ii].trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+
+			String[] tokens = line.split("\\s+");
+			if (tokens.length < 3) {
+				throw new GdxRuntimeException("Malformed input script at line "+(ii+1)+": "+line);
+			}
+			try {
+				int count = Integer.parseInt(tokens[0]);
+				if (count <= 0) {
+					throw new GdxRuntimeException("Segment length must be positive at line "+(ii+1));
+				}
+				steps.add(count);
+				horizontal.add(Float.parseFloat(tokens[1]));
+				vertical.add(Float.parseFloat(tokens[2]));
+			} catch (NumberFormatException e) {
+				throw new GdxRuntimeException("Malformed input script at line "+(ii+1)+": "+line, e);
+			}
+
+			int mask = 0;
+			for(int jj = 3; jj < tokens.length; jj++) {
+				mask |= parseButton(tokens[jj], ii+1);
+			}
+			buttons.add(mask);
+		}
+	}
+
+	/**
+	 * Returns the bit flag for the given button name.
+	 *
+	 * @param name The button name
+	 * @param line The script line (for error messages)
+	 *
+	 * @return the bit flag for the given button name.
+	 */
+	private static int parseButton(String name, int line) {
+		name = name.toUpperCase();
+		if (name.equals("RESET")) {
+			return InputController.BUTTON_RESET;
+		} else if (name.equals("DEBUG")) {
+			return InputController.BUTTON_DEBUG;
+		} else if (name.equals("PRIMARY")) {
+			return InputController.BUTTON_PRIMARY;
+		} else if (name.equals("SECONDARY")) {
+			return InputController.BUTTON_SECONDARY;
+		} else if (name.equals("TERTIARY")) {
+			return InputController.BUTTON_TERTIARY;
+		} else if (name.equals("PREV")) {
+			return InputController.BUTTON_PREV;
+		} else if (name.equals("NEXT")) {
+			return InputController.BUTTON_NEXT;
+		} else if (name.equals("EXIT")) {
+			return InputController.BUTTON_EXIT;
+		} else if (name.equals("TETHER")) {
+			return InputController.BUTTON_TETHER;
+		} else if (name.equals("SPACE")) {
+			return InputController.BUTTON_SPACE;
+		} else if (name.equals("SLOW")) {
+			return InputController.BUTTON_SLOW;
+		} else if (name.equals("ACCEL")) {
+			return InputController.BUTTON_ACCEL;
+		} else if (name.equals("DECCEL")) {
+			return InputController.BUTTON_DECCEL;
+		} else if (name.equals("TIMING")) {
+			return InputController.BUTTON_TIMING;
+		} else if (name.equals("REWIND")) {
+			return InputController.BUTTON_REWIND;
+		}
+		throw new GdxRuntimeException("Unknown button "+name+" at line "+line);
+	}
+
+	/**
+	 * Restarts the script from the first segment.
+	 */
+	public void rewind() {
+		segment = 0;
+		counter = 0;
+	}
+
+	/**
+	 * Reads the input state for the next physics step.
+	 *
+	 * @param input The input controller to update
+	 */
+	public void readInput(InputController input) {
+		input.setState(horizontal.get(segment), vertical.get(segment), buttons.get(segment));
+		counter++;
+		if (counter >= steps.get(segment)) {
+			counter = 0;
+			segment = (segment+1) % steps.size;
+		}
+	}
+}